@@ -26,6 +26,7 @@ import org.cache2k.processor.EntryProcessor;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
 
 /**
  * Base class for implementations of the cache interface. By default every methods throws
@@ -165,6 +166,17 @@ public class AbstractCache<K, V> implements Cache<K, V> {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public Future<V> getAsync(final K key, final CacheOperationCompletionListener listener) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Future<Map<K, V>> getAllAsync(final Iterable<? extends K> keys,
+                                       final CacheOperationCompletionListener listener) {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public Map<K, V> peekAll(final Iterable<? extends K> keys) {
     throw new UnsupportedOperationException();
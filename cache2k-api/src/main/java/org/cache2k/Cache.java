@@ -37,6 +37,7 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /*
@@ -727,6 +728,46 @@ public interface Cache<K, V> extends KeyValueStore<K,V>, Closeable {
   @Override
   Map<K, V> getAll(Iterable<? extends K> keys);
 
+  /**
+   * Returns the value associated to the given key, like {@link #get(Object)}, without
+   * blocking the calling thread for the load. If the value is present in the cache
+   * the returned future is already completed.
+   *
+   * <p>If an {@link org.cache2k.integration.AsyncCacheLoader} is configured the load
+   * is started in the calling thread and completes when the loader invokes its callback.
+   * Other loaders are run via the loader executor, see
+   * {@link Cache2kBuilder#loaderExecutor(Executor)}. The listener is called after the
+   * future is completed in the thread that completes the load. The listener should not
+   * block or do expensive operations.
+   *
+   * <p>Exceptions from the loader are propagated via {@link Future#get()} as cause of
+   * an {@link java.util.concurrent.ExecutionException} and via
+   * {@link CacheOperationCompletionListener#onException(Throwable)}.
+   * The returned future does not support cancellation.
+   *
+   * @param key key with which the specified value is associated
+   * @param listener Listener interface that is invoked upon completion. May be {@code null} if no
+   *          completion notification is needed.
+   * @return future that holds the value, when the operation is completed
+   * @throws NullPointerException if the specified key is null
+   */
+  Future<V> getAsync(K key, CacheOperationCompletionListener listener);
+
+  /**
+   * Retrieves all values associated with the given keys, like {@link #getAll(Iterable)},
+   * without blocking the calling thread. The loads are started for each key
+   * in parallel. Like with {@link #getAll(Iterable)} an exception from the loader
+   * is propagated when the value is retrieved from the map.
+   *
+   * @param keys the keys to retrieve the values for
+   * @param listener Listener interface that is invoked upon completion. May be {@code null} if no
+   *          completion notification is needed.
+   * @return future that holds a map with the keys and values, when all loads are completed
+   * @throws NullPointerException if one of the specified keys is null
+   * @see #getAsync(Object, CacheOperationCompletionListener)
+   */
+  Future<Map<K, V>> getAllAsync(Iterable<? extends K> keys, CacheOperationCompletionListener listener);
+
   /**
    * Bulk version for {@link #peek(Object)}
    *
@@ -28,8 +28,10 @@ import org.cache2k.configuration.ConfigurationSectionBuilder;
 import org.cache2k.configuration.CustomizationReferenceSupplier;
 import org.cache2k.event.CacheClosedListener;
 import org.cache2k.expiry.ExpiryPolicy;
+import org.cache2k.expiry.RefreshAheadPolicy;
 import org.cache2k.event.CacheEntryOperationListener;
 import org.cache2k.integration.AdvancedCacheLoader;
+import org.cache2k.integration.AsyncCacheLoader;
 import org.cache2k.integration.CacheLoader;
 import org.cache2k.integration.CacheWriter;
 import org.cache2k.integration.ExceptionPropagator;
@@ -335,6 +337,26 @@ public class Cache2kBuilder<K, V> {
     return this;
   }
 
+  /**
+   * Specifies the maximum total weight of all entries in the cache. When the limit is
+   * reached, the eviction algorithm removes entries until the total weight is within the limit
+   * again. Requires a {@link #weigher(Weigher)}. If a weigher is present, the
+   * {@link #entryCapacity(long)} is ignored.
+   */
+  public final Cache2kBuilder<K, V> maximumWeight(long v) {
+    config().setMaximumWeight(v);
+    return this;
+  }
+
+  /**
+   * Sets a weigher to calculate the weight of each entry. The cache limits the total weight
+   * of all entries to the {@link #maximumWeight(long)} instead of limiting the entry count.
+   */
+  public final Cache2kBuilder<K, V> weigher(Weigher<K, V> v) {
+    config().setWeigher(wrapCustomizationInstance(v));
+    return this;
+  }
+
   /**
    * When set to {@code true}, cached values do not expire by time. Entries will need to be removed
    * from the cache explicitly or will be evicted if capacity constraints are reached.
@@ -447,6 +469,19 @@ public class Cache2kBuilder<K, V> {
     return this;
   }
 
+  /**
+   * Enables read through operation and sets a cache loader that provides the
+   * cached data asynchronously. Loads started via {@link Cache#getAsync} or
+   * {@link Cache#getAllAsync} do not block the calling thread.
+   *
+   * @see AsyncCacheLoader
+   * @see CacheLoader for general discussion on cache loaders
+   */
+  public final Cache2kBuilder<K, V> loader(AsyncCacheLoader<K, V> l) {
+    config().setAsyncLoader(wrapCustomizationInstance(l));
+    return this;
+  }
+
   /**
    * Enables write through operation and sets a writer customization that gets
    * called synchronously upon cache mutations. By default write through is not enabled.
@@ -538,6 +573,46 @@ public class Cache2kBuilder<K, V> {
     return this;
   }
 
+  /**
+   * Spread the refresh of entries that expire at the same time, e.g. after they were
+   * loaded together. The refresh of an entry is started up to this time span before
+   * its expiry time. The default is 0, which means the refresh is started at the expiry time.
+   *
+   * @see #refreshAhead(boolean)
+   */
+  public final Cache2kBuilder<K, V> refreshAheadJitter(long v, TimeUnit u) {
+    config().setRefreshAheadJitter(u.toMillis(v));
+    return this;
+  }
+
+  /**
+   * Maximum number of refreshes started per second. If the limit is reached the entry
+   * expires instead of being refreshed, the next request will load it. Entries that had
+   * no access recently only use the first half of the budget in each second,
+   * so refreshes of frequently accessed entries are preferred. The default is 0,
+   * which means no limit.
+   *
+   * @see #refreshAhead(boolean)
+   */
+  public final Cache2kBuilder<K, V> refreshAheadRateLimit(int refreshesPerSecond) {
+    config().setRefreshAheadRateLimit(refreshesPerSecond);
+    return this;
+  }
+
+  /**
+   * Decides per entry whether a refresh is done when the expiry time is reached. Entries that
+   * are unlikely to be read again expire regularly instead of occupying a loader thread.
+   * The default is to refresh every entry once and do no further refresh when it
+   * was not accessed, as described in {@link #refreshAhead(boolean)}.
+   *
+   * @see org.cache2k.expiry.AccessedRefreshAheadPolicy
+   * @see #refreshAhead(boolean)
+   */
+  public final Cache2kBuilder<K, V> refreshAheadPolicy(RefreshAheadPolicy<K, V> p) {
+    config().setRefreshAheadPolicy(wrapCustomizationInstance(p));
+    return this;
+  }
+
   /**
    * By default the expiry time is not exact, which means, a value might be visible a few
    * milliseconds after the time of expiry. The time lag depends on the system load.
@@ -565,6 +640,63 @@ public class Cache2kBuilder<K, V> {
     return this;
   }
 
+  /**
+   * Enables an adaptive loader thread pool, which sizes the number of threads from the
+   * observed load time and the rate of loads, between the thread count set by
+   * {@link #loaderThreadCount(int)} and this maximum. This is useful for loaders that
+   * mostly wait for I/O. Loads that cannot be started immediately are queued.
+   * The default is 0, which means a thread pool with a fixed maximum size is used.
+   *
+   * <p>If a separate executor is defined the parameter has no effect.
+   *
+   * @see #loaderThreadCount(int)
+   */
+  public final Cache2kBuilder<K, V> loaderThreadCountMax(int v) {
+    config().setLoaderThreadCountMax(v);
+    return this;
+  }
+
+  /**
+   * Run loads, refresh and asynchronous listeners in virtual threads, if the JVM supports
+   * them. On older JVMs the setting has no effect. With virtual threads there is no limit
+   * of concurrent loads, which is useful for loaders that block on I/O. Executors set via
+   * {@link #loaderExecutor(Executor)} or {@link #asyncListenerExecutor(Executor)} take
+   * precedence. The default is {@code false}.
+   *
+   * @see #loaderThreadCount(int)
+   */
+  public final Cache2kBuilder<K, V> virtualThreads(boolean f) {
+    config().setVirtualThreads(f);
+    return this;
+  }
+
+  /**
+   * Enables batching of single key loads. Loads of different keys that are requested within
+   * the time window are collected and done with one call to {@link CacheLoader#loadAll},
+   * up to the number of keys set by {@link #loaderBatchSize(int)}. The first load of a batch
+   * waits at most the window time for other loads to join. Requires a {@link CacheLoader}
+   * with an implementation of {@code loadAll}.
+   *
+   * <p>The default is 0, which means single key loads are not batched.
+   *
+   * @see #loaderBatchSize(int)
+   */
+  public final Cache2kBuilder<K, V> loaderBatchWindow(long v, TimeUnit u) {
+    config().setLoaderBatchWindow(u.toMillis(v));
+    return this;
+  }
+
+  /**
+   * Maximum number of keys loaded with one call to {@link CacheLoader#loadAll}, when
+   * batching of single key loads is enabled. The default is 100.
+   *
+   * @see #loaderBatchWindow(long, TimeUnit)
+   */
+  public final Cache2kBuilder<K, V> loaderBatchSize(int v) {
+    config().setLoaderBatchSize(v);
+    return this;
+  }
+
   /**
    * Ensure that the cache value is stored via direct object reference and that
    * no serialization takes place. Cache clients leveraging the fact that an in heap
@@ -672,6 +804,19 @@ public class Cache2kBuilder<K, V> {
     return this;
   }
 
+  /**
+   * Record the latencies of loads, refreshes, writer calls and eviction runs in
+   * histograms with nanosecond resolution. The percentiles are available via JMX.
+   * Default is {@code false}, since every recorded operation needs two additional
+   * calls to {@link System#nanoTime()}. Has no effect if statistics are disabled.
+   *
+   * @see org.cache2k.jmx.CacheInfoMXBean#getLatencyPercentiles()
+   */
+  public final Cache2kBuilder<K,V> latencyHistograms(boolean flag) {
+    config().setLatencyHistograms(flag);
+    return this;
+  }
+
   /**
    * Disable that the last modification time is available at {@link CacheEntry#getLastModification()}.
    * This also disables the recording of the average load time that can be retrieved via JMX.
@@ -26,6 +26,7 @@ import org.cache2k.processor.EntryProcessor;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
 
 /**
  * Wrapper class that forwards all method calls to a delegate. Can be used to implement extensions that
@@ -171,6 +172,17 @@ public abstract class ForwardingCache<K, V> implements Cache<K, V> {
     return delegate().getAll(keys);
   }
 
+  @Override
+  public Future<V> getAsync(final K key, final CacheOperationCompletionListener listener) {
+    return delegate().getAsync(key, listener);
+  }
+
+  @Override
+  public Future<Map<K, V>> getAllAsync(final Iterable<? extends K> keys,
+                                       final CacheOperationCompletionListener listener) {
+    return delegate().getAllAsync(keys, listener);
+  }
+
   @Override
   public Map<K, V> peekAll(final Iterable<? extends K> keys) {
     return delegate().peekAll(keys);
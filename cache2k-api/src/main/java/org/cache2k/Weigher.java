@@ -1,8 +1,8 @@
-package org.cache2k.core.experimentalApi;
+package org.cache2k;
 
 /*
  * #%L
- * cache2k implementation
+ * cache2k API
  * %%
  * Copyright (C) 2000 - 2018 headissue GmbH, Munich
  * %%
@@ -20,29 +20,26 @@ package org.cache2k.core.experimentalApi;
  * #L%
  */
 
-import org.cache2k.CacheEntry;
-
-import java.util.EventListener;
-import java.util.concurrent.Executor;
-
 /**
+ * Calculates the weight of an entry. If a weigher is present, the cache limits the
+ * total weight of all entries, instead of the entry count.
+ *
+ * <p>The weight is calculated when a value is inserted or updated. The weigher
+ * should be fast and must not access the cache.
+ *
  * @author Jens Wilke
+ * @see Cache2kBuilder#weigher(Weigher)
+ * @see Cache2kBuilder#maximumWeight(long)
  */
-public interface AsyncCacheLoader<K,V> {
-
-  void get(K key, V value, CacheEntry<K, V> entry, Callback<V> callback, Executor ex);
+public interface Weigher<K, V> {
 
   /**
-   * Callback for async cache load.
+   * Returns the weight of the entry. The weight may not be negative.
    *
-   * @author Jens Wilke
+   * @param key key of the entry
+   * @param value the value, may be {@code null} if null values are permitted
+   * @return the weight, a value greater or equal 0
    */
-  interface Callback<V> extends EventListener {
-
-    void onLoadSuccess(V value);
-
-    void onLoadFailure(Throwable t);
-
-  }
+  int weigh(K key, V value);
 
 }
@@ -22,10 +22,12 @@ package org.cache2k.configuration;
 
 import org.cache2k.Cache2kBuilder;
 import org.cache2k.Clock;
+import org.cache2k.Weigher;
 import org.cache2k.event.CacheClosedListener;
 import org.cache2k.expiry.*;
 import org.cache2k.event.CacheEntryOperationListener;
 import org.cache2k.integration.AdvancedCacheLoader;
+import org.cache2k.integration.AsyncCacheLoader;
 import org.cache2k.integration.CacheWriter;
 import org.cache2k.integration.ExceptionPropagator;
 import org.cache2k.integration.FunctionalCacheLoader;
@@ -63,8 +65,11 @@ public class Cache2kConfiguration<K, V> implements ConfigurationBean, Configurat
   private CacheType<K> keyType;
   private CacheType<V> valueType;
   private long entryCapacity = 2000;
+  private long maximumWeight = -1;
   private boolean strictEviction = false;
   private boolean refreshAhead = false;
+  private long refreshAheadJitter = 0;
+  private int refreshAheadRateLimit = 0;
   private long expireAfterWrite = -1;
   private long retryInterval = -1;
   private long maxRetryInterval = -1;
@@ -73,8 +78,13 @@ public class Cache2kConfiguration<K, V> implements ConfigurationBean, Configurat
   private boolean sharpExpiry = false;
   private boolean suppressExceptions = true;
   private int loaderThreadCount;
+  private int loaderThreadCountMax;
+  private boolean virtualThreads = false;
+  private long loaderBatchWindow = 0;
+  private int loaderBatchSize = 100;
   private boolean permitNullValues = false;
   private boolean disableStatistics = false;
+  private boolean latencyHistograms = false;
   private boolean disableLastModificationTime = false;
   private boolean externalConfigurationPresent = false;
   private boolean boostConcurrency = false;
@@ -83,10 +93,13 @@ public class Cache2kConfiguration<K, V> implements ConfigurationBean, Configurat
   private CustomizationSupplier<Executor> prefetchExecutor;
   private CustomizationSupplier<Executor> asyncListenerExecutor;
   private CustomizationSupplier<ExpiryPolicy<K,V>> expiryPolicy;
+  private CustomizationSupplier<RefreshAheadPolicy<K,V>> refreshAheadPolicy;
   private CustomizationSupplier<ResiliencePolicy<K,V>> resiliencePolicy;
+  private CustomizationSupplier<Weigher<K,V>> weigher;
   private CustomizationSupplier<? extends FunctionalCacheLoader<K,V>> loader;
   private CustomizationSupplier<CacheWriter<K,V>> writer;
   private CustomizationSupplier<AdvancedCacheLoader<K,V>> advancedLoader;
+  private CustomizationSupplier<AsyncCacheLoader<K,V>> asyncLoader;
   private CustomizationSupplier<ExceptionPropagator<K>> exceptionPropagator;
   private CustomizationSupplier<Clock> clock;
 
@@ -179,6 +192,17 @@ public class Cache2kConfiguration<K, V> implements ConfigurationBean, Configurat
     this.entryCapacity = v;
   }
 
+  /**
+   * @see Cache2kBuilder#maximumWeight
+   */
+  public long getMaximumWeight() {
+    return maximumWeight;
+  }
+
+  public void setMaximumWeight(final long v) {
+    maximumWeight = v;
+  }
+
   /**
    * @see Cache2kBuilder#refreshAhead(boolean)
    */
@@ -193,6 +217,28 @@ public class Cache2kConfiguration<K, V> implements ConfigurationBean, Configurat
     this.refreshAhead = v;
   }
 
+  public long getRefreshAheadJitter() {
+    return refreshAheadJitter;
+  }
+
+  /**
+   * @see Cache2kBuilder#refreshAheadJitter
+   */
+  public void setRefreshAheadJitter(final long millis) {
+    refreshAheadJitter = millis;
+  }
+
+  public int getRefreshAheadRateLimit() {
+    return refreshAheadRateLimit;
+  }
+
+  /**
+   * @see Cache2kBuilder#refreshAheadRateLimit(int)
+   */
+  public void setRefreshAheadRateLimit(final int v) {
+    refreshAheadRateLimit = v;
+  }
+
   public CacheType<K> getKeyType() {
     return keyType;
   }
@@ -400,6 +446,14 @@ public class Cache2kConfiguration<K, V> implements ConfigurationBean, Configurat
     advancedLoader = v;
   }
 
+  public CustomizationSupplier<AsyncCacheLoader<K, V>> getAsyncLoader() {
+    return asyncLoader;
+  }
+
+  public void setAsyncLoader(final CustomizationSupplier<AsyncCacheLoader<K, V>> v) {
+    asyncLoader = v;
+  }
+
   public int getLoaderThreadCount() {
     return loaderThreadCount;
   }
@@ -411,6 +465,50 @@ public class Cache2kConfiguration<K, V> implements ConfigurationBean, Configurat
     loaderThreadCount = v;
   }
 
+  public int getLoaderThreadCountMax() {
+    return loaderThreadCountMax;
+  }
+
+  /**
+   * @see Cache2kBuilder#loaderThreadCountMax(int)
+   */
+  public void setLoaderThreadCountMax(final int v) {
+    loaderThreadCountMax = v;
+  }
+
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * @see Cache2kBuilder#virtualThreads(boolean)
+   */
+  public void setVirtualThreads(final boolean v) {
+    virtualThreads = v;
+  }
+
+  public long getLoaderBatchWindow() {
+    return loaderBatchWindow;
+  }
+
+  /**
+   * @see Cache2kBuilder#loaderBatchWindow
+   */
+  public void setLoaderBatchWindow(final long millis) {
+    loaderBatchWindow = millis;
+  }
+
+  public int getLoaderBatchSize() {
+    return loaderBatchSize;
+  }
+
+  /**
+   * @see Cache2kBuilder#loaderBatchSize(int)
+   */
+  public void setLoaderBatchSize(final int v) {
+    loaderBatchSize = v;
+  }
+
   public CustomizationSupplier<ExpiryPolicy<K, V>> getExpiryPolicy() {
     return expiryPolicy;
   }
@@ -419,6 +517,17 @@ public class Cache2kConfiguration<K, V> implements ConfigurationBean, Configurat
     expiryPolicy = _expiryPolicy;
   }
 
+  public CustomizationSupplier<RefreshAheadPolicy<K, V>> getRefreshAheadPolicy() {
+    return refreshAheadPolicy;
+  }
+
+  /**
+   * @see Cache2kBuilder#refreshAheadPolicy(RefreshAheadPolicy)
+   */
+  public void setRefreshAheadPolicy(final CustomizationSupplier<RefreshAheadPolicy<K, V>> _refreshAheadPolicy) {
+    refreshAheadPolicy = _refreshAheadPolicy;
+  }
+
   public CustomizationSupplier<CacheWriter<K, V>> getWriter() {
     return writer;
   }
@@ -529,6 +638,17 @@ public class Cache2kConfiguration<K, V> implements ConfigurationBean, Configurat
     resiliencePolicy = _resiliencePolicy;
   }
 
+  public CustomizationSupplier<Weigher<K, V>> getWeigher() {
+    return weigher;
+  }
+
+  /**
+   * @see Cache2kBuilder#weigher
+   */
+  public void setWeigher(final CustomizationSupplier<Weigher<K, V>> v) {
+    weigher = v;
+  }
+
   public boolean isStrictEviction() {
     return strictEviction;
   }
@@ -562,6 +682,17 @@ public class Cache2kConfiguration<K, V> implements ConfigurationBean, Configurat
     disableStatistics = v;
   }
 
+  public boolean isLatencyHistograms() {
+    return latencyHistograms;
+  }
+
+  /**
+   * @see Cache2kBuilder#latencyHistograms(boolean)
+   */
+  public void setLatencyHistograms(final boolean v) {
+    latencyHistograms = v;
+  }
+
   public CustomizationSupplier<Executor> getLoaderExecutor() {
     return loaderExecutor;
   }
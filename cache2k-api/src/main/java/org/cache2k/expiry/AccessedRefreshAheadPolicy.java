@@ -0,0 +1,54 @@
+package org.cache2k.expiry;
+
+/*
+ * #%L
+ * cache2k API
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.CacheEntry;
+
+/**
+ * Refresh only entries that were accessed recently according to the hit tracking
+ * of the eviction. Entries without a recent access expire regularly.
+ *
+ * @author Jens Wilke
+ */
+public class AccessedRefreshAheadPolicy<K, V> implements RefreshAheadPolicy<K, V> {
+
+  private final long minimumAccessCount;
+
+  /**
+   * Refresh entries with at least one recorded access.
+   */
+  public AccessedRefreshAheadPolicy() {
+    this(1);
+  }
+
+  /**
+   * Refresh entries with at least the given number of recorded accesses.
+   */
+  public AccessedRefreshAheadPolicy(final long _minimumAccessCount) {
+    minimumAccessCount = _minimumAccessCount;
+  }
+
+  @Override
+  public boolean shouldRefresh(final CacheEntry<K, V> entry, final long accessCount, final long currentTime) {
+    return accessCount >= minimumAccessCount;
+  }
+
+}
@@ -0,0 +1,54 @@
+package org.cache2k.expiry;
+
+/*
+ * #%L
+ * cache2k API
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.CacheEntry;
+
+/**
+ * Decides whether an entry is refreshed when its expiry time is reached and refresh ahead
+ * is enabled. A refresh only pays off if the entry is read again before the next expiry.
+ * Entries that are not refreshed expire regularly and are loaded on the next request.
+ *
+ * <p>The cache does not record the time of the last access per entry. The access count
+ * passed in is the hit counter the eviction maintains for its replacement decisions.
+ * Depending on the eviction algorithm the counter is reduced or reset when the eviction
+ * scans the entry, so a value of zero means there was no access recently.
+ *
+ * @author Jens Wilke
+ * @see Cache2kBuilder#refreshAhead(boolean)
+ * @see Cache2kBuilder#refreshAheadPolicy(RefreshAheadPolicy)
+ * @see AccessedRefreshAheadPolicy
+ */
+public interface RefreshAheadPolicy<K, V> {
+
+  /**
+   * Called when the expiry time of an entry is reached. The call is done within the timer
+   * thread and should return quickly.
+   *
+   * @param entry the entry with the current value and the time of its last modification
+   * @param accessCount the hit counter of the eviction, an estimate of the recent access frequency
+   * @param currentTime the current time in millis
+   * @return {@code true}, if the entry should be refreshed, {@code false} if it should expire
+   */
+  boolean shouldRefresh(CacheEntry<K, V> entry, long accessCount, long currentTime);
+
+}
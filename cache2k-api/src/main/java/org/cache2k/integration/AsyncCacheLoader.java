@@ -0,0 +1,85 @@
+package org.cache2k.integration;
+
+/*
+ * #%L
+ * cache2k API
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.CacheEntry;
+
+import java.util.EventListener;
+import java.util.concurrent.Executor;
+
+/**
+ * Retrieves or generates a value to load into the cache without blocking the calling
+ * thread. The load is started by the cache and completes by calling the callback,
+ * which may happen in any thread. This is useful if the loader uses non-blocking I/O.
+ *
+ * <p>The asynchronous loader is used by {@link org.cache2k.Cache#getAsync} and
+ * {@link org.cache2k.Cache#getAllAsync}. Synchronous cache operations wait for the
+ * callback. For general documentation on the loader, please see {@link CacheLoader}.
+ *
+ * @author Jens Wilke
+ * @see CacheLoader
+ * @see AdvancedCacheLoader
+ */
+public interface AsyncCacheLoader<K,V> {
+
+  /**
+   * Starts the load of a value. Exactly one method of the callback must be called
+   * when the load is finished. The cache only uses the first call, further calls are
+   * ignored. While the load is in progress, other operations on the same key wait for
+   * its completion. If a synchronous cache operation waiting for the load is interrupted,
+   * the load fails with a {@link CacheLoaderException} and the callback is ignored.
+   *
+   * @param key The non-null key to provide the value for.
+   * @param currentTime Time in millis, retrieved before the call.
+   * @param currentEntry entry currently in the cache, regardless whether expired or not,
+   *                     or {@code null}. See {@link AdvancedCacheLoader#load}
+   *                     and {@link Cache2kBuilder#keepDataAfterExpired(boolean)}.
+   * @param callback callback to signal the completion of the load
+   * @param executor the loader executor of the cache, which may be used to run
+   *                 blocking parts of the load
+   * @throws Exception Unhandled exception from the loader. The exception is handled
+   *                   like an exception passed to {@link Callback#onLoadFailure(Throwable)}
+   */
+  void load(K key, long currentTime, CacheEntry<K,V> currentEntry,
+            Callback<V> callback, Executor executor) throws Exception;
+
+  /**
+   * Callback for an asynchronous cache load.
+   *
+   * @author Jens Wilke
+   */
+  interface Callback<V> extends EventListener {
+
+    /**
+     * The load was successful, the value is associated with the key.
+     */
+    void onLoadSuccess(V value);
+
+    /**
+     * The load failed. The exception is handled according to the resilience
+     * configuration, like an exception from {@link AdvancedCacheLoader#load}.
+     */
+    void onLoadFailure(Throwable t);
+
+  }
+
+}
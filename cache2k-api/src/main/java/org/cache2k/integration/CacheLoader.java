@@ -89,8 +89,10 @@ public abstract class CacheLoader<K, V> implements FunctionalCacheLoader<K,V> {
    * <p>From inside this method it is illegal to call methods on the same cache. This
    * may cause a deadlock.
    *
-   * <p>The method is provided to complete the API. At the moment cache2k is not
-   * using it. Please see the road map.
+   * <p>If the loader implements this method, it is used by {@link Cache#getAll},
+   * {@link Cache#loadAll} and {@link Cache#reloadAll} to load all keys, that are not
+   * present in the cache, with one call. Keys that are loaded concurrently by another
+   * operation are not included.
    *
    * @param keys set of keys for the values to be loaded
    * @param executor an executor for concurrent loading
@@ -53,10 +53,23 @@ public interface CacheInfoMXBean {
   long getSize();
 
   /**
-   * The configured maximum number of entries in the cache.
+   * The configured maximum number of entries in the cache. {@link Long#MAX_VALUE} if
+   * the capacity is limited by the weight, see {@link #getMaximumWeight()}.
    */
   long getEntryCapacity();
 
+  /**
+   * The configured maximum weight of the entries in the cache, or -1 if no weigher is present.
+   *
+   * @see Cache2kBuilder#maximumWeight(long)
+   */
+  long getMaximumWeight();
+
+  /**
+   * Sum of the weights of all entries in the cache, 0 if no weigher is present.
+   */
+  long getTotalWeight();
+
   /**
    * How many times a new entry was inserted into the cache.
    */
@@ -174,6 +187,33 @@ public interface CacheInfoMXBean {
    */
   long getTotalLoadMillis();
 
+  /**
+   * Median load latency in microseconds. -1 if latency histograms are not enabled.
+   *
+   * @see Cache2kBuilder#latencyHistograms(boolean)
+   */
+  long getLoadLatencyMicros50();
+
+  /**
+   * 99th percentile of the load latency in microseconds. -1 if latency histograms
+   * are not enabled.
+   */
+  long getLoadLatencyMicros99();
+
+  /**
+   * 99.9th percentile of the load latency in microseconds. -1 if latency histograms
+   * are not enabled.
+   */
+  long getLoadLatencyMicros999();
+
+  /**
+   * Count, percentiles and maximum of the latencies of loads, refreshes, writer calls
+   * and eviction runs. {@code null} if latency histograms are not enabled.
+   *
+   * @see Cache2kBuilder#latencyHistograms(boolean)
+   */
+  String getLatencyPercentiles();
+
   /**
    * Implementation class of the cache.
    */
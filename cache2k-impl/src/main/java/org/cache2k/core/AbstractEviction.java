@@ -20,7 +20,15 @@ package org.cache2k.core;
  * #L%
  */
 
+import org.cache2k.Weigher;
 import org.cache2k.core.concurrency.Job;
+import org.cache2k.core.util.TunableConstants;
+import org.cache2k.core.util.TunableFactory;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Basic eviction functionality.
@@ -33,9 +41,11 @@ public abstract class AbstractEviction implements Eviction, EvictionMetrics {
   private static final int MINIMAL_CHUNK_SIZE = 4;
   private static final int MAXIMAL_CHUNK_SIZE = 64;
   private static final long MINIMUM_CAPACITY_FOR_CHUNKING = 1000;
+  private static final Tunable TUNABLE_EVICTION = TunableFactory.get(Tunable.class);
 
   protected final long maxSize;
   protected final long correctedMaxSize;
+  protected final long maxWeight;
   protected final HeapCache heapCache;
   private final Object lock = new Object();
   private long newEntryCounter;
@@ -44,22 +54,62 @@ public abstract class AbstractEviction implements Eviction, EvictionMetrics {
   private long virginRemovedCnt;
   private long evictedCount;
   private final HeapCacheListener listener;
+  private final Weigher weigher;
+  private long totalWeight;
+  private long evictionRunningWeight;
   private final boolean noListenerCall;
   private Entry[] evictChunkReuse;
+  /** Chunk filled by {@link #refillChunk(Entry[])}, guarded by the eviction lock */
+  private Entry[] fillingChunk;
+  private int fillingChunkCount;
   private int chunkSize;
   private int evictionRunningCount = 0;
+  private ReadBuffer readBuffer;
+  private ReadBuffer.AccessRecorder accessRecorder;
+  private final AtomicBoolean readBufferDrainPending = new AtomicBoolean();
+  private Executor maintenanceExecutor;
+  private boolean asyncEviction;
+  private long asyncEvictionLimit = Long.MAX_VALUE;
+  private final AtomicBoolean asyncEvictionScheduled = new AtomicBoolean();
+  private final Runnable readBufferDrainTask = new Runnable() {
+    @Override
+    public void run() {
+      synchronized (lock) {
+        drainReadBuffer();
+      }
+    }
+  };
+  private final Runnable asyncEvictionTask = new Runnable() {
+    @Override
+    public void run() {
+      runAsyncEviction();
+    }
+  };
 
   public AbstractEviction(final HeapCache _heapCache, final HeapCacheListener _listener, final long _maxSize) {
+    this(_heapCache, _listener, _maxSize, null, -1);
+  }
+
+  /**
+   * Eviction limited by the total weight of the entries, if a weigher is present. The
+   * maximum size is still used to size the eviction data structures.
+   * Eviction chunks are not used in this case, since each entry has a different weight.
+   */
+  public AbstractEviction(final HeapCache _heapCache, final HeapCacheListener _listener, final long _maxSize,
+                          final Weigher _weigher, final long _maxWeight) {
     heapCache = _heapCache;
     listener = _listener;
     maxSize = _maxSize;
-    if (_maxSize < MINIMUM_CAPACITY_FOR_CHUNKING) {
+    weigher = _weigher;
+    maxWeight = _weigher != null ? _maxWeight : -1;
+    if (_maxSize < MINIMUM_CAPACITY_FOR_CHUNKING || _weigher != null) {
       chunkSize = 1;
     } else {
       chunkSize = MINIMAL_CHUNK_SIZE + Runtime.getRuntime().availableProcessors() - 1;
       chunkSize = Math.min(MAXIMAL_CHUNK_SIZE, chunkSize);
     }
     noListenerCall = _listener instanceof HeapCacheListener.NoOperation;
+    readBuffer = TUNABLE_EVICTION.readBuffer ? new ReadBuffer() : null;
     /**
      * Avoid integer overflow when calculating with the max size.
      */
@@ -70,18 +120,67 @@ public abstract class AbstractEviction implements Eviction, EvictionMetrics {
     }
   }
 
+  /**
+   * Executor for maintenance tasks, draining the read buffer and the async eviction.
+   */
+  public void setMaintenanceExecutor(final Executor _executor) {
+    maintenanceExecutor = _executor;
+  }
+
+  /**
+   * Use the read buffer, also if not enabled by {@link Tunable#readBuffer}. The drained
+   * accesses are passed to the recorder within the eviction lock. Called after construction,
+   * before the eviction is used.
+   */
+  protected void enableReadBuffer(final ReadBuffer.AccessRecorder _recorder) {
+    if (readBuffer == null) {
+      readBuffer = new ReadBuffer();
+    }
+    accessRecorder = _recorder;
+  }
+
+  /**
+   * Evict in the background via the executor. Inserting threads only evict if the size
+   * exceeds the maximum size by the margin.
+   *
+   * @see Tunable#asyncEviction
+   */
+  public void enableAsyncEviction(final Executor _executor, final int _marginPercent) {
+    maintenanceExecutor = _executor;
+    asyncEviction = true;
+    long _limit = weigher != null ? maxWeight : correctedMaxSize;
+    asyncEvictionLimit = _limit + _limit * _marginPercent / 100;
+  }
+
+  /**
+   * Entry count or total weight, to compare with the async eviction limit.
+   */
+  private long getUsage() {
+    return weigher != null ? totalWeight : getSize();
+  }
+
   @Override
   public void submit(final Entry e) {
     Entry[] _evictionChunk = null;
+    boolean _scheduleEviction = false;
     synchronized (lock) {
+      drainReadBuffer();
       if (e.isNotYetInsertedInReplacementList()) {
         insertIntoReplacementList(e);
+        totalWeight += e.getWeight();
         newEntryCounter++;
-        _evictionChunk = fillEvictionChunk();
+        if (asyncEviction && getUsage() <= asyncEvictionLimit) {
+          _scheduleEviction = evictionNeeded();
+        } else {
+          _evictionChunk = fillEvictionChunk();
+        }
       } else {
         removeEventually(e);
       }
     }
+    if (_scheduleEviction) {
+      scheduleAsyncEviction();
+    }
     evictChunk(_evictionChunk);
   }
 
@@ -99,6 +198,7 @@ public abstract class AbstractEviction implements Eviction, EvictionMetrics {
   private void removeEventually(final Entry e) {
     if (!e.isRemovedFromReplacementList()) {
       removeFromReplacementList(e);
+      totalWeight -= e.getWeight();
       long nrt = e.getNextRefreshTime();
       if (nrt == (Entry.GONE + Entry.EXPIRED)) {
         expiredRemovedCnt++;
@@ -113,31 +213,204 @@ public abstract class AbstractEviction implements Eviction, EvictionMetrics {
   @Override
   public boolean submitWithoutEviction(final Entry e) {
     synchronized (lock) {
-      if (e.isNotYetInsertedInReplacementList()) {
-        insertIntoReplacementList(e);
-        newEntryCounter++;
-      } else {
-        removeEventually(e);
-      }
+      drainReadBuffer();
+      submitWithinLock(e);
       return evictionNeeded();
     }
   }
 
+  @Override
+  public void submitWithoutEviction(final Entry[] _entries, final int _count) {
+    synchronized (lock) {
+      drainReadBuffer();
+      for (int i = 0; i < _count; i++) {
+        submitWithinLock(_entries[i]);
+      }
+    }
+  }
+
+  private void submitWithinLock(final Entry e) {
+    if (e.isNotYetInsertedInReplacementList()) {
+      insertIntoReplacementList(e);
+      totalWeight += e.getWeight();
+      newEntryCounter++;
+    } else {
+      removeEventually(e);
+    }
+  }
+
   /**
    * Do we need to trigger an eviction? For chunks sizes more than 1 the eviction
-   * kicks later.
+   * kicks later. With a weigher, the weight of entries already selected for eviction
+   * is not counted.
    */
   boolean evictionNeeded() {
+    if (weigher != null) {
+      return totalWeight - evictionRunningWeight > maxWeight;
+    }
     return getSize() > (correctedMaxSize + evictionRunningCount + chunkSize / 2);
   }
 
+  /**
+   * Record the hit via the read buffer, if enabled. If the buffer is full, the hit
+   * counter is incremented directly. A reader never waits for the eviction lock, the
+   * drain is done by the maintenance task, if an executor is set, otherwise by the
+   * next insert or eviction, which holds the lock anyway.
+   */
+  @Override
+  public void recordHit(final Entry e) {
+    if (readBuffer == null) {
+      e.hitCnt++;
+      return;
+    }
+    if (!readBuffer.offer(e)) {
+      e.hitCnt++;
+      if (maintenanceExecutor != null && readBufferDrainPending.compareAndSet(false, true)) {
+        try {
+          maintenanceExecutor.execute(readBufferDrainTask);
+        } catch (RejectedExecutionException ex) {
+          readBufferDrainPending.set(false);
+        }
+      }
+    }
+  }
+
+  /**
+   * Calculate the weight of the entry and update the total weight, if the entry is
+   * in the replacement list. The weigher is called outside the eviction lock. Entries
+   * holding an exception have the weight 0.
+   */
+  @Override
+  public void updateWeight(final Entry e) {
+    if (weigher == null) {
+      return;
+    }
+    int w = calculateWeight(e);
+    synchronized (lock) {
+      if (!e.isNotYetInsertedInReplacementList() && !e.isRemovedFromReplacementList()) {
+        totalWeight += w - e.getWeight();
+      }
+      e.setWeight(w);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private int calculateWeight(final Entry e) {
+    Object v = e.getValueOrException();
+    if (v instanceof ExceptionWrapper) {
+      return 0;
+    }
+    int w = weigher.weigh(e.getKey(), v);
+    if (w < 0) {
+      throw new IllegalArgumentException("weight may not be negative, weight=" + w);
+    }
+    return w;
+  }
+
+  /**
+   * Apply buffered hits to the entries, before the eviction algorithm
+   * looks at the hit counters or entries are removed and their hits are added to
+   * the statistics. Assumes lock.
+   */
+  private void drainReadBuffer() {
+    if (readBuffer != null) {
+      readBufferDrainPending.set(false);
+      readBuffer.drain(accessRecorder);
+    }
+  }
+
+  /**
+   * Evict one chunk if needed. With a weigher, an update may increase the weight by more
+   * then one entry, so continue until the weight is within the limit or no entry could be evicted.
+   */
   @Override
   public void evictEventually() {
-    Entry[] _chunk;
+    evictEventually(weigher != null);
+  }
+
+  @Override
+  public void evictEventuallyAfterBulkInsert() {
+    evictEventually(true);
+  }
+
+  /**
+   * @param _repeat continue evicting chunks until the limit is reached or no entry could be evicted
+   */
+  private void evictEventually(final boolean _repeat) {
+    boolean _evicted;
+    do {
+      Entry[] _chunk = null;
+      boolean _scheduleEviction = false;
+      synchronized (lock) {
+        drainReadBuffer();
+        if (asyncEviction && getUsage() <= asyncEvictionLimit) {
+          _scheduleEviction = evictionNeeded();
+        } else {
+          _chunk = fillEvictionChunk();
+        }
+      }
+      if (_scheduleEviction) {
+        scheduleAsyncEviction();
+      }
+      _evicted = evictChunk(_chunk);
+    } while (_evicted && _repeat);
+  }
+
+  /**
+   * Submit the eviction task, if not already scheduled. Only one eviction task per
+   * eviction instance is running at a time. If the executor rejects the task, e.g. on
+   * shutdown, the scheduled flag is reset and the calling thread does the eviction.
+   */
+  private void scheduleAsyncEviction() {
+    if (asyncEvictionScheduled.compareAndSet(false, true)) {
+      try {
+        maintenanceExecutor.execute(asyncEvictionTask);
+      } catch (RejectedExecutionException ex) {
+        asyncEvictionScheduled.set(false);
+        evictUntilWithinLimit();
+      }
+    }
+  }
+
+  /**
+   * Evict chunks until the size is within the limit. Stops if no entry of a chunk could
+   * be evicted, e.g. because all entries are processing, like {@link #evictEventually()}
+   * does. The asynchronous eviction is scheduled again, if still needed.
+   */
+  private void evictUntilWithinLimit() {
+    for (;;) {
+      Entry[] _chunk;
+      synchronized (lock) {
+        drainReadBuffer();
+        _chunk = fillEvictionChunk();
+      }
+      if (!evictChunk(_chunk)) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Evict chunks until the size is within the limit. Checks again after resetting the
+   * scheduled flag, to not miss a concurrent request.
+   */
+  private void runAsyncEviction() {
+    try {
+      evictUntilWithinLimit();
+    } catch (CacheClosedException ignore) {
+      return;
+    } catch (Throwable t) {
+      heapCache.logAndCountInternalException("Eviction exception", t);
+    } finally {
+      asyncEvictionScheduled.set(false);
+    }
+    boolean _needed;
     synchronized (lock) {
-      _chunk = fillEvictionChunk();
+      _needed = evictionNeeded();
+    }
+    if (_needed && !heapCache.isClosed()) {
+      scheduleAsyncEviction();
     }
-    evictChunk(_chunk);
   }
 
   @Override
@@ -158,20 +431,63 @@ public abstract class AbstractEviction implements Eviction, EvictionMetrics {
       _chunk = new Entry[chunkSize];
     }
     evictionRunningCount += _chunk.length;
+    fillingChunk = _chunk;
     for (int i = 0; i < _chunk.length; i++) {
-      _chunk[i] = findEvictionCandidate(null);
+      fillingChunkCount = i;
+      Entry e = findEvictionCandidate(null);
+      evictionRunningWeight += e.getWeight();
+      _chunk[i] = e;
     }
+    fillingChunk = null;
     return _chunk;
   }
 
-  private void evictChunk(Entry[] _chunk) {
-    if (_chunk == null) { return; }
+  /**
+   * True, if the entry was already selected for the chunk that is currently filled.
+   * Called by {@link #findEvictionCandidate(Entry)}, if an entry is selected not by
+   * the clock hand. Assumes eviction lock.
+   */
+  protected boolean isInFillingChunk(Entry e) {
+    Entry[] _chunk = fillingChunk;
+    if (_chunk == null) {
+      return false;
+    }
+    for (int i = 0; i < fillingChunkCount; i++) {
+      if (_chunk[i] == e) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true, if at least one entry was evicted
+   */
+  private boolean evictChunk(Entry[] _chunk) {
+    if (_chunk == null) { return false; }
+    long _startNanos = heapCache.latencyStartNanos();
+    long _chunkWeight = 0;
+    if (weigher != null) {
+      for (Entry e : _chunk) {
+        _chunkWeight += e.getWeight();
+      }
+    }
     removeFromHash(_chunk);
+    boolean _evicted;
     synchronized (lock) {
+      drainReadBuffer();
+      long _evictedBefore = evictedCount;
       removeAllFromReplacementListOnEvict(_chunk);
       evictionRunningCount -= _chunk.length;
+      evictionRunningWeight -= _chunkWeight;
+      if (evictionRunningCount == 0) {
+        evictionRunningWeight = 0;
+      }
       evictChunkReuse = _chunk;
+      _evicted = evictedCount > _evictedBefore;
     }
+    heapCache.recordEvictionLatency(_startNanos);
+    return _evicted;
   }
 
   private void removeFromHash(final Entry[] _chunk) {
@@ -204,10 +520,12 @@ public abstract class AbstractEviction implements Eviction, EvictionMetrics {
         e.startProcessing(Entry.ProcessingState.EVICT);
       }
       listener.onEvictionFromHeap(e);
+      List<Runnable> _callbacks;
       synchronized (e) {
-        e.processingDone();
+        _callbacks = e.processingDone();
         heapCache.removeEntryForEviction(e);
       }
+      Entry.runProcessingDoneCallbacks(_callbacks);
     }
   }
 
@@ -217,6 +535,7 @@ public abstract class AbstractEviction implements Eviction, EvictionMetrics {
       if (e != null) {
         if (!e.isRemovedFromReplacementList()) {
           removeFromReplacementListOnEvict(e);
+          totalWeight -= e.getWeight();
           evictedCount++;
         }
         /* we reuse the chunk array, null the array position to avoid memory leak */
@@ -255,6 +574,16 @@ public abstract class AbstractEviction implements Eviction, EvictionMetrics {
     return maxSize;
   }
 
+  @Override
+  public long getTotalWeight() {
+    return totalWeight;
+  }
+
+  @Override
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+
   @Override
   public int getEvictionRunningCount() {
     return evictionRunningCount;
@@ -273,6 +602,11 @@ public abstract class AbstractEviction implements Eviction, EvictionMetrics {
 
   @Override
   public boolean drain() {
+    if (readBuffer != null) {
+      synchronized (lock) {
+        drainReadBuffer();
+      }
+    }
     return false;
   }
 
@@ -286,8 +620,21 @@ public abstract class AbstractEviction implements Eviction, EvictionMetrics {
     }
   }
 
+  @Override
+  public long removeAll() {
+    totalWeight = 0;
+    return removeAllFromReplacementList();
+  }
+
   protected void removeFromReplacementListOnEvict(Entry e) { removeFromReplacementList(e); }
 
+  /**
+   * Remove all entries from the replacement list. Called within the eviction lock.
+   *
+   * @return entry count
+   */
+  protected abstract long removeAllFromReplacementList();
+
   protected abstract Entry findEvictionCandidate(Entry e);
   protected abstract void removeFromReplacementList(Entry e);
   protected abstract void insertIntoReplacementList(Entry e);
@@ -296,7 +643,39 @@ public abstract class AbstractEviction implements Eviction, EvictionMetrics {
   public String getExtraStatistics() {
     return
       "impl=" + this.getClass().getSimpleName() +
-      ", chunkSize=" + chunkSize;
+      ", chunkSize=" + chunkSize +
+      (weigher != null ? ", totalWeight=" + totalWeight + ", maxWeight=" + maxWeight : "");
+  }
+
+  public static class Tunable extends TunableConstants {
+
+    /**
+     * Record entry hits in a striped buffer and apply them in batches when the eviction
+     * lock is held, instead of incrementing the hit counter racy from concurrent threads.
+     * Default: false.
+     */
+    public boolean readBuffer = false;
+
+    /**
+     * Evict on a background executor. A thread inserting an entry only evicts, if the size
+     * exceeds the maximum size by {@link #asyncEvictionMarginPercent}. This removes the eviction
+     * and the eviction listener calls from the latency of the inserting thread. Default: false.
+     */
+    public boolean asyncEviction = false;
+
+    /**
+     * Percentage of the maximum size the cache may grow above the limit, until inserting
+     * threads need to evict. Default: 10.
+     */
+    public int asyncEvictionMarginPercent = 10;
+
+    /**
+     * Capacity of the task queue of the shared maintenance executor as factor of its
+     * thread count. If the queue is full, the read buffer is drained later and the
+     * eviction is done by the inserting thread. Default: 4.
+     */
+    public int maintenanceQueueThreadFactor = 4;
+
   }
 
 }
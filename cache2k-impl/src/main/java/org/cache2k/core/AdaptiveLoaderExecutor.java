@@ -0,0 +1,223 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.core.util.TunableConstants;
+import org.cache2k.core.util.TunableFactory;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loader thread pool used by one cache exclusively, which adapts the number of threads
+ * to the observed load time and the rate of submitted loads. Following Little's law
+ * the needed concurrency is the arrival rate multiplied by the average load time.
+ * Tasks that cannot be started immediately are queued. The number of threads is raised
+ * additionally by the number of queued tasks to drain the queue. If the queue is full the
+ * task is rejected and the caller does the load itself.
+ *
+ * <p>The thread count is adjusted at most once in {@link Tunable#adjustIntervalMillis}
+ * when tasks are submitted. The statistics are updated without locking and are approximate.
+ *
+ * @author Jens Wilke
+ */
+public class AdaptiveLoaderExecutor extends ExclusiveExecutor {
+
+  private static final Tunable TUNABLE = TunableFactory.get(Tunable.class);
+
+  private final int minThreads;
+  private final int maxThreads;
+  private final AtomicLong submittedCount = new AtomicLong();
+  private final AtomicLong queueWaitCount = new AtomicLong();
+  private final AtomicLong queueWaitNanos = new AtomicLong();
+  private volatile long queueWaitNanosMax;
+  private volatile long averageRunNanos;
+  private volatile long lastAdjustNanos = System.nanoTime();
+  private long submittedCountAtLastAdjust;
+
+  public AdaptiveLoaderExecutor(int _minThreads, int _maxThreads, String _threadNamePrefix) {
+    this(createThreadPool(_minThreads, _maxThreads, _threadNamePrefix), _minThreads, _maxThreads);
+  }
+
+  private AdaptiveLoaderExecutor(ThreadPoolExecutor _threadPoolExecutor, int _minThreads, int _maxThreads) {
+    super(_threadPoolExecutor);
+    minThreads = _minThreads;
+    maxThreads = _maxThreads;
+  }
+
+  /**
+   * Threads are started up to the core pool size before tasks get queued, so the
+   * adjustment works by changing the core pool size. Idle threads terminate.
+   */
+  private static ThreadPoolExecutor createThreadPool(int _minThreads, int _maxThreads, String _threadNamePrefix) {
+    if (_minThreads < 1 || _maxThreads < _minThreads) {
+      throw new IllegalArgumentException(
+        "thread count range invalid, min=" + _minThreads + ", max=" + _maxThreads);
+    }
+    ThreadPoolExecutor ex = new ThreadPoolExecutor(_minThreads, _maxThreads,
+      TUNABLE.keepAliveSeconds, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(_maxThreads * TUNABLE.queueCapacityThreadFactor),
+      HeapCache.TUNABLE.threadFactoryProvider.newThreadFactory(_threadNamePrefix),
+      new ThreadPoolExecutor.AbortPolicy());
+    ex.allowCoreThreadTimeOut(true);
+    return ex;
+  }
+
+  @Override
+  public void execute(final Runnable cmd) {
+    final long _submitNanos = System.nanoTime();
+    submittedCount.incrementAndGet();
+    adjustThreadCountEventually(_submitNanos);
+    getThreadPoolExecutor().execute(new Runnable() {
+      @Override
+      public void run() {
+        long _startNanos = System.nanoTime();
+        recordQueueWait(_startNanos - _submitNanos);
+        try {
+          cmd.run();
+        } finally {
+          recordRun(System.nanoTime() - _startNanos);
+        }
+      }
+    });
+  }
+
+  private void recordQueueWait(long _nanos) {
+    queueWaitCount.incrementAndGet();
+    queueWaitNanos.addAndGet(_nanos);
+    if (_nanos > queueWaitNanosMax) {
+      queueWaitNanosMax = _nanos;
+    }
+  }
+
+  /**
+   * Exponential moving average of the load time.
+   */
+  private void recordRun(long _nanos) {
+    long _average = averageRunNanos;
+    if (_average == 0) {
+      averageRunNanos = _nanos;
+      return;
+    }
+    averageRunNanos = _average + (_nanos - _average) / TUNABLE.averageWeight;
+  }
+
+  /**
+   * Adjust the thread count if the interval is passed. Checks the interval with a volatile
+   * read first, so the lock is only taken when an adjustment is due.
+   */
+  private void adjustThreadCountEventually(long _now) {
+    long _interval = TimeUnit.MILLISECONDS.toNanos(TUNABLE.adjustIntervalMillis);
+    if (_now - lastAdjustNanos < _interval) {
+      return;
+    }
+    synchronized (this) {
+      long _elapsed = _now - lastAdjustNanos;
+      if (_elapsed < _interval) {
+        return;
+      }
+      long _submitted = submittedCount.get();
+      double _rate = (double) (_submitted - submittedCountAtLastAdjust) / _elapsed;
+      lastAdjustNanos = _now;
+      submittedCountAtLastAdjust = _submitted;
+      ThreadPoolExecutor ex = getThreadPoolExecutor();
+      int _threads = calculateThreadCount(_rate, averageRunNanos, ex.getQueue().size());
+      if (_threads != ex.getCorePoolSize()) {
+        ex.setCorePoolSize(_threads);
+      }
+    }
+  }
+
+  /**
+   * Needed concurrency according to Little's law plus the threads to drain the queue,
+   * bounded by the configured range.
+   *
+   * @param _ratePerNano submitted tasks per nanosecond
+   * @param _averageRunNanos average run time of a task
+   * @param _queueSize tasks waiting for a thread
+   */
+  int calculateThreadCount(double _ratePerNano, long _averageRunNanos, int _queueSize) {
+    long _threads = (long) Math.ceil(_ratePerNano * _averageRunNanos) + _queueSize;
+    return (int) Math.max(minThreads, Math.min(maxThreads, _threads));
+  }
+
+  public int getMinThreads() {
+    return minThreads;
+  }
+
+  public int getMaxThreads() {
+    return maxThreads;
+  }
+
+  /**
+   * Average load time in nanoseconds or 0 if nothing was run yet.
+   */
+  public long getAverageRunNanos() {
+    return averageRunNanos;
+  }
+
+  /**
+   * Number of tasks started, including tasks that did not wait.
+   */
+  public long getQueueWaitCount() {
+    return queueWaitCount.get();
+  }
+
+  /**
+   * Sum of the time tasks waited before they were started.
+   */
+  public long getQueueWaitNanos() {
+    return queueWaitNanos.get();
+  }
+
+  public long getQueueWaitNanosMax() {
+    return queueWaitNanosMax;
+  }
+
+  public static class Tunable extends TunableConstants {
+
+    /**
+     * Minimum time between two adjustments of the thread count.
+     */
+    public long adjustIntervalMillis = 100;
+
+    /**
+     * Weight of the previous average load time when a new time is recorded. The new
+     * time contributes {@code 1 / averageWeight}.
+     */
+    public int averageWeight = 8;
+
+    /**
+     * Capacity of the task queue as factor of the maximum thread count.
+     */
+    public int queueCapacityThreadFactor = 2;
+
+    /**
+     * Time until an idle thread terminates.
+     */
+    public int keepAliveSeconds = 21;
+
+  }
+
+}
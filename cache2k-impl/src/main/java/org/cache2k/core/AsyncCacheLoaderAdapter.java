@@ -0,0 +1,130 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.CacheEntry;
+import org.cache2k.integration.AdvancedCacheLoader;
+import org.cache2k.integration.AsyncCacheLoader;
+import org.cache2k.integration.CacheLoaderException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Provides the synchronous loader interface for an {@link AsyncCacheLoader}. The
+ * calling thread waits until the asynchronous load completes. Used for all cache
+ * operations, which are not asynchronous.
+ *
+ * @author Jens Wilke
+ */
+public class AsyncCacheLoaderAdapter<K,V> extends AdvancedCacheLoader<K,V> {
+
+  private final HeapCache<K,V> cache;
+  private final AsyncCacheLoader<K,V> asyncLoader;
+
+  public AsyncCacheLoaderAdapter(final HeapCache<K, V> _cache, final AsyncCacheLoader<K, V> _asyncLoader) {
+    cache = _cache;
+    asyncLoader = _asyncLoader;
+  }
+
+  public AsyncCacheLoader<K, V> getAsyncLoader() {
+    return asyncLoader;
+  }
+
+  @Override
+  public V load(final K key, final long currentTime, final CacheEntry<K, V> currentEntry) throws Exception {
+    Callback<V> _callback = new Callback<V>();
+    asyncLoader.load(key, currentTime, currentEntry, _callback, cache.loaderExecutor);
+    return _callback.await();
+  }
+
+  /**
+   * Enforces that the load completes exactly once. Only the first call of
+   * {@link #onLoadSuccess(Object)} or {@link #onLoadFailure(Throwable)} is used, later
+   * calls are ignored. If the waiting thread is interrupted, the load fails and a
+   * callback arriving afterwards is ignored as well.
+   */
+  static class Callback<V> implements AsyncCacheLoader.Callback<V> {
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private volatile V value;
+    private volatile Throwable exception;
+
+    @Override
+    public void onLoadSuccess(final V v) {
+      if (!completed.compareAndSet(false, true)) {
+        return;
+      }
+      value = v;
+      done.countDown();
+    }
+
+    @Override
+    public void onLoadFailure(final Throwable t) {
+      if (!completed.compareAndSet(false, true)) {
+        return;
+      }
+      exception = t;
+      done.countDown();
+    }
+
+    /**
+     * Wait for the callback. Does not use the object monitor, so a load in a virtual
+     * thread does not pin its carrier thread.
+     *
+     * @throws CacheLoaderException if the thread is interrupted before the load completes.
+     *         The interrupt flag stays set.
+     */
+    V await() throws Exception {
+      boolean _interrupt = false;
+      for (;;) {
+        try {
+          done.await();
+          break;
+        } catch (InterruptedException ex) {
+          _interrupt = true;
+          if (completed.compareAndSet(false, true)) {
+            Thread.currentThread().interrupt();
+            throw new CacheLoaderException("Interrupted while waiting for the asynchronous load", ex);
+          }
+          // a callback is just completing the load, wait for it
+        }
+      }
+      if (_interrupt) {
+        Thread.currentThread().interrupt();
+      }
+      if (exception instanceof Exception) {
+        throw (Exception) exception;
+      }
+      if (exception instanceof Error) {
+        throw (Error) exception;
+      }
+      if (exception != null) {
+        throw new CacheLoaderException(exception);
+      }
+      return value;
+    }
+
+  }
+
+}
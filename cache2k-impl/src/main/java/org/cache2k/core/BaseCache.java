@@ -22,19 +22,25 @@ package org.cache2k.core;
 
 import org.cache2k.CacheEntry;
 import org.cache2k.CacheException;
+import org.cache2k.CacheOperationCompletionListener;
 import org.cache2k.CustomizationException;
 import org.cache2k.configuration.CustomizationSupplier;
 import org.cache2k.processor.EntryProcessingException;
 import org.cache2k.processor.EntryProcessor;
 import org.cache2k.processor.EntryProcessingResult;
+import org.cache2k.core.operation.Operations;
 import org.cache2k.core.operation.Semantic;
 import org.cache2k.core.storageApi.StorageAdapter;
 
 import java.io.Closeable;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Some default implementations for a cache.
@@ -178,6 +184,94 @@ public abstract class BaseCache<K, V> implements InternalCache<K, V> {
     return execute(key, null, op);
   }
 
+  /**
+   * Start the operation and call back when the entry action is ready. When a load
+   * is needed the completion happens in the thread that completes the load.
+   */
+  protected <R> void executeAsync(K key, Semantic<K, V, R> op, EntryAction.CompletedCallback<K, V, R> cb) {
+    EntryAction<K, V, R> _action = createEntryAction(key, null, op);
+    _action.completedCallback = cb;
+    op.start(_action);
+  }
+
+  protected abstract V returnValue(V v);
+
+  @Override
+  public Future<V> getAsync(final K key, final CacheOperationCompletionListener _listener) {
+    if (key == null) {
+      throw new NullPointerException();
+    }
+    final OperationFuture<V> _future = new OperationFuture<V>(_listener);
+    executeAsync(key, Operations.SINGLETON.get(key), new EntryAction.CompletedCallback<K, V, V>() {
+      @Override
+      public void entryActionCompleted(final EntryAction<K, V, V> ea) {
+        if (ea.exceptionToPropagate != null) {
+          _future.completeExceptionally(ea.exceptionToPropagate);
+          return;
+        }
+        V v;
+        try {
+          v = returnValue(ea.result);
+        } catch (RuntimeException ex) {
+          _future.completeExceptionally(ex);
+          return;
+        }
+        _future.complete(v);
+      }
+    });
+    return _future;
+  }
+
+  /**
+   * Start a get operation for each key and complete the future after the last
+   * operation is ready. Values or loader exceptions are converted when the map is accessed.
+   */
+  @Override
+  public Future<Map<K, V>> getAllAsync(final Iterable<? extends K> _inputKeys,
+                                      final CacheOperationCompletionListener _listener) {
+    Set<K> _keys = new HashSet<K>();
+    for (K k : _inputKeys) {
+      if (k == null) {
+        throw new NullPointerException();
+      }
+      _keys.add(k);
+    }
+    final OperationFuture<Map<K, V>> _future = new OperationFuture<Map<K, V>>(_listener);
+    final Map<K, V> _valueOrExceptionMap = new HashMap<K, V>();
+    final Map<K, V> _resultMap = new MapValueConverterProxy<K, V, V>(_valueOrExceptionMap) {
+      @Override
+      protected V convert(final V v) {
+        return returnValue(v);
+      }
+    };
+    if (_keys.isEmpty()) {
+      _future.complete(_resultMap);
+      return _future;
+    }
+    final AtomicInteger _countDown = new AtomicInteger(_keys.size());
+    EntryAction.CompletedCallback<K, V, V> cb = new EntryAction.CompletedCallback<K, V, V>() {
+      @Override
+      public void entryActionCompleted(final EntryAction<K, V, V> ea) {
+        if (ea.exceptionToPropagate != null) {
+          _future.completeExceptionally(ea.exceptionToPropagate);
+          return;
+        }
+        if (ea.result != null) {
+          synchronized (_valueOrExceptionMap) {
+            _valueOrExceptionMap.put(ea.key, ea.result);
+          }
+        }
+        if (_countDown.decrementAndGet() == 0) {
+          _future.complete(_resultMap);
+        }
+      }
+    };
+    for (K k : _keys) {
+      executeAsync(k, Operations.SINGLETON.get(k), cb);
+    }
+    return _future;
+  }
+
   @Override
   public StorageMetrics getStorageMetrics() {
     return StorageMetrics.DUMMY;
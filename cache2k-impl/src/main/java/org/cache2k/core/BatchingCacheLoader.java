@@ -0,0 +1,172 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.CacheEntry;
+import org.cache2k.integration.AdvancedCacheLoader;
+import org.cache2k.integration.CacheLoader;
+import org.cache2k.integration.CacheLoaderException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects single key loads that are requested within a time window and loads them
+ * with one call to {@link CacheLoader#loadAll}.
+ *
+ * <p>The first load starts a new batch and waits until the window is passed or the batch is
+ * full. Then it does the bulk load within its own thread and hands out the result to the other
+ * threads waiting for the batch. Keys missing in the result are loaded with the single load
+ * method by the waiting threads. If the bulk load fails, its exception is thrown by the load of
+ * every key in the batch, so it is handled per key like an exception of a single load.
+ *
+ * <p>Waiting is done with the concurrency utilities and not with object monitors, so loads
+ * running in virtual threads do not pin their carrier thread.
+ *
+ * @author Jens Wilke
+ */
+public class BatchingCacheLoader<K, V> extends AdvancedCacheLoader<K, V> {
+
+  private final HeapCache<K, V> cache;
+  private final CacheLoader<K, V> loader;
+  private final long windowMillis;
+  private final int maxBatchSize;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition batchFull = lock.newCondition();
+  private Batch<K, V> current;
+
+  /**
+   * @param _cache the cache, provides the loader executor
+   * @param _loader the loader, needs to implement {@link CacheLoader#loadAll}
+   * @param _windowMillis time to wait for more loads to join the batch
+   * @param _maxBatchSize maximum number of keys in one bulk load
+   */
+  public BatchingCacheLoader(HeapCache<K, V> _cache, CacheLoader<K, V> _loader,
+                             long _windowMillis, int _maxBatchSize) {
+    cache = _cache;
+    loader = _loader;
+    windowMillis = _windowMillis;
+    maxBatchSize = _maxBatchSize;
+  }
+
+  @Override
+  public V load(final K key, final long currentTime, final CacheEntry<K, V> currentEntry) throws Exception {
+    Batch<K, V> b;
+    boolean _leader;
+    lock.lock();
+    try {
+      b = current;
+      _leader = b == null;
+      if (_leader) {
+        b = current = new Batch<K, V>();
+      }
+      b.keys.add(key);
+      if (b.keys.size() >= maxBatchSize) {
+        current = null;
+        batchFull.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (_leader) {
+      awaitBatchComplete(b);
+      b.execute(loader, cache.loaderExecutor);
+    } else {
+      b.awaitResult();
+    }
+    Throwable _exception = b.exception;
+    if (_exception instanceof Exception) {
+      throw (Exception) _exception;
+    }
+    if (_exception instanceof Error) {
+      throw (Error) _exception;
+    }
+    if (_exception != null) {
+      throw new CacheLoaderException(_exception);
+    }
+    Map<K, V> _result = b.result;
+    if (_result != null && _result.containsKey(key)) {
+      return _result.get(key);
+    }
+    return loader.load(key);
+  }
+
+  /**
+   * Wait until the window is passed or the batch is full. Afterwards no more keys are
+   * added to the batch. If interrupted, the batch is executed immediately, since other
+   * threads are waiting for it. The window is measured with {@link System#nanoTime()},
+   * so it is not stretched or shortened by changes of the wall clock.
+   */
+  private void awaitBatchComplete(Batch<K, V> b) {
+    long _deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    lock.lock();
+    try {
+      long _wait;
+      try {
+        while (current == b && (_wait = _deadline - System.nanoTime()) > 0) {
+          batchFull.awaitNanos(_wait);
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      if (current == b) {
+        current = null;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  static class Batch<K, V> {
+
+    final List<K> keys = new ArrayList<K>();
+    final CountDownLatch done = new CountDownLatch(1);
+    volatile Map<K, V> result;
+    volatile Throwable exception;
+
+    /**
+     * Do the bulk load. The result or the exception is handed to all threads waiting
+     * for the batch.
+     */
+    void execute(CacheLoader<K, V> _loader, Executor _executor) {
+      try {
+        result = _loader.loadAll(keys, _executor);
+      } catch (Throwable t) {
+        exception = t;
+      } finally {
+        done.countDown();
+      }
+    }
+
+    void awaitResult() throws InterruptedException {
+      done.await();
+    }
+
+  }
+
+}
@@ -55,6 +55,12 @@ class CacheBaseInfo implements InternalCacheInfo {
   private long asyncLoadsStarted = 0;
   private long asyncLoadsInFlight = 0;
   private int loaderThreadsMaxActive = 0;
+  private long loaderQueueWaitMicrosAvg = 0;
+  private long loaderQueueWaitMicrosMax = 0;
+  private LatencyHistogram.Snapshot loadLatency;
+  private LatencyHistogram.Snapshot refreshLatency;
+  private LatencyHistogram.Snapshot writerLatency;
+  private LatencyHistogram.Snapshot evictionLatency;
 
   /*
    * Consistent copies from heap cache. for 32 bit machines the access
@@ -69,6 +75,8 @@ class CacheBaseInfo implements InternalCacheInfo {
   private long expiredRemoveCnt;
   private long evictedCnt;
   private long maxSize;
+  private long maxWeight;
+  private long totalWeight;
   private int evictionRunningCnt;
   private long internalExceptionCnt;
 
@@ -82,6 +90,8 @@ class CacheBaseInfo implements InternalCacheInfo {
     expiredRemoveCnt = em.getExpiredRemovedCount();
     evictedCnt = em.getEvictedCount();
     maxSize = em.getMaxSize();
+    maxWeight = em.getMaxWeight();
+    totalWeight = em.getTotalWeight();
     clearedTime = _heapCache.clearedTime;
     keyMutationCnt = _heapCache.keyMutationCnt;
     removedCnt = em.getRemovedCount();
@@ -109,6 +119,20 @@ class CacheBaseInfo implements InternalCacheInfo {
       loaderThreadsLimit = ex.getCorePoolSize();
       loaderThreadsMaxActive = ex.getLargestPoolSize();
     }
+    if (_heapCache.loaderExecutor instanceof AdaptiveLoaderExecutor) {
+      AdaptiveLoaderExecutor ex = (AdaptiveLoaderExecutor) _heapCache.loaderExecutor;
+      long _count = ex.getQueueWaitCount();
+      if (_count > 0) {
+        loaderQueueWaitMicrosAvg = ex.getQueueWaitNanos() / _count / 1000;
+      }
+      loaderQueueWaitMicrosMax = ex.getQueueWaitNanosMax() / 1000;
+    }
+    if (_heapCache.loadLatency != null) {
+      loadLatency = _heapCache.loadLatency.snapshot();
+      refreshLatency = _heapCache.refreshLatency.snapshot();
+      writerLatency = _heapCache.writerLatency.snapshot();
+      evictionLatency = _heapCache.evictionLatency.snapshot();
+    }
     totalLoadCnt = metrics.getLoadCount() + metrics.getReloadCount() + metrics.getRefreshCount();
   }
 
@@ -136,6 +160,10 @@ class CacheBaseInfo implements InternalCacheInfo {
   @Override
   public long getHeapCapacity() { return maxSize; }
   @Override
+  public long getMaximumWeight() { return maxWeight; }
+  @Override
+  public long getTotalWeight() { return totalWeight; }
+  @Override
   public long getStorageHitCnt() { return storageMetrics.getReadHitCount(); }
 
   @Override
@@ -220,6 +248,10 @@ class CacheBaseInfo implements InternalCacheInfo {
   @Override
   public int getHashLongestSlotSize() { return collisionInfo.longestCollisionSize; }
   @Override
+  public long getHashSegmentMinSize() { return collisionInfo.minSegmentSize; }
+  @Override
+  public long getHashSegmentMaxSize() { return collisionInfo.maxSegmentSize; }
+  @Override
   public String getIntegrityDescriptor() { return integrityState.getStateDescriptor(); }
   @Override
   public long getStartedTime() { return heapCache.startedTime; }
@@ -270,6 +302,48 @@ class CacheBaseInfo implements InternalCacheInfo {
     return loaderThreadsMaxActive;
   }
 
+  @Override
+  public long getLoaderQueueWaitMicrosAvg() {
+    return loaderQueueWaitMicrosAvg;
+  }
+
+  @Override
+  public long getLoaderQueueWaitMicrosMax() {
+    return loaderQueueWaitMicrosMax;
+  }
+
+  @Override
+  public LatencyHistogram.Snapshot getLoadLatency() {
+    return loadLatency;
+  }
+
+  @Override
+  public LatencyHistogram.Snapshot getRefreshLatency() {
+    return refreshLatency;
+  }
+
+  @Override
+  public LatencyHistogram.Snapshot getWriterLatency() {
+    return writerLatency;
+  }
+
+  @Override
+  public LatencyHistogram.Snapshot getEvictionLatency() {
+    return evictionLatency;
+  }
+
+  @Override
+  public String getLatencyPercentiles() {
+    if (loadLatency == null) {
+      return null;
+    }
+    return
+      "load(" + loadLatency + "), " +
+      "refresh(" + refreshLatency + "), " +
+      "writer(" + writerLatency + "), " +
+      "eviction(" + evictionLatency + ")";
+  }
+
   @Override
   public String getExtraStatistics() {
     return extraStatistics;
@@ -299,9 +373,14 @@ class CacheBaseInfo implements InternalCacheInfo {
       sb.append(cm.getName()).append(':');
     }
     sb.append(heapCache.name).append("}(");
-    sb.append("size=").append(getSize()).append(", ")
-      .append("capacity=").append(getHeapCapacity() != Long.MAX_VALUE ? getHeapCapacity() : "unlimited").append(", ")
-      .append("get=").append(getGetCount()).append(", ")
+    sb.append("size=").append(getSize()).append(", ");
+    if (getMaximumWeight() >= 0) {
+      sb.append("maximumWeight=").append(getMaximumWeight()).append(", ")
+        .append("totalWeight=").append(getTotalWeight()).append(", ");
+    } else {
+      sb.append("capacity=").append(getHeapCapacity() != Long.MAX_VALUE ? getHeapCapacity() : "unlimited").append(", ");
+    }
+    sb.append("get=").append(getGetCount()).append(", ")
       .append("miss=").append(getMissCount()).append(", ")
       .append("put=").append(getPutCount()).append(", ")
       .append("load=").append(getLoadCount()).append(", ")
@@ -325,8 +404,11 @@ class CacheBaseInfo implements InternalCacheInfo {
       .append("asyncLoadsStarted=").append(asyncLoadsStarted).append(", ")
       .append("asyncLoadsInFlight=").append(asyncLoadsInFlight).append(", ")
       .append("loaderThreadsLimit=").append(loaderThreadsLimit).append(", ")
-      .append("loaderThreadsMaxActive=").append(loaderThreadsMaxActive).append(", ")
-      .append("created=").append(timestampToString(getStartedTime())).append(", ")
+      .append("loaderThreadsMaxActive=").append(loaderThreadsMaxActive).append(", ");
+    if (loadLatency != null) {
+      sb.append("latency={").append(getLatencyPercentiles()).append("}, ");
+    }
+    sb.append("created=").append(timestampToString(getStartedTime())).append(", ")
       .append("cleared=").append(timestampToString(getClearedTime())).append(", ")
       .append("infoCreated=").append(timestampToString(getInfoCreatedTime())).append(", ")
       .append("infoCreationDeltaMs=").append(getInfoCreationDeltaMs()).append(", ")
@@ -335,6 +417,8 @@ class CacheBaseInfo implements InternalCacheInfo {
       .append("longestSlot=").append(getHashLongestSlotSize()).append(", ")
       .append("hashQuality=").append(getHashQuality()).append(", ")
       .append("noCollisionPercent=").append(getNoCollisionPercent()).append(", ")
+      .append("segmentMinSize=").append(getHashSegmentMinSize()).append(", ")
+      .append("segmentMaxSize=").append(getHashSegmentMaxSize()).append(", ")
       .append("impl=").append(getImplementation()).append(", ")
       .append(getExtraStatistics()).append(", ")
       .append("evictionRunning=").append(getEvictionRunningCount()).append(", ")
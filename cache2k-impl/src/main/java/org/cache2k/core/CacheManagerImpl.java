@@ -28,6 +28,7 @@ import org.cache2k.configuration.Cache2kConfiguration;
 import org.cache2k.core.spi.CacheLifeCycleListener;
 import org.cache2k.core.spi.CacheManagerLifeCycleListener;
 import org.cache2k.core.util.Log;
+import org.cache2k.core.util.TunableFactory;
 import org.cache2k.spi.Cache2kCoreProvider;
 
 import java.lang.reflect.Array;
@@ -41,6 +42,8 @@ import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 /**
  * @author Jens Wilke
@@ -96,6 +99,7 @@ public class CacheManagerImpl extends CacheManager {
   private boolean defaultManager;
   private Cache2kCoreProviderImpl provider;
   private boolean closing;
+  private ScheduledExecutorService timerExecutor;
 
   public CacheManagerImpl(Cache2kCoreProviderImpl _provider, ClassLoader cl, String _name, boolean _default) {
     provider = _provider;
@@ -299,6 +303,9 @@ public class CacheManagerImpl extends CacheManager {
       for (Cache c : cacheNames.values()) {
         log.warn("unable to close cache: " + c.getName());
       }
+      if (timerExecutor != null) {
+        timerExecutor.shutdownNow();
+      }
     }
     eventuallyThrowException(_suppressedExceptions);
     cacheNames = null;
@@ -352,6 +359,21 @@ public class CacheManagerImpl extends CacheManager {
     return lock;
   }
 
+  /**
+   * Executor that drives the timer wheels of all caches of this manager. Created
+   * when needed and shut down when the manager is closed.
+   */
+  public ScheduledExecutorService getTimerExecutor() {
+    synchronized (lock) {
+      if (timerExecutor == null) {
+        timerExecutor = new ScheduledThreadPoolExecutor(
+          TunableFactory.get(TimingHandler.Tunable.class).timerThreadCount,
+          HeapCache.TUNABLE.threadFactoryProvider.newThreadFactory("cache2k-timer-" + name));
+      }
+      return timerExecutor;
+    }
+  }
+
   private void checkClosed() {
     if (closing) {
       throw new IllegalStateException("CacheManager already closed");
@@ -53,7 +53,7 @@ public class ClockEviction extends AbstractEviction {
   }
 
   @Override
-  public long removeAll() {
+  protected long removeAllFromReplacementList() {
     Entry e, _head;
     int _count = 0;
     e = _head = hand;
@@ -20,6 +20,7 @@ package org.cache2k.core;
  * #L%
  */
 
+import org.cache2k.Weigher;
 import org.cache2k.core.util.TunableConstants;
 import org.cache2k.core.util.TunableFactory;
 
@@ -60,6 +61,21 @@ public class ClockProPlusEviction extends AbstractEviction {
   private Ghost ghostHead = new Ghost().shortCircuit();
   private int ghostSize = 0;
   private static final int GHOST_LOAD_PERCENT = 63;
+  /** With admission filter, minimum frequency of a key with a ghost to go into the hot clock */
+  private static final int GHOST_HIT_MIN_FREQUENCY = 3;
+
+  private FrequencySketch sketch;
+  /**
+   * Admission candidate: the entry inserted by the latest insert into the cold clock. Reset
+   * when removed or after the admission decision was made for it.
+   */
+  private Entry newestCold;
+  /**
+   * Admission candidate of the insert before. Used if the newest entry is not loaded yet,
+   * which is the case if the eviction is triggered by its own insert.
+   */
+  private Entry previousCold;
+  private long admissionRejectCnt;
 
   public ClockProPlusEviction(final HeapCache _heapCache, final HeapCacheListener _listener, final long _maxSize) {
     super(_heapCache, _listener, _maxSize);
@@ -70,6 +86,58 @@ public class ClockProPlusEviction extends AbstractEviction {
     handCold = null;
     handHot = null;
     ghosts = new Ghost[4];
+    if (TUNABLE_CLOCK_PRO.admissionFilter && maxSize < Long.MAX_VALUE) {
+      enableAdmissionFilter();
+    }
+  }
+
+  /**
+   * Use a TinyLFU frequency sketch to decide whether a new entry may displace the eviction
+   * victim. Not supported when limited by the weight, since the entry count is not known.
+   * The sketch counts inserts and hits. Hits are recorded via the read buffer and
+   * added to the sketch when the buffer is drained within the eviction lock.
+   *
+   * @see Tunable#admissionFilter
+   */
+  void enableAdmissionFilter() {
+    final FrequencySketch _sketch = new FrequencySketch(maxSize);
+    sketch = _sketch;
+    enableReadBuffer(new ReadBuffer.AccessRecorder() {
+      @Override
+      public void recordAccess(final Entry e) {
+        _sketch.increment(e.hashCode);
+      }
+    });
+  }
+
+  FrequencySketch getSketch() {
+    return sketch;
+  }
+
+  long getAdmissionRejectCount() {
+    return admissionRejectCnt;
+  }
+
+  /**
+   * Eviction limited by the total weight. The entry count limit is not known, so the
+   * hot clock and the ghosts are sized relative to the current entry count.
+   */
+  public ClockProPlusEviction(final HeapCache _heapCache, final HeapCacheListener _listener,
+                              final Weigher _weigher, final long _maxWeight) {
+    super(_heapCache, _listener, Long.MAX_VALUE, _weigher, _maxWeight);
+    ghostMax = 1;
+    hotMax = 0;
+    coldSize = 0;
+    hotSize = 0;
+    handCold = null;
+    handHot = null;
+    ghosts = new Ghost[4];
+  }
+
+  private void adjustToSize() {
+    long _size = getSize();
+    ghostMax = _size / 2 + 1;
+    hotMax = _size * TUNABLE_CLOCK_PRO.hotMaxPercentage / 100;
   }
 
   private long sumUpListHits(Entry e) {
@@ -89,7 +157,7 @@ public class ClockProPlusEviction extends AbstractEviction {
   }
 
   @Override
-  public long removeAll() {
+  protected long removeAllFromReplacementList() {
     Entry e, _head;
     int _count = 0;
     e = _head = handCold;
@@ -106,6 +174,7 @@ public class ClockProPlusEviction extends AbstractEviction {
     }
     handCold = null;
     coldSize = 0;
+    newestCold = previousCold = null;
     e = _head = handHot;
     if (e != null) {
       _hits = 0;
@@ -144,6 +213,11 @@ public class ClockProPlusEviction extends AbstractEviction {
    */
   @Override
   protected void removeFromReplacementList(Entry e) {
+    if (e == newestCold) {
+      newestCold = null;
+    } else if (e == previousCold) {
+      previousCold = null;
+    }
     if (e.isHot()) {
       hotHits += e.hitCnt;
       handHot = Entry.removeFromCyclicList(handHot, e);
@@ -181,10 +255,20 @@ public class ClockProPlusEviction extends AbstractEviction {
     return hotSize + coldSize;
   }
 
+  /**
+   * Insert a new entry into the cold clock, or into the hot clock if we have seen the key
+   * recently. With the admission filter, a ghost hit only goes into the hot clock if the key
+   * was seen frequently, so keys of a repeated scan do not displace hot entries.
+   */
   @Override
   protected void insertIntoReplacementList(Entry e) {
+    boolean _frequent = true;
+    if (sketch != null) {
+      sketch.increment(e.hashCode);
+      _frequent = sketch.frequency(e.hashCode) >= GHOST_HIT_MIN_FREQUENCY;
+    }
     Ghost g = lookupGhost(e.hashCode);
-    if (g != null) {
+    if (g != null && _frequent) {
       /*
        * don't remove ghosts here, save object allocations.
        * removeGhost(g, g.hash);  Ghost.removeFromList(g);
@@ -197,6 +281,8 @@ public class ClockProPlusEviction extends AbstractEviction {
     }
     coldSize++;
     handCold = Entry.insertIntoTailCyclicList(handCold, e);
+    previousCold = newestCold;
+    newestCold = e;
   }
 
   private Entry runHandHot() {
@@ -239,6 +325,9 @@ public class ClockProPlusEviction extends AbstractEviction {
    */
   @Override
   protected Entry findEvictionCandidate(Entry _previous) {
+    if (maxWeight >= 0) {
+      adjustToSize();
+    }
     coldRunCnt++;
     Entry _hand = handCold;
     int _scanCnt = 1;
@@ -265,9 +354,43 @@ public class ClockProPlusEviction extends AbstractEviction {
     }
     coldScanCnt += _scanCnt;
     handCold = _hand.next;
+    if (sketch != null) {
+      return admit(_hand);
+    }
     return _hand;
   }
 
+  /**
+   * TinyLFU admission. The victim is the entry selected by the clock hands. The admission
+   * candidate is the most recently inserted entry, see {@link #newestCold}. If the candidate
+   * had no hit in the cache and its key was seen less frequently than the key of the victim,
+   * the candidate is evicted instead and the victim stays. This protects frequently used
+   * entries from being displaced by one hit wonders, e.g. from a scan.
+   *
+   * <p>The entry just inserted has no value yet, since the eviction runs before the load
+   * or put, and cannot be evicted. In this case the decision is made for the entry
+   * inserted before. A decision is made only once per candidate. A candidate that the clock
+   * hand already selected for the current eviction chunk is skipped, so it is not evicted twice.
+   */
+  private Entry admit(final Entry _victim) {
+    Entry _candidate = newestCold;
+    if (_candidate != null && _candidate.isVirgin()) {
+      _candidate = previousCold;
+      previousCold = null;
+    } else {
+      newestCold = null;
+    }
+    if (_candidate == null || _candidate == _victim || _candidate.hitCnt > 0 || _candidate.isHot() ||
+      _candidate.isVirgin() || _candidate.isProcessing() || isInFillingChunk(_candidate)) {
+      return _victim;
+    }
+    if (sketch.frequency(_candidate.hashCode) < sketch.frequency(_victim.hashCode)) {
+      admissionRejectCnt++;
+      return _candidate;
+    }
+    return _victim;
+  }
+
   private Entry refillFromHot(Entry _hand) {
     while (hotSize > hotMax || _hand == null) {
       Entry e = runHandHot();
@@ -303,7 +426,8 @@ public class ClockProPlusEviction extends AbstractEviction {
       ", coldRunCnt=" + coldRunCnt +// identical to the evictions anyways
       ", coldScanCnt=" + coldScanCnt +
       ", hotRunCnt=" + hotRunCnt +
-      ", hotScanCnt=" + hotScanCnt;
+      ", hotScanCnt=" + hotScanCnt +
+      (sketch != null ? ", admissionRejectCnt=" + admissionRejectCnt : "");
   }
 
   public static class Tunable extends TunableConstants {
@@ -312,6 +436,12 @@ public class ClockProPlusEviction extends AbstractEviction {
 
     int hitCounterDecreaseShift = 6;
 
+    /**
+     * Use a TinyLFU frequency sketch as admission filter. A new entry is evicted
+     * instead of the eviction candidate, if it was seen less frequently. Default: false.
+     */
+    public boolean admissionFilter = false;
+
   }
 
   private Ghost lookupGhost(int _hash) {
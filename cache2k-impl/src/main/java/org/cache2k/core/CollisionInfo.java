@@ -29,4 +29,6 @@ public class CollisionInfo {
   public int collisionCnt;
   public int collisionSlotCnt;
   public int longestCollisionSize;
+  public long minSegmentSize;
+  public long maxSegmentSize;
 }
@@ -20,19 +20,25 @@ package org.cache2k.core;
  * #L%
  */
 
-import org.cache2k.core.concurrency.Job;
-
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
  * Iterator over all cache entries.
  *
- * <p>Hash expansion: During the iteration a hash expansion may happen, which means every
- * entry is rehashed. In this case it is most likely that entries are missed.
- * If an expansion occurred, the iteration will restart from the beginning. To ensure that every
- * entry is only iterated once, the iterator has an internal bookkeeping, what was previously iterated.
+ * <p>The hash table is iterated segment by segment. Hash expansion or shrinking: The segment
+ * table may be resized during the iteration, which means every entry is rehashed. The slots
+ * are iterated in an order that is independent of the table size, see
+ * {@link Hash2#collectEntries(int, long, java.util.List)}. The iterator only keeps
+ * the position within the segment and the entries of the current slot, so each entry
+ * present during the whole iteration is returned exactly once without recording the
+ * returned keys.
+ *
+ * <p>Split: Since positions are stable, the remaining range can be split off to a separate
+ * iterator, see {@link #trySplit()}. This is the base for a parallel traversal, e.g. via a
+ * {@code Spliterator} on Java 8.
  *
  * <p>Clear: A clear operation stops current iterations.
  *
@@ -43,17 +49,68 @@ import java.util.NoSuchElementException;
 public class ConcurrentEntryIterator<K,V> implements Iterator<Entry<K,V>> {
 
   private HeapCache<K, V> cache;
-  private Entry<K, V> lastEntry = null;
   private Entry<K, V> nextEntry = null;
   private long clearCount;
   private Hash2<K,V> hash;
-  private Entry<K,V>[] hashArray;
-  private HashMap<K,K> seen = new HashMap<K, K>();
+  /**
+   * Position over all segments of the next slot to collect. The upper bits are the
+   * segment index, the lower 32 bits the position within the segment.
+   */
+  private long position;
+  /** Position to stop at, exclusive */
+  private long endPosition;
+  /** Entries of the current slot, usually none or one */
+  private List<Entry<K,V>> slotEntries = new ArrayList<Entry<K, V>>();
+  private int slotEntryIndex;
 
   public ConcurrentEntryIterator(HeapCache<K,V> _cache) {
+    this(_cache, _cache.hash.getClearOrCloseCount(), 0,
+      _cache.hash.getSegmentCount() * Hash2.END_POSITION);
+    if (hash.isClosed()) {
+      clearOutReferences();
+      throw new CacheClosedException();
+    }
+  }
+
+  private ConcurrentEntryIterator(HeapCache<K,V> _cache, long _clearCount,
+                                  long _position, long _endPosition) {
     cache = _cache;
     hash = cache.hash;
-    switchAndCheckAbort();
+    clearCount = _clearCount;
+    position = _position;
+    endPosition = _endPosition;
+  }
+
+  /**
+   * Split off the upper half of the remaining positions to a new iterator. The entries
+   * already collected stay with this iterator. Returns {@code null} if the iteration ended,
+   * or the remaining range is too small.
+   */
+  public ConcurrentEntryIterator<K,V> trySplit() {
+    if (hash == null) {
+      return null;
+    }
+    long _middle = position + (endPosition - position) / 2;
+    if (_middle <= position) {
+      return null;
+    }
+    ConcurrentEntryIterator<K,V> it =
+      new ConcurrentEntryIterator<K, V>(cache, clearCount, _middle, endPosition);
+    endPosition = _middle;
+    return it;
+  }
+
+  /**
+   * Estimated number of remaining entries, assuming the entries are evenly distributed
+   * over the positions.
+   */
+  public long estimateSize() {
+    if (hash == null) {
+      return 0;
+    }
+    double _fraction =
+      (double) (endPosition - position) / (hash.getSegmentCount() * Hash2.END_POSITION);
+    return slotEntries.size() - slotEntryIndex + (long) (hash.getSize() * _fraction);
   }
 
   @Override
@@ -80,118 +137,59 @@ public class ConcurrentEntryIterator<K,V> implements Iterator<Entry<K,V>> {
     throw new UnsupportedOperationException();
   }
 
-  /** Used by the storage code to filter out already iterated keys */
-  public boolean hasBeenIterated(K key, @SuppressWarnings("UnusedParameters") int _hashCode) {
-    return seen.containsKey(key);
-  }
-
-  /**
-   * Mark the key as returned by the iteration to suppress doubled iterations when we
-   * need to scan throw twice ore more, e.g. in case of a hash table expansion.
-   *
-   * @param key key object
-   * @param _hashCode corresponding modified hash, unused but we keep it if we want to switch to
-   *                  a more efficient hash table
-   */
-  public void markIterated(K key, @SuppressWarnings("UnusedParameters") int _hashCode) {
-    seen.put(key, key);
-  }
-
-  private Entry nextEntry() {
-    Entry e;
-    if (hashArray == null) {
+  private Entry<K,V> nextEntry() {
+    if (hash == null) {
       return null;
     }
     if (needsAbort()) {
-      if (hash != null && hash.isClosed()) {
+      if (hash.isClosed()) {
         clearOutReferences();
         throw new CacheClosedException();
       }
       clearOutReferences();
       return null;
     }
-    int idx = 0;
-    if (lastEntry != null) {
-      e = lastEntry.another;
-      if (e != null) {
-        e = checkIteratedOrNext(e);
-        if (e != null) {
-          lastEntry = e;
-          return e;
-        }
-      }
-      idx = (lastEntry.hashCode & (hashArray.length - 1) )+ 1;
-    }
     for (;;) {
-      if (idx >= hashArray.length) {
-        if (switchAndCheckAbort()) {
-          return null;
-        }
-        idx = 0;
+      if (slotEntryIndex < slotEntries.size()) {
+        return slotEntries.get(slotEntryIndex++);
       }
-      e = hashArray[idx];
-      if (e != null) {
-        e = checkIteratedOrNext(e);
-        if (e != null) {
-          lastEntry = e;
-          return e;
-        }
+      slotEntries.clear();
+      slotEntryIndex = 0;
+      if (position >= endPosition) {
+        clearOutReferences();
+        return null;
       }
-      idx++;
+      collectNextSlot();
     }
   }
 
-  private boolean needsAbort() {
-    return clearCount != hash.getClearOrCloseCount();
-  }
-
-  private Entry<K,V> checkIteratedOrNext(Entry<K,V> e) {
-    do {
-      boolean _notYetIterated = !seen.containsKey(e.key);
-      if (_notYetIterated) {
-        markIterated(e.key, e.hashCode);
-        return e;
-      }
-      e = e.another;
-    } while (e != null);
-    return null;
-  }
-
   /**
-   * Check for expansion and abort criteria.
-   *
-   * @return true, if iteration should abort
+   * Collect the entries of the next slot and drop the ones beyond the end position,
+   * which may be present, if the range was split within a slot.
    */
-  private boolean switchAndCheckAbort() {
-    if (Thread.holdsLock(cache.lock)) {
-      return switchCheckAndAbortLocked();
+  private void collectNextSlot() {
+    int _segmentIndex = (int) (position / Hash2.END_POSITION);
+    long _segmentStart = _segmentIndex * Hash2.END_POSITION;
+    long _next;
+    try {
+      _next = hash.collectEntries(_segmentIndex, position - _segmentStart, slotEntries);
+    } catch (CacheClosedException ex) {
+      clearOutReferences();
+      throw ex;
     }
-    return cache.executeWithGlobalLock(new Job<Boolean>() {
-      @Override
-      public Boolean call() {
-        return switchCheckAndAbortLocked();
+    long _end = endPosition - _segmentStart;
+    if (_end < _next) {
+      for (int i = slotEntries.size() - 1; i >= 0; i--) {
+        if (Hash2.position(slotEntries.get(i).hashCode) >= _end) {
+          slotEntries.remove(i);
+        }
       }
-    });
+    }
+    position = _segmentStart + _next;
   }
 
-  /**
-   * Check for expansion and abort criteria.
-   *
-   * @return true, if iteration should abort
-   */
-  private Boolean switchCheckAndAbortLocked() {
-    if (!hasExpansionOccurred()) {
-      clearOutReferences();
-      return true;
-    }
-    hashArray = hash.getEntries();
-    clearCount = hash.getClearOrCloseCount();
-    boolean _cacheClosed = hashArray == null;
-    if (_cacheClosed) {
-      clearOutReferences();
-      throw new CacheClosedException();
-    }
-    return false;
+  private boolean needsAbort() {
+    return clearCount != hash.getClearOrCloseCount();
   }
 
   /**
@@ -202,16 +200,7 @@ public class ConcurrentEntryIterator<K,V> implements Iterator<Entry<K,V>> {
   private void clearOutReferences() {
     cache = null;
     hash = null;
-    hashArray = null;
-    seen = null;
-  }
-
-  /**
-   * True if hash table expanded while iterating. Triggers another
-   * scan over the hash tables. True also before first run.
-   */
-  private boolean hasExpansionOccurred() {
-    return hashArray != hash.getEntries();
+    slotEntries = null;
   }
 
 }
@@ -22,15 +22,16 @@ package org.cache2k.core;
 
 import org.cache2k.CacheEntry;
 import org.cache2k.core.util.InternalClock;
-import org.cache2k.core.util.SimpleTask;
 import org.cache2k.expiry.ExpiryPolicy;
 import org.cache2k.core.operation.ExaminationEntry;
 import org.cache2k.core.storageApi.StorageEntry;
 import org.cache2k.integration.ExceptionInformation;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.cache2k.core.util.Util.*;
 
-import java.lang.reflect.Field;
 
 /**
  * Separate with relevant fields for read access only for optimizing the object layout.
@@ -176,11 +177,17 @@ public class Entry<K, T> extends CompactEntry<K,T>
   static final int GONE_OTHER = 15;
 
   /**
-   * Usually this contains the reference to the timer task. In some cases, like when exceptions
-   * happen we will link to the PiggyBack object to add more information as needed.
+   * Additional information, in case exceptions happen or the entry is in refresh probation.
+   * Links to the PiggyBack objects, if needed.
    */
   private Object misc;
 
+  /**
+   * Timer wheel: timer state, allocated when the first timer is scheduled,
+   * guarded by the timer wheel
+   */
+  TimerWheel.Node timerNode;
+
   /**
    * Time the entry was last updated by put or by fetching it from the cache source.
    * The time is the time in millis times 2. A set bit 1 means the entry is fetched from
@@ -197,6 +204,13 @@ public class Entry<K, T> extends CompactEntry<K,T>
   /** Marker for Clock-PRO clock */
   private boolean hot;
 
+  /**
+   * Weight of the entry, if a weigher is present. Modified by the eviction within the eviction lock.
+   *
+   * @see AbstractEviction#updateWeight(Entry)
+   */
+  private int weight;
+
   public Entry(final K _key, final int _hashCode) {
     super(_key, _hashCode);
   }
@@ -333,11 +347,68 @@ public class Entry<K, T> extends CompactEntry<K,T>
 
   /**
    * Set processing state to done and notify all that wait for
-   * processing this entry.
+   * processing this entry. Callbacks registered via {@link #addProcessingDoneCallback(Runnable)}
+   * are detached from the entry and returned. The caller needs to run them with
+   * {@link #runProcessingDoneCallbacks(List)} after the entry lock is released.
+   *
+   * @return the callbacks to run or {@code null}
    */
-  public void processingDone() {
+  public List<Runnable> processingDone() {
     notifyAll();
     setProcessingState(ProcessingState.DONE);
+    if (misc != null) {
+      return detachProcessingDoneCallbacks();
+    }
+    return null;
+  }
+
+  /**
+   * Register a callback instead of waiting for the processing to finish. Called while
+   * holding the entry lock and the entry is processing. The callback is run after
+   * the processing is done and the entry lock is released.
+   */
+  public void addProcessingDoneCallback(Runnable r) {
+    ProcessingDoneCallbacksPiggyBack pb = getPiggyBack(ProcessingDoneCallbacksPiggyBack.class);
+    if (pb == null) {
+      pb = new ProcessingDoneCallbacksPiggyBack(existingPiggyBackForInserting());
+      misc = pb;
+    }
+    pb.callbacks.add(r);
+  }
+
+  /**
+   * Remove the callbacks from the piggy back chain, so they do not stay attached to the
+   * entry after processing. Assumes entry lock.
+   */
+  private List<Runnable> detachProcessingDoneCallbacks() {
+    PiggyBack _previous = null;
+    PiggyBack pb = existingPiggyBackForInserting();
+    while (pb != null) {
+      if (pb.getClass() == ProcessingDoneCallbacksPiggyBack.class) {
+        if (_previous == null) {
+          misc = pb.next;
+        } else {
+          _previous.next = pb.next;
+        }
+        return ((ProcessingDoneCallbacksPiggyBack) pb).callbacks;
+      }
+      _previous = pb;
+      pb = pb.next;
+    }
+    return null;
+  }
+
+  /**
+   * Run the callbacks returned by {@link #processingDone()}. Must be called without
+   * holding the entry lock.
+   */
+  public static void runProcessingDoneCallbacks(List<Runnable> _callbacks) {
+    if (_callbacks == null) {
+      return;
+    }
+    for (Runnable r : _callbacks) {
+      r.run();
+    }
   }
 
   public long getNextRefreshTime() {
@@ -359,14 +430,16 @@ public class Entry<K, T> extends CompactEntry<K,T>
     if (_finished) {
       return;
     }
+    List<Runnable> _callbacks = null;
     synchronized (this) {
       if (isVirgin()) {
         nextRefreshTime = ABORTED;
       }
       if (isProcessing()) {
-        processingDone();
+        _callbacks = processingDone();
       }
     }
+    runProcessingDoneCallbacks(_callbacks);
   }
 
   public boolean isProcessing() {
@@ -510,6 +583,24 @@ public class Entry<K, T> extends CompactEntry<K,T>
     hot = f;
   }
 
+  public int getWeight() { return weight; }
+
+  public void setWeight(int w) {
+    weight = w;
+  }
+
+  /** Scheduled timer action or 0, if no timer is active. Needs the timer wheel lock or the entry lock. */
+  byte getTimerAction() {
+    TimerWheel.Node n = timerNode;
+    return n != null ? n.action : 0;
+  }
+
+  /** Point in time of the last scheduled timer or 0, if never scheduled. */
+  long getTimerTime() {
+    TimerWheel.Node n = timerNode;
+    return n != null ? n.time : 0;
+  }
+
 
   @Override
   public K getKey() {
@@ -585,17 +676,9 @@ public class Entry<K, T> extends CompactEntry<K,T>
       sb.append(", state=").append(nrt);
     }
     if (Thread.holdsLock(this)) {
-      if (getTask() != null) {
-        String _timerState = "<unavailable>";
-        try {
-          Field f = SimpleTask.class.getDeclaredField("state");
-          f.setAccessible(true);
-          int _state = f.getInt(getTask());
-          _timerState = String.valueOf(_state);
-        } catch (Exception x) {
-          _timerState = x.toString();
-        }
-        sb.append(", timerState=").append(_timerState);
+      if (getTimerAction() != 0) {
+        sb.append(", timerAction=").append(getTimerAction());
+        sb.append(", timerTime=").append(formatMillis(getTimerTime()));
       }
     } else {
       sb.append(", timerState=skipped/notLocked");
@@ -611,17 +694,6 @@ public class Entry<K, T> extends CompactEntry<K,T>
     return toString(null);
   }
 
-  public SimpleTask getTask() {
-    if (misc instanceof SimpleTask) {
-      return (SimpleTask) misc;
-    }
-    TaskPiggyBack pb = getPiggyBack(TaskPiggyBack.class);
-    if (pb != null) {
-      return pb.task;
-    }
-    return null;
-  }
-
   public <X> X getPiggyBack(Class<X> _class) {
     Object obj = misc;
     if (!(obj instanceof PiggyBack)) {
@@ -637,29 +709,8 @@ public class Entry<K, T> extends CompactEntry<K,T>
     return null;
   }
 
-  public void setTask(SimpleTask v) {
-    if (misc == null || misc instanceof SimpleTask) {
-      misc = v;
-      return;
-    }
-    TaskPiggyBack pb = getPiggyBack(TaskPiggyBack.class);
-    if (pb != null) {
-      pb.task = v;
-      return;
-    }
-    misc = new TaskPiggyBack(v, (PiggyBack) misc);
-  }
-
-  /**
-   * We want to add a new piggy back. Check for timer task and convert it to
-   * piggy back.
-   */
   private PiggyBack existingPiggyBackForInserting() {
-    Object _misc = misc;
-    if (_misc instanceof SimpleTask) {
-      return new TaskPiggyBack((SimpleTask) _misc, null);
-    }
-    return (PiggyBack) _misc;
+    return (PiggyBack) misc;
   }
 
   public void setSuppressedLoadExceptionInformation(ExceptionInformation w) {
@@ -701,22 +752,13 @@ public class Entry<K, T> extends CompactEntry<K,T>
   }
 
   static class PiggyBack {
-    final PiggyBack next;
+    PiggyBack next;
 
     public PiggyBack(final PiggyBack _next) {
       next = _next;
     }
   }
 
-  static class TaskPiggyBack extends PiggyBack {
-    SimpleTask task;
-
-    public TaskPiggyBack(final SimpleTask _task, final PiggyBack _next) {
-      super(_next);
-      task = _task;
-    }
-  }
-
   static class LoadExceptionPiggyBack extends PiggyBack {
     ExceptionInformation info;
 
@@ -735,6 +777,14 @@ public class Entry<K, T> extends CompactEntry<K,T>
     }
   }
 
+  static class ProcessingDoneCallbacksPiggyBack extends PiggyBack {
+    final List<Runnable> callbacks = new ArrayList<Runnable>();
+
+    public ProcessingDoneCallbacksPiggyBack(final PiggyBack _next) {
+      super(_next);
+    }
+  }
+
   /*
    * **************************************** LRU list operation *******************************************
    */
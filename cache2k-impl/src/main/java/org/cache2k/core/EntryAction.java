@@ -27,13 +27,13 @@ import org.cache2k.expiry.ExpiryPolicy;
 import org.cache2k.event.CacheEntryExpiredListener;
 import org.cache2k.expiry.ExpiryTimeValues;
 import org.cache2k.integration.AdvancedCacheLoader;
+import org.cache2k.integration.AsyncCacheLoader;
 import org.cache2k.event.CacheEntryCreatedListener;
 import org.cache2k.event.CacheEntryRemovedListener;
 import org.cache2k.event.CacheEntryUpdatedListener;
 import org.cache2k.integration.CacheWriter;
 import org.cache2k.integration.CacheWriterException;
 import org.cache2k.CustomizationException;
-import org.cache2k.core.experimentalApi.AsyncCacheLoader;
 import org.cache2k.core.experimentalApi.AsyncCacheWriter;
 import org.cache2k.core.operation.ExaminationEntry;
 import org.cache2k.core.operation.Progress;
@@ -43,6 +43,10 @@ import org.cache2k.core.storageApi.StorageAdapter;
 import org.cache2k.core.storageApi.StorageEntry;
 import org.cache2k.integration.ExceptionInformation;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * This is a method object to perform an operation on an entry.
  *
@@ -66,6 +70,7 @@ public abstract class EntryAction<K, V, R> implements
   long lastModificationTime;
   long loadStartedTime;
   long loadCompletedTime;
+  long loadStartedNanos;
   RuntimeException exceptionToPropagate;
   boolean remove;
   /** Special case of remove, expiry is in the past */
@@ -106,6 +111,24 @@ public abstract class EntryAction<K, V, R> implements
 
   boolean suppressException = false;
 
+  /**
+   * Called when the action is ready. If set, the load is done asynchronously and
+   * the action may complete in a different thread.
+   */
+  CompletedCallback<K, V, R> completedCallback;
+
+  /**
+   * The asynchronous operation found the entry processed by another operation and
+   * is started again after the processing is done, see {@link #suspendUntilProcessingDone}.
+   */
+  boolean suspended = false;
+
+  /**
+   * Set by the first call of {@link #onLoadSuccess} or {@link #onLoadFailure}. The loader
+   * must complete exactly once, further calls are ignored.
+   */
+  private final AtomicBoolean loadCallbackDone = new AtomicBoolean();
+
   public EntryAction(HeapCache<K,V> _heapCache, InternalCache<K,V> _userCache, Semantic<K, V, R> op, K k, Entry<K, V> e) {
     heapCache = _heapCache;
     userCache = _userCache;
@@ -125,6 +148,20 @@ public abstract class EntryAction<K, V, R> implements
     return heapCache.loader;
   }
 
+  /**
+   * Provide the asynchronous cache loader, if present.
+   */
+  protected AsyncCacheLoader<K, V> asyncLoader() {
+    return heapCache.asyncLoader;
+  }
+
+  /**
+   * Executor for asynchronous loads.
+   */
+  protected Executor executor() {
+    return heapCache.getLoaderExecutor();
+  }
+
   /**
    * Provide the standard metrics for updating.
    */
@@ -232,6 +269,7 @@ public abstract class EntryAction<K, V, R> implements
       long now = millis();
       V v = (V) se.getValueOrException();
       e.setValueOrException(v);
+      heapCache.eviction.updateWeight(e);
       long _nextRefreshTime;
       long _expiryTimeFromStorage = se.getValueExpiryTime();
       boolean _expired = _expiryTimeFromStorage != 0 && _expiryTimeFromStorage <= now;
@@ -285,6 +323,9 @@ public abstract class EntryAction<K, V, R> implements
   public void wantMutation() {
     if (!entryLocked && wantData) {
       lockFor(Entry.ProcessingState.MUTATE);
+      if (suspended) {
+        return;
+      }
       countMiss = false;
       operation.examine(this, entry);
       if (needsFinish) {
@@ -324,6 +365,9 @@ public abstract class EntryAction<K, V, R> implements
     }
     if (!entryLocked) {
       lockFor(Entry.ProcessingState.LOAD);
+      if (suspended) {
+        return;
+      }
     } else {
       entry.nextProcessingStep(Entry.ProcessingState.LOAD);
     }
@@ -331,6 +375,7 @@ public abstract class EntryAction<K, V, R> implements
     load = true;
     Entry<K, V> e = entry;
     long t0 = lastModificationTime = loadStartedTime = millis();
+    loadStartedNanos = heapCache.latencyStartNanos();
     if (e.getNextRefreshTime() == Entry.EXPIRED_REFRESHED) {
       long nrt = e.getRefreshProbationNextRefreshTime();
       if (nrt > t0) {
@@ -338,6 +383,10 @@ public abstract class EntryAction<K, V, R> implements
         return;
       }
     }
+    if (completedCallback != null) {
+      loadAsync(_loader, e, t0);
+      return;
+    }
     V v;
     try {
       if (e.isVirgin()) {
@@ -352,6 +401,42 @@ public abstract class EntryAction<K, V, R> implements
     onLoadSuccess(v);
   }
 
+  /**
+   * Start the load without blocking the calling thread. The processing continues
+   * when the loader calls {@link #onLoadSuccess} or {@link #onLoadFailure}. A
+   * synchronous loader is run via the loader executor.
+   */
+  private void loadAsync(final AdvancedCacheLoader<K, V> _loader, final Entry<K, V> e, final long t0) {
+    final CacheEntry<K, V> _currentEntry = e.isVirgin() ? null : e;
+    AsyncCacheLoader<K, V> _asyncLoader = asyncLoader();
+    if (_asyncLoader != null) {
+      try {
+        _asyncLoader.load(key, t0, _currentEntry, this, executor());
+      } catch (Throwable _ouch) {
+        onLoadFailure(_ouch);
+      }
+      return;
+    }
+    Runnable r = new Runnable() {
+      @Override
+      public void run() {
+        V v;
+        try {
+          v = _loader.load(key, t0, _currentEntry);
+        } catch (Throwable _ouch) {
+          onLoadFailure(_ouch);
+          return;
+        }
+        onLoadSuccess(v);
+      }
+    };
+    try {
+      executor().execute(r);
+    } catch (RuntimeException _ouch) {
+      mutationAbort(_ouch);
+    }
+  }
+
   public void reviveRefreshedEntry(long nrt) {
     metrics().refreshedHit();
     Entry<K, V> e = entry;
@@ -366,12 +451,17 @@ public abstract class EntryAction<K, V, R> implements
       entry.nextProcessingStep(ps);
       return;
     }
+    Executor _restartExecutor = completedCallback != null ? executor() : null;
     Entry<K, V> e = entry;
     if (e == NON_FRESH_DUMMY) {
       e = heapCache.lookupOrNewEntry(key);
     }
     for (; ; ) {
       synchronized (e) {
+        if (_restartExecutor != null && e.isProcessing()) {
+          suspendUntilProcessingDone(e, _restartExecutor);
+          return;
+        }
         e.waitForProcessing();
         if (!e.isGone()) {
           e.startProcessing(ps);
@@ -391,12 +481,17 @@ public abstract class EntryAction<K, V, R> implements
       entry.nextProcessingStep(ps);
       return;
     }
+    Executor _restartExecutor = completedCallback != null ? executor() : null;
     Entry<K, V> e = entry;
     if (e == NON_FRESH_DUMMY) {
       e = heapCache.lookupOrNewEntryNoHitRecord(key);
     }
     for (; ; ) {
       synchronized (e) {
+        if (_restartExecutor != null && e.isProcessing()) {
+          suspendUntilProcessingDone(e, _restartExecutor);
+          return;
+        }
         e.waitForProcessing();
         if (!e.isGone()) {
           e.startProcessing(ps);
@@ -411,8 +506,43 @@ public abstract class EntryAction<K, V, R> implements
     }
   }
 
+  /**
+   * The entry is processed by another operation. An asynchronous operation does not
+   * block the thread and wait, instead the operation is started again via the
+   * executor when the processing is done. Called while holding the entry lock.
+   */
+  private void suspendUntilProcessingDone(final Entry<K, V> e, final Executor _executor) {
+    suspended = true;
+    needsFinish = false;
+    final Runnable _restart = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          ((BaseCache<K, V>) userCache).executeAsync(key, operation, completedCallback);
+        } catch (RuntimeException ex) {
+          exceptionToPropagate = ex;
+          ready();
+        }
+      }
+    };
+    e.addProcessingDoneCallback(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          _executor.execute(_restart);
+        } catch (RuntimeException ex) {
+          exceptionToPropagate = ex;
+          ready();
+        }
+      }
+    });
+  }
+
   @Override
   public void onLoadSuccess(V value) {
+    if (!loadCallbackDone.compareAndSet(false, true)) {
+      return;
+    }
     newValueOrException = value;
     loadCompleted();
   }
@@ -420,6 +550,9 @@ public abstract class EntryAction<K, V, R> implements
   @SuppressWarnings("unchecked")
   @Override
   public void onLoadFailure(Throwable t) {
+    if (!loadCallbackDone.compareAndSet(false, true)) {
+      return;
+    }
     newValueOrException = (V) new ExceptionWrapper(key, t, loadStartedTime, entry);
     loadCompleted();
   }
@@ -428,6 +561,7 @@ public abstract class EntryAction<K, V, R> implements
     entry.nextProcessingStep(Entry.ProcessingState.LOAD_COMPLETE);
     loadCompletedTime = millis();
     long _delta = loadCompletedTime - loadStartedTime;
+    heapCache.recordLoadLatency(refresh, loadStartedNanos);
     if (refresh) {
       metrics().refresh(_delta);
     } else if (entry.isVirgin() || !storageRead) {
@@ -456,6 +590,9 @@ public abstract class EntryAction<K, V, R> implements
   @Override
   public void put(V value) {
     lockFor(Entry.ProcessingState.MUTATE);
+    if (suspended) {
+      return;
+    }
     needsFinish = false;
     newValueOrException = value;
     lastModificationTime = millis();
@@ -465,6 +602,9 @@ public abstract class EntryAction<K, V, R> implements
   @Override
   public void remove() {
     lockForNoHit(Entry.ProcessingState.MUTATE);
+    if (suspended) {
+      return;
+    }
     needsFinish = false;
     remove = true;
     lastModificationTime = millis();
@@ -474,6 +614,9 @@ public abstract class EntryAction<K, V, R> implements
   @Override
   public void expire(long t) {
     lockForNoHit(Entry.ProcessingState.MUTATE);
+    if (suspended) {
+      return;
+    }
     needsFinish = false;
     newValueOrException = entry.getValue();
     lastModificationTime = entry.getLastModification();
@@ -487,6 +630,9 @@ public abstract class EntryAction<K, V, R> implements
   @Override
   public void putAndSetExpiry(final V value, final long t) {
     lockFor(Entry.ProcessingState.MUTATE);
+    if (suspended) {
+      return;
+    }
     needsFinish = false;
     newValueOrException = value;
     lastModificationTime = millis();
@@ -656,14 +802,18 @@ public abstract class EntryAction<K, V, R> implements
       skipWritingNoWriter();
       return;
     }
+    long _startNanos;
     if (remove) {
+      _startNanos = heapCache.latencyStartNanos();
       try {
         entry.nextProcessingStep(Entry.ProcessingState.WRITE);
         _writer.delete(key);
       } catch (Throwable t) {
+        heapCache.recordWriterLatency(_startNanos);
         onWriteFailure(t);
         return;
       }
+      heapCache.recordWriterLatency(_startNanos);
       onWriteSuccess();
       return;
     }
@@ -672,12 +822,15 @@ public abstract class EntryAction<K, V, R> implements
       return;
     }
     entry.nextProcessingStep(Entry.ProcessingState.WRITE);
+    _startNanos = heapCache.latencyStartNanos();
     try {
       _writer.write(key, newValueOrException);
     } catch (Throwable t) {
+      heapCache.recordWriterLatency(_startNanos);
       onWriteFailure(t);
       return;
     }
+    heapCache.recordWriterLatency(_startNanos);
     onWriteSuccess();
   }
 
@@ -747,6 +900,7 @@ public abstract class EntryAction<K, V, R> implements
         oldValueOrException = entry.getValueOrException();
         previousModificationTime = entry.getLastModification();
         entry.setValueOrException(newValueOrException);
+        heapCache.eviction.updateWeight(entry);
       }
     }
     mutationMayStore();
@@ -828,18 +982,13 @@ public abstract class EntryAction<K, V, R> implements
         operation.loaded(this, entry);
       }
     }
+    List<Runnable> _callbacks;
     synchronized (entry) {
-      entry.processingDone();
+      _callbacks = entry.processingDone();
+      entryLocked = false;
       if (refresh) {
         heapCache.startRefreshProbationTimer(entry, expiry);
-        entryLocked = false;
-        updateMutationStatistics();
-        mutationDone();
-        return;
-      }
-      entryLocked = false;
-
-      if (remove) {
+      } else if (remove) {
         heapCache.removeEntry(entry);
       } else {
         entry.setNextRefreshTime(timing().stopStartTimer(expiry, entry));
@@ -849,6 +998,15 @@ public abstract class EntryAction<K, V, R> implements
         }
       }
     }
+    Entry.runProcessingDoneCallbacks(_callbacks);
+    if (refresh) {
+      updateMutationStatistics();
+      mutationDone();
+      return;
+    }
+    if (!remove) {
+      heapCache.evictEventuallyAfterUpdate(entry);
+    }
     updateMutationStatistics();
     mutationDone();
   }
@@ -885,21 +1043,25 @@ public abstract class EntryAction<K, V, R> implements
   public void examinationAbort(CustomizationException t) {
     exceptionToPropagate = t;
     if (entryLocked) {
+      List<Runnable> _callbacks;
       synchronized (entry) {
-        entry.processingDone();
+        _callbacks = entry.processingDone();
         entryLocked = false;
       }
+      Entry.runProcessingDoneCallbacks(_callbacks);
     }
     ready();
   }
 
   public void mutationAbort(RuntimeException t) {
     exceptionToPropagate = t;
+    List<Runnable> _callbacks;
     synchronized (entry) {
-      entry.processingDone();
+      _callbacks = entry.processingDone();
       entryLocked = false;
       needsFinish = false;
     }
+    Entry.runProcessingDoneCallbacks(_callbacks);
     ready();
   }
 
@@ -912,13 +1074,15 @@ public abstract class EntryAction<K, V, R> implements
 
   public void noMutationRequested() {
     if (entryLocked) {
+      List<Runnable> _callbacks;
       synchronized (entry) {
-        entry.processingDone();
+        _callbacks = entry.processingDone();
         if (entry.isVirgin()) {
           heapCache.removeEntry(entry);
         }
       }
       entryLocked = false;
+      Entry.runProcessingDoneCallbacks(_callbacks);
     }
     synchronized (heapCache.lock) {
       updateOnlyReadStatistics();
@@ -927,6 +1091,18 @@ public abstract class EntryAction<K, V, R> implements
   }
 
   public void ready() {
+    if (completedCallback != null) {
+      completedCallback.entryActionCompleted(this);
+    }
+  }
+
+  /**
+   * Notification that the entry action is ready, used for asynchronous operations.
+   */
+  public interface CompletedCallback<K, V, R> {
+
+    void entryActionCompleted(EntryAction<K, V, R> ea);
+
   }
 
   public static class StorageReadException extends CustomizationException {
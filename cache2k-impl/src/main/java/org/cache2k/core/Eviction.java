@@ -45,6 +45,29 @@ public interface Eviction {
    */
   boolean submitWithoutEviction(Entry e);
 
+  /**
+   * Submit a batch of entries, which are inserted into or removed from the hash table already,
+   * in one pass. Used by the batch expiry and the bulk operations.
+   * Like {@link #submitWithoutEviction(Entry)} no eviction is triggered.
+   *
+   * @param _entries array containing the entries
+   * @param _count number of entries in the array
+   */
+  void submitWithoutEviction(Entry[] _entries, int _count);
+
+  /**
+   * Entry was accessed. Increments the hit counter of the entry, used by the
+   * eviction algorithm.
+   */
+  void recordHit(Entry e);
+
+  /**
+   * The value of the entry was changed. Calculate the weight again and update the total
+   * weight of the eviction segment. No operation, if no weigher is present.
+   * Called while the entry is locked.
+   */
+  void updateWeight(Entry e);
+
   /**
    * Evict if needed, focused on the segment addressed by the hash code.
    * Called when eviction is might be needed after a new entry was inserted.
@@ -56,6 +79,12 @@ public interface Eviction {
    */
   void evictEventually();
 
+  /**
+   * Evict until the size or weight is within the limit again. Used after a bulk insert,
+   * which may exceed the limit by more than one eviction chunk.
+   */
+  void evictEventuallyAfterBulkInsert();
+
   /**
    * Remove all entries from the eviction data structure.
    *
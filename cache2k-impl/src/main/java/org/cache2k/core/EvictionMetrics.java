@@ -68,6 +68,12 @@ public interface EvictionMetrics {
   /** Size limit after eviction kicks in */
   long getMaxSize();
 
+  /** Sum of the entry weights in the eviction data structure, 0 if no weigher is present */
+  long getTotalWeight();
+
+  /** Weight limit after eviction kicks in, or -1 if no weigher is present */
+  long getMaxWeight();
+
   /** Fragment that the eviction wants to add to the {@link Cache#toString()} output. */
   String getExtraStatistics();
 
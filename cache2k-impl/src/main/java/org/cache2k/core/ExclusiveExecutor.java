@@ -45,6 +45,10 @@ public class ExclusiveExecutor implements Executor, Closeable {
         new ThreadPoolExecutor.AbortPolicy());
   }
 
+  protected ExclusiveExecutor(ThreadPoolExecutor _threadPoolExecutor) {
+    threadPoolExecutor = _threadPoolExecutor;
+  }
+
   @Override
   public void execute(final Runnable cmd) {
     threadPoolExecutor.execute(cmd);
@@ -0,0 +1,164 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+/**
+ * Compact frequency estimation for the TinyLFU admission filter. A count-min sketch with
+ * four 4-bit counters per key, packed into a long array, and a bloom filter as doorkeeper.
+ * The first occurrence of a key is only recorded in the doorkeeper, so keys seen once
+ * do not pollute the counters. After a sample period all counters are halved and the
+ * doorkeeper is cleared, so the frequencies adapt to changes in the workload.
+ *
+ * <p>The sketch needs about three bytes per entry of the capacity and records only the
+ * hash code, so no objects are allocated for the history of evicted keys. Not thread safe,
+ * used within the eviction lock.
+ *
+ * @author Jens Wilke
+ */
+public class FrequencySketch {
+
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAXIMUM_COUNTER = 15;
+  private static final int MAXIMUM_SLOTS = 1 << 26;
+  private static final int SAMPLE_FACTOR = 10;
+
+  private final long[] table;
+  private final int counterMask;
+  private final long[] doorkeeper;
+  private final int doorkeeperMask;
+  private final long sampleSize;
+  private long additions;
+  private long resetCount;
+
+  /**
+   * @param _capacity the maximum number of entries in the cache
+   */
+  public FrequencySketch(final long _capacity) {
+    int _slots = (int) Math.min(Math.max(_capacity, 16), MAXIMUM_SLOTS);
+    _slots = 1 << (32 - Integer.numberOfLeadingZeros(_slots - 1));
+    int _counters = _slots * 4;
+    table = new long[_counters >>> 4];
+    counterMask = _counters - 1;
+    int _bits = _slots * 8;
+    doorkeeper = new long[_bits >>> 6];
+    doorkeeperMask = _bits - 1;
+    sampleSize = _slots * (long) SAMPLE_FACTOR;
+  }
+
+  /**
+   * Record an occurrence of the key with the given hash code.
+   */
+  public void increment(final int _hash) {
+    if (++additions >= sampleSize) {
+      reset();
+    }
+    if (doorkeeperPut(_hash)) {
+      return;
+    }
+    for (int i = 0; i < 4; i++) {
+      int idx = indexOf(_hash, i);
+      int _shift = (idx & 15) << 2;
+      long _word = table[idx >>> 4];
+      if (((_word >>> _shift) & MAXIMUM_COUNTER) < MAXIMUM_COUNTER) {
+        table[idx >>> 4] = _word + (1L << _shift);
+      }
+    }
+  }
+
+  /**
+   * Estimated number of occurrences of the key since the last aging. The estimate
+   * may be higher than the true count because of hash collisions, but is never lower.
+   */
+  public int frequency(final int _hash) {
+    int _min = MAXIMUM_COUNTER;
+    for (int i = 0; i < 4; i++) {
+      int idx = indexOf(_hash, i);
+      int _count = (int) ((table[idx >>> 4] >>> ((idx & 15) << 2)) & MAXIMUM_COUNTER);
+      _min = Math.min(_min, _count);
+    }
+    if (doorkeeperContains(_hash)) {
+      _min++;
+    }
+    return _min;
+  }
+
+  /**
+   * Halve all counters and clear the doorkeeper.
+   */
+  void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    for (int i = 0; i < doorkeeper.length; i++) {
+      doorkeeper[i] = 0;
+    }
+    additions = additions >>> 1;
+    resetCount++;
+  }
+
+  public long getResetCount() {
+    return resetCount;
+  }
+
+  private int indexOf(final int _hash, final int i) {
+    long h = (_hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return (int) h & counterMask;
+  }
+
+  private int doorkeeperIndex(final int _hash, final int i) {
+    long h = (_hash + SEEDS[3 - i]) * SEEDS[i];
+    return (int) (h >>> 32) & doorkeeperMask;
+  }
+
+  /**
+   * Set the bits of the key in the doorkeeper.
+   *
+   * @return {@code true}, if the key was not present before
+   */
+  private boolean doorkeeperPut(final int _hash) {
+    boolean _added = false;
+    for (int i = 0; i < 2; i++) {
+      int idx = doorkeeperIndex(_hash, i);
+      long _bit = 1L << idx;
+      long _word = doorkeeper[idx >>> 6];
+      if ((_word & _bit) == 0) {
+        doorkeeper[idx >>> 6] = _word | _bit;
+        _added = true;
+      }
+    }
+    return _added;
+  }
+
+  private boolean doorkeeperContains(final int _hash) {
+    for (int i = 0; i < 2; i++) {
+      int idx = doorkeeperIndex(_hash, i);
+      if ((doorkeeper[idx >>> 6] & (1L << idx)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -24,25 +24,47 @@ import org.cache2k.core.concurrency.Job;
 import org.cache2k.core.concurrency.Locks;
 import org.cache2k.core.concurrency.OptimisticLock;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Simple concurrent hash table implementation using optimistic locking
  * for the segments locks.
  *
+ * <p>Each lock segment owns a separate entry table. The lower bits of the hash code select
+ * the segment, the following bits the slot within the segment table. When a segment
+ * reaches its fill limit only its table is doubled, holding only the lock of this segment.
+ * Operations on other segments proceed during the expansion. When entries are removed and
+ * the fill drops below {@link HeapCache.Tunable#hashShrinkPercent} the segment table is
+ * halved, but not below its initial size.
+ *
+ * <p>This is the chained variant, entries in the same slot are linked via
+ * {@link Entry#another}. The table layout can be exchanged by a subclass, the
+ * implementation in use is selected by {@link HeapCache.Tunable#hashImplementation}.
+ *
  * @author Jens Wilke
  * @see OptimisticLock
+ * @see OpenHash2
  */
 @SuppressWarnings({"ConstantConditions", "WeakerAccess"})
 public class Hash2<K,V> {
 
-  private static final int LOCK_SEGMENTS;
-  private static final int LOCK_MASK;
+  protected static final int LOCK_SEGMENTS;
+  protected static final int LOCK_MASK;
+  protected static final int LOCK_BITS;
+
+  /**
+   * Iteration position after the last slot of a segment table.
+   *
+   * @see #collectEntries(int, long, List)
+   */
+  public static final long END_POSITION = 1L << 32;
 
   static {
     int _ncpu = Runtime.getRuntime().availableProcessors();
     LOCK_SEGMENTS = 2 << (31 - Integer.numberOfLeadingZeros(_ncpu));
     LOCK_MASK = LOCK_SEGMENTS - 1;
+    LOCK_BITS = Integer.numberOfTrailingZeros(LOCK_SEGMENTS);
   }
 
   /**
@@ -52,15 +74,15 @@ public class Hash2<K,V> {
   private volatile boolean closed = false;
 
   /**
-   * Maximum size of one segment, after we expand.
+   * The entry table of each segment. Only modified when holding the segment lock.
    */
-  private long segmentMaxFill;
+  protected final Entry<K,V>[][] tables;
 
-  private Entry<K,V>[] entries;
-  private final OptimisticLock[] locks;
-  private final AtomicLong[] segmentSize;
+  protected final OptimisticLock[] locks;
+  protected final AtomicLong[] segmentSize;
 
   {
+    tables = new Entry[LOCK_SEGMENTS][];
     locks = new OptimisticLock[LOCK_SEGMENTS];
     for (int i = 0; i < LOCK_SEGMENTS; i++) {
       locks[i] = Locks.newOptimistic();
@@ -72,14 +94,38 @@ public class Hash2<K,V> {
     initArray();
   }
 
-  private void initArray() {
-    int len = Math.max(HeapCache.TUNABLE.initialHashSize, LOCK_SEGMENTS * 4);
-    entries = new Entry[len];
-    calcMaxFill();
+  protected void initArray() {
+    int len = initialSegmentLength();
+    for (int si = 0; si < LOCK_SEGMENTS; si++) {
+      allocateSegment(si, len);
+    }
+  }
+
+  private static int initialSegmentLength() {
+    return Math.max(HeapCache.TUNABLE.initialHashSize, LOCK_SEGMENTS * 4) / LOCK_SEGMENTS;
+  }
+
+  /**
+   * Replace the segment table with a new empty table. Assumes segment lock.
+   */
+  protected void allocateSegment(int si, int _length) {
+    tables[si] = new Entry[_length];
+  }
+
+  /**
+   * Maximum number of entries in a segment table of the given length, before the table
+   * gets expanded.
+   */
+  protected long maxFill(int _length) {
+    return (long) _length * HeapCache.TUNABLE.hashLoadPercent / 100;
   }
 
-  private void calcMaxFill() {
-    segmentMaxFill = entries.length * HeapCache.TUNABLE.hashLoadPercent / 100 / LOCK_SEGMENTS;
+  /**
+   * Number of entries in a segment table of the given length, below which the table
+   * gets shrunk.
+   */
+  protected long minFill(int _length) {
+    return (long) _length * HeapCache.TUNABLE.hashShrinkPercent / 100;
   }
 
   /**
@@ -90,7 +136,7 @@ public class Hash2<K,V> {
     int si = _hash & LOCK_MASK;
     OptimisticLock l = _locks[si];
     long _stamp = l.tryOptimisticRead();
-    Entry<K,V>[] tab = entries;
+    Entry<K,V>[] tab = tables[si];
     if (tab == null) {
       throw new CacheClosedException();
     }
@@ -98,7 +144,7 @@ public class Hash2<K,V> {
     Object ek;
     int n = tab.length;
     int _mask = n - 1;
-    int idx = _hash & (_mask);
+    int idx = (_hash >>> LOCK_BITS) & (_mask);
     e = tab[idx];
     while (e != null) {
       if (e.hashCode == _hash && ((ek = e.key) == key || (ek.equals(key)))) {
@@ -111,13 +157,13 @@ public class Hash2<K,V> {
     }
     _stamp = l.readLock();
     try {
-      tab = entries;
+      tab = tables[si];
       if (tab == null) {
         throw new CacheClosedException();
       }
       n = tab.length;
       _mask = n - 1;
-      idx = _hash & (_mask);
+      idx = (_hash >>> LOCK_BITS) & (_mask);
       e = tab[idx];
       while (e != null) {
         if (e.hashCode == _hash && ((ek = e.key) == key || (ek.equals(key)))) {
@@ -135,15 +181,19 @@ public class Hash2<K,V> {
 
   /**
    * Insert an entry. Checks if an entry already exists.
+   *
+   * @return the inserted entry or the entry already present. {@code null} if the
+   *         segment has no room left and {@link #checkExpand(int)} needs to be called
+   *         before the insert is retried. The chained hash table always has room.
    */
   public Entry<K,V> insertWithinLock(Entry<K,V> e, int _hash) {
     K key = e.key;
     int si = _hash & LOCK_MASK;
-    Entry f; Object ek; Entry<K,V>[] tab = entries;
+    Entry f; Object ek; Entry<K,V>[] tab = tables[si];
     if (tab == null) {
       throw new CacheClosedException();
     }
-    int n = tab.length, _mask = n - 1, idx = _hash & (_mask);
+    int n = tab.length, _mask = n - 1, idx = (_hash >>> LOCK_BITS) & (_mask);
     f = tab[idx];
     while (f != null) {
       if (f.hashCode == _hash && ((ek = f.key) == key || (ek.equals(key)))) {
@@ -159,8 +209,8 @@ public class Hash2<K,V> {
 
   /**
    * Checks whether expansion is needed and expand when {@link #insertWithinLock(Entry, int)} is used.
-   * No lock may be hold when calling this method, since the table must be locked completely using
-   * the proper lock order.
+   * No lock may be hold when calling this method, since the segment lock is acquired
+   * for the expansion.
    *
    * <p>Need for expansion is only checked by comparing whether the associated segment is
    * full. Should be called after insert after giving up the lock.
@@ -168,11 +218,24 @@ public class Hash2<K,V> {
   public void checkExpand(int _hash) {
     int si = _hash & LOCK_MASK;
     long _size = segmentSize[si].get();
-    if (_size > segmentMaxFill) {
+    Entry<K,V>[] tab = tables[si];
+    if (tab != null && _size > maxFill(tab.length)) {
       eventuallyExpand(si);
     }
   }
 
+  /**
+   * Expand the segment table if the segment is full. Used when inserting a batch of entries
+   * within one segment lock. Assumes segment lock.
+   */
+  public void checkExpandWithinLock(int _hash) {
+    int si = _hash & LOCK_MASK;
+    Entry<K,V>[] tab = tables[si];
+    if (tab != null && segmentSize[si].get() > maxFill(tab.length)) {
+      resizeSegment(si, tab.length * 2);
+    }
+  }
+
   public OptimisticLock getSegmentLock(int _hash) {
     return locks[_hash & LOCK_MASK];
   }
@@ -189,43 +252,24 @@ public class Hash2<K,V> {
     OptimisticLock l = _locks[si];
     long _stamp = l.writeLock();
     try {
-      Entry f; Entry<K,V>[] tab = entries;
-      if (tab == null) {
-        throw new CacheClosedException();
-      }
-      int n = tab.length, _mask = n - 1, idx = _hash & (_mask);
-      f = tab[idx];
-      if (f == e) {
-        tab[idx] = f.another;
-        segmentSize[si].decrementAndGet();
-        return true;
-      }
-      while (f != null) {
-        Entry _another = f.another;
-        if (_another == e) {
-          f.another = _another.another;
-          segmentSize[si].decrementAndGet();
-          return true;
-        }
-        f = _another;
-      }
+      return removeWithinLock(e, _hash);
     } finally {
       l.unlockWrite(_stamp);
     }
-    return false;
   }
 
   public boolean removeWithinLock(Entry<K,V> e, int _hash) {
     int si = _hash & LOCK_MASK;
-    Entry f; Entry<K,V>[] tab = entries;
+    Entry f; Entry<K,V>[] tab = tables[si];
     if (tab == null) {
       throw new CacheClosedException();
     }
-    int n = tab.length, _mask = n - 1, idx = _hash & (_mask);
+    int n = tab.length, _mask = n - 1, idx = (_hash >>> LOCK_BITS) & (_mask);
     f = tab[idx];
     if (f == e) {
       tab[idx] = f.another;
       segmentSize[si].decrementAndGet();
+      checkShrink(si);
       return true;
     }
     while (f != null) {
@@ -233,6 +277,7 @@ public class Hash2<K,V> {
       if (_another == e) {
         f.another = _another.another;
         segmentSize[si].decrementAndGet();
+        checkShrink(si);
         return true;
       }
       f = _another;
@@ -240,20 +285,32 @@ public class Hash2<K,V> {
     return false;
   }
 
+  /**
+   * Halve the segment table if the fill dropped below the limit. The limit needs to be
+   * less than half of the expansion limit, so the segment does not expand again after
+   * a few inserts. Assumes segment lock.
+   */
+  protected void checkShrink(int si) {
+    int _length = tables[si].length;
+    if (_length > initialSegmentLength() && segmentSize[si].get() < minFill(_length)) {
+      resizeSegment(si, _length / 2);
+    }
+  }
 
   /**
-   * Acquire all segment locks and rehash, if really needed.
+   * Acquire the segment lock and expand the segment table, if really needed.
    */
-  private void eventuallyExpand(int _segmentIndex) {
-    long[] _stamps = lockAll();
+  private void eventuallyExpand(int si) {
+    OptimisticLock l = locks[si];
+    long _stamp = l.writeLock();
     try {
-      long _size = segmentSize[_segmentIndex].get();
-      if (_size <= segmentMaxFill) {
+      Entry<K,V>[] tab = tables[si];
+      if (tab == null || segmentSize[si].get() <= maxFill(tab.length)) {
         return;
       }
-      rehash();
+      resizeSegment(si, tab.length * 2);
     } finally {
-      unlockAll(_stamps);
+      l.unlockWrite(_stamp);
     }
   }
 
@@ -285,26 +342,22 @@ public class Hash2<K,V> {
   }
 
   /**
-   * Double the hash table size and rehash the entries. Assumes total lock.
+   * Change the size of the segment table and rehash the entries. Assumes segment lock.
    */
-  private void rehash() {
-    Entry<K,V>[] src = entries;
-    if (src == null) {
-      throw new CacheClosedException();
-    }
-    int i, sl = src.length, n = sl * 2, _mask = n - 1, idx;
+  protected void resizeSegment(int si, int n) {
+    Entry<K,V>[] src = tables[si];
+    int i, sl = src.length, _mask = n - 1, idx;
     Entry<K,V>[] tab = new Entry[n];
-    long _count = 0; Entry _next, e;
+    Entry _next, e;
     for (i = 0; i < sl; i++) {
       e = src[i];
       while (e != null) {
-        _count++; _next = e.another; idx = e.hashCode & _mask;
+        _next = e.another; idx = (e.hashCode >>> LOCK_BITS) & _mask;
         e.another = tab[idx]; tab[idx] = e;
         e = _next;
       }
     }
-    entries = tab;
-    calcMaxFill();
+    tables[si] = tab;
   }
 
   public long getSize() {
@@ -339,6 +392,9 @@ public class Hash2<K,V> {
     return true;
   }
 
+  /**
+   * Remove all entries and reset the segment tables to the initial size.
+   */
   public void clearWhenLocked() {
     for (AtomicLong aSegmentSize : segmentSize) {
       aSegmentSize.set(0);
@@ -352,7 +408,7 @@ public class Hash2<K,V> {
   }
 
   /**
-   * Close the cache by discarding the entry table. Assumes total lock.
+   * Close the cache by discarding the entry tables. Assumes total lock.
    *
    * <p>Closing will be visible to other threads, because of the guarantees of the locking.
    * Using the entry table for closing has the advantage that the close check collapses with
@@ -360,12 +416,29 @@ public class Hash2<K,V> {
    */
   public void close() {
     clearOrCloseCount++;
-    entries = null;
+    for (int si = 0; si < LOCK_SEGMENTS; si++) {
+      tables[si] = null;
+    }
     closed = true;
   }
 
+  /**
+   * Collect collision information and the distribution of the entries over the segments.
+   * A big difference between the minimum and maximum segment size hints at hot keys or
+   * a bad hash code.
+   */
   public void calcHashCollisionInfo(CollisionInfo inf) {
-    for (Entry<K, V> e : entries) {
+    inf.minSegmentSize = Long.MAX_VALUE;
+    for (int si = 0; si < LOCK_SEGMENTS; si++) {
+      long _segmentSize = segmentSize[si].get();
+      inf.minSegmentSize = Math.min(inf.minSegmentSize, _segmentSize);
+      inf.maxSegmentSize = Math.max(inf.maxSegmentSize, _segmentSize);
+      calcSegmentCollisionInfo(si, inf);
+    }
+  }
+
+  protected void calcSegmentCollisionInfo(int si, CollisionInfo inf) {
+    for (Entry<K, V> e : tables[si]) {
       if (e != null) {
         e = e.another;
         if (e != null) {
@@ -382,7 +455,6 @@ public class Hash2<K,V> {
         }
       }
     }
-
   }
 
   /**
@@ -391,20 +463,101 @@ public class Hash2<K,V> {
    */
   public long calcEntryCount() {
     long _count = 0;
-    for (Entry e : entries) {
-      while (e != null) {
-        _count++;
-        e = e.another;
+    for (Entry<K,V>[] tab : tables) {
+      for (Entry e : tab) {
+        while (e != null) {
+          _count++;
+          e = e.another;
+        }
       }
     }
     return _count;
   }
 
+  public int getSegmentCount() {
+    return LOCK_SEGMENTS;
+  }
+
+  /**
+   * Entry table of a segment for used by the iterator and eviction.
+   * Returns {@code null} if closed.
+   */
+  public Entry<K,V>[] getSegmentTable(int si) {
+    OptimisticLock l = locks[si];
+    long _stamp = l.readLock();
+    try {
+      return tables[si];
+    } finally {
+      l.unlockRead(_stamp);
+    }
+  }
+
+  /**
+   * Collect the entries of a segment in an order that stays stable when the segment
+   * table is resized. The position of an entry is its slot hash with the bits reversed.
+   * In a table of any size, a slot holds the entries of a consecutive range of
+   * positions, so expanding the table splits a range and shrinking merges ranges.
+   * The slot holding {@code _position} is scanned and all entries at this position
+   * or after it are added to the result. The iterator only needs to keep the returned
+   * position, to not miss or repeat an entry during concurrent expansion or shrinking.
+   *
+   * @param si segment index
+   * @param _position position to start with, 0 for the beginning of the segment
+   * @param _result empty list to add the entries to
+   * @return position after the scanned slot, or {@link #END_POSITION} if the last slot
+   *         was scanned
+   */
+  public long collectEntries(int si, long _position, List<Entry<K,V>> _result) {
+    OptimisticLock l = locks[si];
+    long _stamp = l.tryOptimisticRead();
+    Entry<K,V>[] tab = tables[si];
+    if (tab == null) {
+      throw new CacheClosedException();
+    }
+    int idx = Integer.reverse((int) _position) & (tab.length - 1);
+    collectSlot(tab, idx, _position, _result);
+    if (l.validate(_stamp)) {
+      return nextPosition(idx, tab.length);
+    }
+    _result.clear();
+    _stamp = l.readLock();
+    try {
+      tab = tables[si];
+      if (tab == null) {
+        throw new CacheClosedException();
+      }
+      idx = Integer.reverse((int) _position) & (tab.length - 1);
+      collectSlot(tab, idx, _position, _result);
+      return nextPosition(idx, tab.length);
+    } finally {
+      l.unlockRead(_stamp);
+    }
+  }
+
+  /**
+   * Add the entries with the home slot {@code idx} and a position at or after
+   * {@code _position} to the result. May run without a lock, so a concurrent
+   * modification must not lead to an endless loop.
+   */
+  protected void collectSlot(Entry<K,V>[] tab, int idx, long _position, List<Entry<K,V>> _result) {
+    Entry<K,V> e = tab[idx];
+    while (e != null) {
+      if (position(e.hashCode) >= _position) {
+        _result.add(e);
+      }
+      e = e.another;
+    }
+  }
+
   /**
-   * Entry table for used by the iterator.
+   * Iteration position of an entry, see {@link #collectEntries(int, long, List)}.
    */
-  public Entry<K,V>[] getEntries() {
-    return entries;
+  protected static long position(int _hash) {
+    return Integer.reverse(_hash >>> LOCK_BITS) & 0xffffffffL;
+  }
+
+  private static long nextPosition(int idx, int _length) {
+    return (Integer.reverse(idx) & 0xffffffffL) + END_POSITION / _length;
   }
 
   public boolean isClosed() {
@@ -25,12 +25,13 @@ import org.cache2k.configuration.Cache2kConfiguration;
 import org.cache2k.configuration.CacheType;
 import org.cache2k.configuration.CustomizationSupplier;
 import org.cache2k.core.operation.ExaminationEntry;
-import org.cache2k.core.operation.ReadOnlyCacheEntry;
 import org.cache2k.core.operation.Semantic;
 import org.cache2k.core.operation.Operations;
 import org.cache2k.core.concurrency.DefaultThreadFactoryProvider;
 import org.cache2k.core.concurrency.Job;
+import org.cache2k.core.concurrency.VirtualThreads;
 import org.cache2k.core.concurrency.OptimisticLock;
+import org.cache2k.core.concurrency.ParallelPartitions;
 import org.cache2k.core.concurrency.ThreadFactoryProvider;
 
 import org.cache2k.core.util.InternalClock;
@@ -38,25 +39,33 @@ import org.cache2k.core.util.Log;
 import org.cache2k.core.util.TunableConstants;
 import org.cache2k.core.util.TunableFactory;
 import org.cache2k.event.CacheClosedListener;
+import org.cache2k.expiry.RefreshAheadPolicy;
 import org.cache2k.integration.AdvancedCacheLoader;
+import org.cache2k.integration.AsyncCacheLoader;
+import org.cache2k.integration.CacheLoader;
 import org.cache2k.integration.CacheLoaderException;
 import org.cache2k.integration.ExceptionPropagator;
 import org.cache2k.processor.EntryProcessor;
 
 import java.io.Closeable;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.cache2k.core.util.Util.*;
@@ -93,6 +102,8 @@ public class HeapCache<K, V>
   static int cacheCnt = 0;
 
   public static final Tunable TUNABLE = TunableFactory.get(Tunable.class);
+  private static final int AVAILABLE_PROCESSORS = Runtime.getRuntime().availableProcessors();
+  private static ThreadPoolExecutor bulkReadExecutor;
 
   final static ExceptionPropagator DEFAULT_EXCEPTION_PROPAGATOR = TUNABLE.exceptionPropagator;
 
@@ -109,8 +120,21 @@ public class HeapCache<K, V>
   protected String name;
   public CacheManagerImpl manager;
   protected AdvancedCacheLoader<K,V> loader;
+  /** Loader with an implementation of {@link CacheLoader#loadAll}, or {@code null} */
+  protected CacheLoader<K,V> bulkLoader;
+  /** Asynchronous loader, or {@code null}. Synchronous operations use {@link #loader} */
+  protected AsyncCacheLoader<K,V> asyncLoader;
   protected InternalClock clock;
   protected TimingHandler<K,V> timing = TimingHandler.ETERNAL;
+  /** Limits the refreshes per second, or {@code null} */
+  protected RefreshRateLimiter refreshRateLimiter;
+  /** Decides whether an entry is refreshed, or {@code null} to refresh every entry */
+  protected RefreshAheadPolicy<K,V> refreshAheadPolicy;
+  /** Latency histograms, all {@code null} if not enabled */
+  protected LatencyHistogram loadLatency;
+  protected LatencyHistogram refreshLatency;
+  protected LatencyHistogram writerLatency;
+  protected LatencyHistogram evictionLatency;
 
   /**
    * Structure lock of the cache. Every operation that needs a consistent structure
@@ -159,15 +183,38 @@ public class HeapCache<K, V>
     public void execute(final Runnable _command) {
       synchronized (lock) {
         checkClosed();
-        if (loaderExecutor == this) {
-          int _threadCount = Runtime.getRuntime().availableProcessors() * HeapCache.TUNABLE.loaderThreadCountCpuFactor;
-          loaderExecutor = provideDefaultLoaderExecutor(_threadCount);
-        }
-        loaderExecutor.execute(_command);
+        createLoaderExecutorIfNeeded().execute(_command);
       }
     }
   }
 
+  /**
+   * Create the default loader executor, if not yet done. Called while holding the lock.
+   */
+  private Executor createLoaderExecutorIfNeeded() {
+    if (loaderExecutor instanceof HeapCache.LazyLoaderExecutor) {
+      int _threadCount = Runtime.getRuntime().availableProcessors() * HeapCache.TUNABLE.loaderThreadCountCpuFactor;
+      loaderExecutor = provideDefaultLoaderExecutor(_threadCount);
+    }
+    return loaderExecutor;
+  }
+
+  /**
+   * The loader executor. In contrast to using {@link #loaderExecutor} directly, the
+   * default executor is created immediately, so a later call to the executor does not
+   * need the global lock.
+   */
+  Executor getLoaderExecutor() {
+    Executor ex = loaderExecutor;
+    if (!(ex instanceof HeapCache.LazyLoaderExecutor)) {
+      return ex;
+    }
+    synchronized (lock) {
+      checkClosed();
+      return createLoaderExecutorIfNeeded();
+    }
+  }
+
   protected volatile Executor prefetchExecutor = new LazyPrefetchExecutor();
 
   /**
@@ -184,7 +231,7 @@ public class HeapCache<K, V>
     }
   }
 
-  protected final Hash2<K,V> hash = new Hash2<K,V>();
+  protected final Hash2<K,V> hash = createHash();
 
   private volatile boolean closing = true;
 
@@ -202,6 +249,7 @@ public class HeapCache<K, V>
   private static final int REJECT_NULL_VALUES = 8;
   private static final int BACKGROUND_REFRESH = 16;
   private static final int NO_LAST_MODIFICATION_TIME = 32;
+  private static final int WEIGHER = 64;
 
   protected final boolean hasKeepAfterExpired() {
     return (featureBits & KEEP_AFTER_EXPIRED) > 0;
@@ -217,6 +265,8 @@ public class HeapCache<K, V>
 
   protected final boolean isNoLastModificationTime() { return (featureBits & NO_LAST_MODIFICATION_TIME) > 0; }
 
+  protected final boolean hasWeigher() { return (featureBits & WEIGHER) > 0; }
+
   protected final void setFeatureBit(int _bitmask, boolean _flag) {
     if (_flag) {
       featureBits |= _bitmask;
@@ -256,6 +306,18 @@ public class HeapCache<K, V>
     setFeatureBit(REJECT_NULL_VALUES, !c.isPermitNullValues());
     setFeatureBit(BACKGROUND_REFRESH, c.isRefreshAhead());
     setFeatureBit(NO_LAST_MODIFICATION_TIME, c.isDisableLastModificationTime());
+    setFeatureBit(WEIGHER, c.getWeigher() != null);
+    if (c.getRefreshAheadRateLimit() > 0) {
+      refreshRateLimiter = new RefreshRateLimiter(c.getRefreshAheadRateLimit());
+    }
+    if (c.isLatencyHistograms() && !c.isDisableStatistics()) {
+      loadLatency = new LatencyHistogram();
+      refreshLatency = new LatencyHistogram();
+      writerLatency = new LatencyHistogram();
+      evictionLatency = new LatencyHistogram();
+    }
+    refreshAheadPolicy = createCustomization(
+      (CustomizationSupplier<RefreshAheadPolicy<K, V>>) c.getRefreshAheadPolicy());
 
     metrics = TUNABLE.commonMetricsFactory.create(new CommonMetricsFactory.Parameters() {
       @Override
@@ -271,6 +333,14 @@ public class HeapCache<K, V>
 
     if (c.getLoaderExecutor() != null) {
       loaderExecutor = createCustomization((CustomizationSupplier<Executor>) c.getLoaderExecutor());
+    } else if (c.isVirtualThreads() && VirtualThreads.isSupported()) {
+      loaderExecutor = VirtualThreads.newVirtualThreadExecutor(getThreadNamePrefix());
+    } else if (c.getLoaderThreadCountMax() > 0) {
+      int _threadCount = c.getLoaderThreadCount() > 0 ?
+        c.getLoaderThreadCount() :
+        Math.min(c.getLoaderThreadCountMax(),
+          Runtime.getRuntime().availableProcessors() * HeapCache.TUNABLE.loaderThreadCountCpuFactor);
+      loaderExecutor = new AdaptiveLoaderExecutor(_threadCount, c.getLoaderThreadCountMax(), getThreadNamePrefix());
     } else {
       if (c.getLoaderThreadCount() > 0) {
         loaderExecutor = provideDefaultLoaderExecutor(c.getLoaderThreadCount());
@@ -308,6 +378,14 @@ public class HeapCache<K, V>
     loader = al;
   }
 
+  public void setBulkLoader(final CacheLoader<K,V> l) {
+    bulkLoader = l;
+  }
+
+  public void setAsyncLoader(final AsyncCacheLoader<K,V> l) {
+    asyncLoader = l;
+  }
+
   /**
    * Set the name and configure a logging, used within cache construction.
    */
@@ -428,6 +506,7 @@ public class HeapCache<K, V>
         timing.shutdown();
         hash.close();
         closeCustomization(loader);
+        closeCustomization(refreshAheadPolicy);
         for (CustomizationSupplier<CacheClosedListener> s : cacheClosedListeners) {
           createCustomization(s).onCacheClosed(_userCache);
         }
@@ -456,20 +535,34 @@ public class HeapCache<K, V>
     return new IteratorFilterEntry2Entry(this, iterateAllHeapEntries(), true);
   }
 
+  @Override
+  public SplittableIterator<CacheEntry<K, V>> splitIterator() {
+    return new IteratorFilterEntry2Entry<K, V>(this, iterateAllHeapEntries(), true);
+  }
+
   /**
    * Filter out non valid entries and wrap each entry with a cache
    * entry object.
    */
-  static class IteratorFilterEntry2Entry<K,V> implements Iterator<CacheEntry<K, V>> {
+  static class IteratorFilterEntry2Entry<K,V> implements SplittableIterator<CacheEntry<K, V>> {
 
     HeapCache<K,V> cache;
+    InternalCache<K,V> userCache;
     Iterator<Entry<K,V>> iterator;
     Entry entry;
     CacheEntry<K, V> lastEntry;
     boolean filter = true;
 
     IteratorFilterEntry2Entry(HeapCache<K,V> c, Iterator<Entry<K,V>> it, boolean _filter) {
+      this(c, c, it, _filter);
+    }
+
+    /**
+     * @param _userCache cache used for the removal of an entry via {@link #remove()}
+     */
+    IteratorFilterEntry2Entry(HeapCache<K,V> c, InternalCache<K,V> _userCache, Iterator<Entry<K,V>> it, boolean _filter) {
       cache = c;
+      userCache = _userCache;
       iterator = it;
       filter = _filter;
     }
@@ -519,7 +612,35 @@ public class HeapCache<K, V>
       if (lastEntry == null) {
         throw new IllegalStateException("Unable to remove, hasNext() / next() not called or end of iteration reached");
       }
-      cache.remove(lastEntry.getKey());
+      userCache.remove(lastEntry.getKey());
+    }
+
+    /**
+     * Split off a part of the remaining entries, if iterating the heap entries.
+     *
+     * @see ConcurrentEntryIterator#trySplit()
+     */
+    @Override
+    public SplittableIterator<CacheEntry<K, V>> trySplit() {
+      if (!(iterator instanceof ConcurrentEntryIterator)) {
+        return null;
+      }
+      ConcurrentEntryIterator<K,V> it = ((ConcurrentEntryIterator<K,V>) iterator).trySplit();
+      if (it == null) {
+        return null;
+      }
+      return new IteratorFilterEntry2Entry<K,V>(cache, userCache, it, filter);
+    }
+
+    /**
+     * Estimated number of heap entries, including entries not passing the filter.
+     */
+    @Override
+    public long estimateSize() {
+      if (!(iterator instanceof ConcurrentEntryIterator)) {
+        return Long.MAX_VALUE;
+      }
+      return ((ConcurrentEntryIterator<K,V>) iterator).estimateSize() + (entry != null ? 1 : 0);
     }
   }
 
@@ -537,9 +658,12 @@ public class HeapCache<K, V>
    *
    * <p>Using a 64 bit counter per entry is basically a big waste of memory. When reducing
    * to a 32 bit value is has approximately a negative performance impact of 30%.
+   *
+   * <p>The eviction may record the hits in a buffer and increment the counter later,
+   * see {@link AbstractEviction.Tunable#readBuffer}.
    */
   protected void recordHit(Entry e) {
-    e.hitCnt++;
+    eviction.recordHit(e);
   }
 
   @Override
@@ -656,13 +780,18 @@ public class HeapCache<K, V>
     return e;
   }
 
-  protected void finishLoadOrEviction(Entry e, long _nextRefreshTime) {
+  /**
+   * Start the timer and finish processing. Assumes entry lock.
+   *
+   * @return callbacks to run after the entry lock is released, see {@link Entry#processingDone()}
+   */
+  protected List<Runnable> finishLoadOrEviction(Entry e, long _nextRefreshTime) {
     if (e.getProcessingState() != Entry.ProcessingState.REFRESH) {
       restartTimer(e, _nextRefreshTime);
     } else {
       startRefreshProbationTimer(e, _nextRefreshTime);
     }
-    e.processingDone();
+    return e.processingDone();
   }
 
   private void restartTimer(final Entry e, final long _nextRefreshTime) {
@@ -727,6 +856,7 @@ public class HeapCache<K, V>
         }
         putValue(e, _value);
       }
+      evictEventuallyAfterUpdate(e);
       return returnValue(_previousValue);
     }
   }
@@ -737,19 +867,21 @@ public class HeapCache<K, V>
     for (;;) {
       e = lookupEntry(key);
       if (e == null) { break; }
+      V _previousValue;
       synchronized (e) {
         e.waitForProcessing();
         if (e.isGone()) {
           metrics.goneSpin();
           continue;
         }
-        if (e.hasFreshData(clock)) {
-          V _previousValue = (V) e.getValueOrException();
-          putValue(e, _value);
-          return returnValue(_previousValue);
+        if (!e.hasFreshData(clock)) {
+          break;
         }
-        break;
+        _previousValue = (V) e.getValueOrException();
+        putValue(e, _value);
       }
+      evictEventuallyAfterUpdate(e);
+      return returnValue(_previousValue);
     }
     metrics.peekMiss();
     return null;
@@ -810,6 +942,7 @@ public class HeapCache<K, V>
       }
       putValue(e, _newValue);
     }
+    evictEventuallyAfterUpdate(e);
     return null;
   }
 
@@ -896,16 +1029,19 @@ public class HeapCache<K, V>
         _value = callable.call();
         t = clock.millis();
       }
+      List<Runnable> _callbacks;
       synchronized (e) {
         insertOrUpdateAndCalculateExpiry(e, _value, t0, t, INSERT_STAT_PUT);
-        e.processingDone();
+        _callbacks = e.processingDone();
       }
       _finished = true;
+      Entry.runProcessingDoneCallbacks(_callbacks);
     } catch (Exception ex) {
       throw new CacheLoaderException(ex);
     } finally {
       e.ensureAbort(_finished);
     }
+    evictEventuallyAfterUpdate(e);
     return returnValue(e);
   }
 
@@ -924,8 +1060,9 @@ public class HeapCache<K, V>
         }
         metrics.peekMiss();
         putValue(e, value);
-        return true;
       }
+      evictEventuallyAfterUpdate(e);
+      return true;
     }
   }
 
@@ -944,6 +1081,7 @@ public class HeapCache<K, V>
         }
         putValue(e, value);
       }
+      evictEventuallyAfterUpdate(e);
       return;
     }
   }
@@ -1075,11 +1213,15 @@ public class HeapCache<K, V>
   public void loadAll(final Iterable<? extends K> _keys, final CacheOperationCompletionListener l) {
     checkLoaderPresent();
     final CacheOperationCompletionListener _listener= l != null ? l : DUMMY_LOAD_COMPLETED_LISTENER;
-    Set<K> _keysToLoad = checkAllPresent(_keys);
+    final Set<K> _keysToLoad = checkAllPresent(_keys);
     if (_keysToLoad.isEmpty()) {
       _listener.onCompleted();
       return;
     }
+    if (bulkLoader != null) {
+      executeBulkLoad(_keysToLoad, false, _listener);
+      return;
+    }
     final AtomicInteger _countDown = new AtomicInteger(_keysToLoad.size());
     for (K k : _keysToLoad) {
       final K key = k;
@@ -1108,6 +1250,10 @@ public class HeapCache<K, V>
     checkLoaderPresent();
     final CacheOperationCompletionListener _listener= l != null ? l : DUMMY_LOAD_COMPLETED_LISTENER;
     Set<K> _keySet = generateKeySet(_keys);
+    if (bulkLoader != null) {
+      executeBulkLoad(_keySet, true, _listener);
+      return;
+    }
     final AtomicInteger _countDown = new AtomicInteger(_keySet.size());
     for (K k : _keySet) {
       final K key = k;
@@ -1132,6 +1278,164 @@ public class HeapCache<K, V>
     }
   }
 
+  /**
+   * Run the bulk load in the calling thread. {@link CacheLoader#loadAll} receives the
+   * loader executor for its own concurrent loads, so running the bulk load as a task on the
+   * same executor could exhaust a bounded pool and deadlock.
+   */
+  private void executeBulkLoad(final Set<K> _keys, final boolean _reload,
+                               final CacheOperationCompletionListener _listener) {
+    Runnable r = new RunWithCatch(this) {
+      @Override
+      public void action() {
+        try {
+          bulkLoad(_keys, _reload, null);
+        } finally {
+          _listener.onCompleted();
+        }
+      }
+    };
+    r.run();
+  }
+
+  /**
+   * Load all keys with one call to {@link CacheLoader#loadAll}. The entries that need loading
+   * are put in processing state as a group, loaded together and inserted one by one.
+   * Entries with fresh data are skipped, unless a reload is requested.
+   *
+   * <p>Entries that are currently processed by another load are not waited for while holding
+   * the group, because two bulk loads with overlapping keys would deadlock. After the group
+   * is loaded, these keys are processed by the single key operations, which wait for the
+   * concurrent load to complete, so the loads of a key are still coalesced.
+   *
+   * @param _result if not {@code null}, the entries for the keys are added to the map
+   */
+  private void bulkLoad(final Set<K> _keys, final boolean _reload, final Map<K, Entry<K, V>> _result) {
+    List<Entry<K, V>> _group = new ArrayList<Entry<K, V>>();
+    List<K> _busyKeys = new ArrayList<K>();
+    boolean _acquired = false;
+    try {
+      for (K key : _keys) {
+        for (;;) {
+          Entry<K, V> e = lookupOrNewEntry(key);
+          if (!_reload && e.hasFreshData(clock)) {
+            if (_result != null) {
+              _result.put(key, e);
+            }
+            break;
+          }
+          synchronized (e) {
+            if (e.isProcessing()) {
+              _busyKeys.add(key);
+              break;
+            }
+            if (!_reload && e.hasFreshData(clock)) {
+              if (_result != null) {
+                _result.put(key, e);
+              }
+              break;
+            }
+            if (e.isGone()) {
+              metrics.goneSpin();
+              continue;
+            }
+            e.startProcessing();
+            _group.add(e);
+            break;
+          }
+        }
+      }
+      _acquired = true;
+    } finally {
+      if (!_acquired) {
+        for (Entry<K, V> e : _group) {
+          e.ensureAbort(false);
+        }
+      }
+    }
+    loadGroup(_group);
+    if (_result != null) {
+      for (Entry<K, V> e : _group) {
+        _result.put(e.getKey(), e);
+      }
+    }
+    for (K key : _busyKeys) {
+      if (_reload) {
+        loadAndReplace(key);
+      } else if (_result != null) {
+        Entry<K, V> e = getEntryInternal(key);
+        if (e != null) {
+          _result.put(key, e);
+        }
+      } else {
+        getEntryInternal(key);
+      }
+    }
+  }
+
+  /**
+   * Load the entries of the group, which are in processing state. Keys missing in the
+   * result of the bulk load are loaded with the single load method. If the bulk load fails,
+   * the exception is recorded for every key of the group via
+   * {@link #loadGotException(Entry, long, long, Throwable)}, like a failing single load,
+   * so the resilience policy decides whether it is propagated or suppressed.
+   */
+  private void loadGroup(final List<Entry<K, V>> _group) {
+    int n = _group.size();
+    if (n == 0) {
+      return;
+    }
+    boolean[] _done = new boolean[n];
+    long t0 = isNoLastModificationTime() ? 0 : clock.millis();
+    try {
+      List<K> _keys = new ArrayList<K>(n);
+      for (int i = 0; i < n; i++) {
+        Entry<K, V> e = _group.get(i);
+        if (e.getNextRefreshTime() == Entry.EXPIRED_REFRESHED && entryInRefreshProbationAccessed(e, t0)) {
+          _done[i] = true;
+        } else {
+          _keys.add(e.getKey());
+        }
+      }
+      Map<K, V> _loaded = null;
+      Throwable _exception = null;
+      if (!_keys.isEmpty()) {
+        try {
+          _loaded = bulkLoader.loadAll(_keys, loaderExecutor);
+        } catch (Throwable _ouch) {
+          _exception = _ouch;
+        }
+      }
+      long t = t0;
+      if (!metrics.isDisabled()) {
+        t = clock.millis();
+      }
+      for (int i = 0; i < n; i++) {
+        if (_done[i]) {
+          continue;
+        }
+        Entry<K, V> e = _group.get(i);
+        if (_exception != null) {
+          loadGotException(e, t0, t, _exception);
+        } else if (_loaded != null && _loaded.containsKey(e.getKey())) {
+          insertOrUpdateAndCalculateExpiry(e, _loaded.get(e.getKey()), t0, t, INSERT_STAT_LOAD);
+        } else {
+          load(e);
+        }
+        _done[i] = true;
+      }
+    } finally {
+      for (int i = 0; i < n; i++) {
+        if (!_done[i]) {
+          _group.get(i).ensureAbort(false);
+        }
+      }
+    }
+    if (hasWeigher()) {
+      eviction.evictEventually();
+    }
+  }
+
   public static abstract class RunWithCatch implements Runnable {
 
     InternalCache cache;
@@ -1268,6 +1572,15 @@ public class HeapCache<K, V>
     return hash.lookup(key, hc);
   }
 
+  @SuppressWarnings("unchecked")
+  private static <K,V> Hash2<K,V> createHash() {
+    try {
+      return TUNABLE.hashImplementation.newInstance();
+    } catch (Exception ex) {
+      throw new CacheInternalError("cannot instantiate hash implementation", ex);
+    }
+  }
+
   /**
    * Insert new entry in all structures (hash and eviction). The insert at the eviction
    * needs to be done under the same lock, to allow a check of the consistency.
@@ -1276,15 +1589,21 @@ public class HeapCache<K, V>
     Entry<K,V> e = new Entry<K,V>(key, hc);
     Entry<K, V> e2;
     final OptimisticLock l = hash.getSegmentLock(hc);
-    final long _stamp = l.writeLock();
     boolean _needsEviction = false;
-    try {
-      e2 = hash.insertWithinLock(e, hc);
-      if (e == e2) {
-        _needsEviction = eviction.submitWithoutEviction(e);
+    for (;;) {
+      final long _stamp = l.writeLock();
+      try {
+        e2 = hash.insertWithinLock(e, hc);
+        if (e == e2) {
+          _needsEviction = eviction.submitWithoutEviction(e);
+        }
+      } finally {
+        l.unlockWrite(_stamp);
       }
-    } finally {
-      l.unlockWrite(_stamp);
+      if (e2 != null) {
+        break;
+      }
+      hash.checkExpand(hc);
     }
     if (_needsEviction) {
       eviction.evictEventually(hc);
@@ -1345,6 +1664,7 @@ public class HeapCache<K, V>
         return;
       }
     }
+    long _startNanos = latencyStartNanos();
     try {
       checkLoaderPresent();
       if (e.isVirgin()) {
@@ -1353,6 +1673,7 @@ public class HeapCache<K, V>
         v = loader.load(e.key, t0, e);
       }
     } catch (Throwable _ouch) {
+      recordLoadLatency(e.isGettingRefresh(), _startNanos);
       long t = t0;
       if (!metrics.isDisabled()) {
         t = clock.millis();
@@ -1360,11 +1681,48 @@ public class HeapCache<K, V>
       loadGotException(e, t0, t, _ouch);
       return;
     }
+    recordLoadLatency(e.isGettingRefresh(), _startNanos);
     long t = t0;
     if (!metrics.isDisabled()) {
       t = clock.millis();
     }
     insertOrUpdateAndCalculateExpiry(e, v, t0, t, INSERT_STAT_LOAD);
+    evictEventuallyAfterUpdate(e);
+  }
+
+  /**
+   * Start time for a latency measurement, or 0 if latency histograms are not enabled.
+   */
+  final long latencyStartNanos() {
+    return loadLatency != null ? System.nanoTime() : 0;
+  }
+
+  final void recordLoadLatency(final boolean _refresh, final long _startNanos) {
+    if (loadLatency != null) {
+      (_refresh ? refreshLatency : loadLatency).recordSince(_startNanos);
+    }
+  }
+
+  final void recordWriterLatency(final long _startNanos) {
+    if (writerLatency != null) {
+      writerLatency.recordSince(_startNanos);
+    }
+  }
+
+  final void recordEvictionLatency(final long _startNanos) {
+    if (evictionLatency != null) {
+      evictionLatency.recordSince(_startNanos);
+    }
+  }
+
+  /**
+   * The new value may increase the weight of the entry. Run the eviction after the entry lock
+   * is released, since the eviction locks other entries.
+   */
+  final void evictEventuallyAfterUpdate(final Entry e) {
+    if (hasWeigher()) {
+      eviction.evictEventually(e.hashCode);
+    }
   }
 
   /**
@@ -1380,10 +1738,12 @@ public class HeapCache<K, V>
   }
 
   private void reviveRefreshedEntry(final Entry<K, V> e, final long _nrt) {
+    List<Runnable> _callbacks;
     synchronized (e) {
       metrics.refreshedHit();
-      finishLoadOrEviction(e, _nrt);
+      _callbacks = finishLoadOrEviction(e, _nrt);
     }
+    Entry.runProcessingDoneCallbacks(_callbacks);
   }
 
   private void loadGotException(final Entry<K, V> e, final long t0, final long t, final Throwable _wrappedException) {
@@ -1403,6 +1763,7 @@ public class HeapCache<K, V>
       resiliencePolicyException(e, t0, t, new ResiliencePolicyException(ex));
       return;
     }
+    List<Runnable> _callbacks;
     synchronized (e) {
       insertUpdateStats(e, (V) _value, t0, t, INSERT_STAT_LOAD, _nextRefreshTime, _suppressException);
       if (_suppressException) {
@@ -1410,10 +1771,12 @@ public class HeapCache<K, V>
       } else {
         e.setLastModification(t0);
         e.setValueOrException((V) _value);
+        eviction.updateWeight(e);
       }
       _value.setUntil(Math.abs(_nextRefreshTime));
-      finishLoadOrEviction(e, _nextRefreshTime);
+      _callbacks = finishLoadOrEviction(e, _nextRefreshTime);
     }
+    Entry.runProcessingDoneCallbacks(_callbacks);
   }
 
   /**
@@ -1463,13 +1826,16 @@ public class HeapCache<K, V>
         loadGotException(e, t0, t, returnNullValueDetectedException());
         return;
       }
+      List<Runnable> _callbacks;
       synchronized (e) {
         e.setLastModification(t0);
         insertUpdateStats(e, _value, t0, t, _updateStatistics, _nextRefreshTime, false);
         e.setValueOrException(_value);
         e.resetSuppressedLoadExceptionInformation();
-        finishLoadOrEviction(e, _nextRefreshTime);
+        _callbacks = finishLoadOrEviction(e, _nextRefreshTime);
+        eviction.updateWeight(e);
       }
+      Entry.runProcessingDoneCallbacks(_callbacks);
     } else {
       if (_value == null && hasRejectNullValues()) {
         throw returnNullValueDetectedException();
@@ -1477,6 +1843,7 @@ public class HeapCache<K, V>
       e.setLastModification(t0);
       e.setValueOrException(_value);
       e.resetSuppressedLoadExceptionInformation();
+      eviction.updateWeight(e);
       insertUpdateStats(e, _value, t0, t, _updateStatistics, _nextRefreshTime, false);
       restartTimer(e, _nextRefreshTime);
     }
@@ -1517,6 +1884,10 @@ public class HeapCache<K, V>
       if (e.isGone()) {
         return;
       }
+      if (isRefreshSkipped(e)) {
+        expireOrScheduleFinalExpireEvent(e);
+        return;
+      }
       Runnable r = new Runnable() {
         @Override
         public void run() {
@@ -1533,6 +1904,32 @@ public class HeapCache<K, V>
     }
   }
 
+  /**
+   * Consult the refresh ahead policy and the rate limit before a refresh is started.
+   * Called by the timer event while holding the entry lock.
+   *
+   * @return {@code true} if the entry should expire instead of being refreshed
+   */
+  boolean isRefreshSkipped(final Entry<K, V> e) {
+    if (refreshAheadPolicy != null) {
+      boolean _refresh;
+      try {
+        _refresh = refreshAheadPolicy.shouldRefresh(returnEntry(e), e.hitCnt, clock.millis());
+      } catch (Throwable t) {
+        logAndCountInternalException("Refresh ahead policy exception", t);
+        _refresh = false;
+      }
+      if (!_refresh) {
+        return true;
+      }
+    }
+    if (refreshRateLimiter != null && !refreshRateLimiter.tryAcquire(clock.millis(), e.hitCnt == 0)) {
+      metrics.refreshFailed();
+      return true;
+    }
+    return false;
+  }
+
   /**
    * Executed in loader thread. Load the entry again. After the load we copy the entry to the
    * refresh hash and expire it in the main hash. The entry needs to stay in the main hash
@@ -1595,6 +1992,39 @@ public class HeapCache<K, V>
     }
   }
 
+  /**
+   * Expire all entries of the batch that are due, reading the clock only once. Each entry
+   * is removed from the hash and the replacement list under the segment lock, like
+   * in {@link #removeEntry(Entry)}. Batching the removal from the replacement list is not
+   * possible, since the segment lock may only be acquired while holding the entry lock.
+   */
+  @Override
+  public void timerEventExpireEntries(final List<Entry<K, V>> _entries) {
+    long t = clock.millis();
+    for (Entry<K, V> e : _entries) {
+      metrics.timerEvent();
+      synchronized (e) {
+        if (e.isGone() || e.isExpired()) {
+          continue;
+        }
+        long nrt = e.getNextRefreshTime();
+        if (t < Math.abs(nrt)) {
+          if (nrt > 0) {
+            timing.scheduleFinalTimerForSharpExpiry(e);
+            e.setNextRefreshTime(-nrt);
+          }
+          continue;
+        }
+        e.setExpiredState();
+        if (hasKeepAfterExpired() || e.isProcessing()) {
+          metrics.expiredKept();
+        } else {
+          removeEntry(e);
+        }
+      }
+    }
+  }
+
   @Override
   public void expireOrScheduleFinalExpireEvent(final Entry<K, V> e) {
     long nrt = e.getNextRefreshTime();
@@ -1667,21 +2097,41 @@ public class HeapCache<K, V>
    * which has produced an exception is requested from the map.
    */
   public Map<K, V> getAll(final Iterable<? extends K> _inputKeys) {
-    Map<K, ExaminationEntry<K, V>> map = new HashMap<K, ExaminationEntry<K, V>>();
+    if (bulkLoader != null) {
+      Map<K, Entry<K, V>> _entries = new HashMap<K, Entry<K, V>>();
+      bulkLoad(generateKeySet(_inputKeys), false, _entries);
+      Map<K, V> map = new HashMap<K, V>(hashMapCapacity(_entries.size()));
+      for (Entry<K, V> e : _entries.values()) {
+        V v = e.getValueOrException();
+        if (v == null && hasRejectNullValues()) {
+          continue;
+        }
+        map.put(e.getKey(), v);
+      }
+      return convertValueMap(map);
+    }
+    if (loader == null) {
+      return peekAll(_inputKeys);
+    }
+    Map<K, V> map = new HashMap<K, V>();
     for (K k : _inputKeys) {
       Entry<K,V> e = getEntryInternal(k);
       if (e != null) {
-        map.put(e.getKey(), ReadOnlyCacheEntry.of(e));
+        map.put(e.getKey(), e.getValueOrException());
       }
     }
     return convertValueMap(map);
   }
 
-  public Map<K, V> convertValueMap(final Map<K, ExaminationEntry<K, V>> _map) {
-    return new MapValueConverterProxy<K, V, ExaminationEntry<K, V>>(_map) {
+  /**
+   * Wrap the map holding values or exceptions. An exception is propagated when the
+   * value is accessed.
+   */
+  public Map<K, V> convertValueMap(final Map<K, V> _map) {
+    return new MapValueConverterProxy<K, V, V>(_map) {
       @Override
-      protected V convert(final ExaminationEntry<K, V> v) {
-        return returnValue(v.getValueOrException());
+      protected V convert(final V v) {
+        return returnValue(v);
       }
     };
   }
@@ -1695,26 +2145,207 @@ public class HeapCache<K, V>
     };
   }
 
+  /**
+   * Large inputs are split in partitions, which are looked up in parallel. Only the current
+   * values are stored in the result map, there is no object allocated per key.
+   */
+  @SuppressWarnings("unchecked")
   public Map<K, V> peekAll(final Iterable<? extends K> _inputKeys) {
-    Map<K, ExaminationEntry<K, V>> map = new HashMap<K, ExaminationEntry<K, V>>();
-    for (K k : _inputKeys) {
-      ExaminationEntry<K, V> e = peekEntryInternal(k);
-      if (e != null) {
-        map.put(k, e);
+    final Object[] _keys = toArray(_inputKeys);
+    final int _count = _keys.length;
+    final Object[] _values = new Object[_count];
+    final boolean[] _present = new boolean[_count];
+    ParallelPartitions.Task _task = new ParallelPartitions.Task() {
+      @Override
+      public void run(final int _from, final int _to) {
+        for (int i = _from; i < _to; i++) {
+          Entry<K, V> e = peekEntryInternal((K) _keys[i]);
+          if (e != null) {
+            _values[i] = e.getValueOrException();
+            _present[i] = true;
+          }
+        }
+      }
+    };
+    int _partitionCount = Math.min(AVAILABLE_PROCESSORS, _count / TUNABLE.bulkReadPartitionSize);
+    if (_partitionCount > 1) {
+      ParallelPartitions.run(getBulkReadExecutor(), _count, _partitionCount, _task);
+    } else {
+      _task.run(0, _count);
+    }
+    Map<K, V> map = new HashMap<K, V>(hashMapCapacity(_count));
+    for (int i = 0; i < _count; i++) {
+      if (_present[i]) {
+        map.put((K) _keys[i], (V) _values[i]);
       }
     }
     return convertValueMap(map);
   }
 
+  private static Object[] toArray(final Iterable<?> _iterable) {
+    if (_iterable instanceof Collection) {
+      return ((Collection<?>) _iterable).toArray();
+    }
+    List<Object> _list = new ArrayList<Object>();
+    for (Object o : _iterable) {
+      _list.add(o);
+    }
+    return _list.toArray();
+  }
+
+  /**
+   * Initial capacity of a hash map that holds the number of mappings without resize.
+   */
+  private static int hashMapCapacity(final int _size) {
+    return (int) (_size / 0.75f) + 1;
+  }
+
+  /**
+   * Executor shared by all caches for parallel bulk reads, created on first use.
+   * The threads terminate when idle.
+   */
+  private static synchronized Executor getBulkReadExecutor() {
+    if (bulkReadExecutor == null) {
+      ThreadPoolExecutor ex = new ThreadPoolExecutor(
+        AVAILABLE_PROCESSORS, AVAILABLE_PROCESSORS,
+        21, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        TUNABLE.threadFactoryProvider.newThreadFactory("cache2k-bulk"),
+        new ThreadPoolExecutor.AbortPolicy());
+      ex.allowCoreThreadTimeOut(true);
+      bulkReadExecutor = ex;
+    }
+    return bulkReadExecutor;
+  }
+
+  /**
+   * Insert the values in batches. The keys of a batch are grouped by hash segment, so
+   * each segment lock and the eviction lock is acquired once per segment and batch.
+   * Eviction runs after the values of a batch are stored.
+   */
+  @SuppressWarnings("unchecked")
   public void putAll(Map<? extends K, ? extends V> valueMap) {
     if (valueMap.containsKey(null)) {
       throw new NullPointerException("map contains null key");
     }
+    int _batchSize = Math.min(valueMap.size(), TUNABLE.bulkOperationBatchSize);
+    if (_batchSize == 0) {
+      return;
+    }
+    K[] _keys = (K[]) new Object[_batchSize];
+    V[] _values = (V[]) new Object[_batchSize];
+    int _count = 0;
     for (Map.Entry<? extends K, ? extends V> e : valueMap.entrySet()) {
-      put(e.getKey(), e.getValue());
+      _keys[_count] = e.getKey();
+      _values[_count] = e.getValue();
+      if (++_count == _batchSize) {
+        putBatch(_keys, _values, _count);
+        _count = 0;
+      }
+    }
+    if (_count > 0) {
+      putBatch(_keys, _values, _count);
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private void putBatch(K[] _keys, V[] _values, int _count) {
+    Entry<K, V>[] _entries = new Entry[_count];
+    boolean _inserted = lookupOrNewEntries(_keys, _entries, _count);
+    for (int i = 0; i < _count; i++) {
+      Entry e = _entries[i];
+      boolean _gone;
+      synchronized (e) {
+        e.waitForProcessing();
+        _gone = e.isGone();
+        if (!_gone) {
+          if (!e.isVirgin()) {
+            metrics.heapHitButNoRead();
+          }
+          putValue(e, _values[i]);
+        }
+      }
+      if (_gone) {
+        metrics.goneSpin();
+        put(_keys[i], _values[i]);
+      } else {
+        evictEventuallyAfterUpdate(e);
+      }
+    }
+    if (_inserted) {
+      eviction.evictEventuallyAfterBulkInsert();
+    }
+  }
+
+  /**
+   * Lookup or insert the entries for a batch of keys. Like {@link #insertNewEntry(Object, int)}
+   * the new entries are submitted to the eviction while holding the segment lock, but no
+   * eviction is done, the caller needs to call {@link Eviction#evictEventuallyAfterBulkInsert()}.
+   * The segment table is expanded within the lock as soon as it gets full, so the hash chains
+   * stay short, even if the batch is big compared to the segment table.
+   *
+   * @return true, if at least one entry was inserted
+   */
+  @SuppressWarnings("unchecked")
+  private boolean lookupOrNewEntries(K[] _keys, Entry<K, V>[] _entries, int _count) {
+    int _segmentCount = hash.getSegmentCount();
+    int _mask = _segmentCount - 1;
+    int[] _hashes = new int[_count];
+    int[] _segmentStart = new int[_segmentCount + 1];
+    for (int i = 0; i < _count; i++) {
+      int hc = modifiedHash(_keys[i].hashCode());
+      _hashes[i] = hc;
+      _segmentStart[(hc & _mask) + 1]++;
+    }
+    for (int si = 0; si < _segmentCount; si++) {
+      _segmentStart[si + 1] += _segmentStart[si];
+    }
+    int[] _order = new int[_count];
+    int[] _position = _segmentStart.clone();
+    for (int i = 0; i < _count; i++) {
+      _order[_position[_hashes[i] & _mask]++] = i;
+    }
+    Entry<K, V>[] _newEntries = new Entry[_count];
+    boolean _inserted = false;
+    for (int si = 0; si < _segmentCount; si++) {
+      int _start = _segmentStart[si];
+      int _end = _segmentStart[si + 1];
+      if (_start == _end) {
+        continue;
+      }
+      int _newCount = 0;
+      OptimisticLock l = hash.getSegmentLock(_hashes[_order[_start]]);
+      long _stamp = l.writeLock();
+      try {
+        for (int j = _start; j < _end; j++) {
+          int i = _order[j];
+          Entry<K, V> e = new Entry<K, V>(_keys[i], _hashes[i]);
+          Entry<K, V> e2 = hash.insertWithinLock(e, _hashes[i]);
+          _entries[i] = e2;
+          if (e2 == e) {
+            _newEntries[_newCount++] = e;
+            hash.checkExpandWithinLock(_hashes[i]);
+          } else if (e2 != null) {
+            recordHit(e2);
+          }
+        }
+        if (_newCount > 0) {
+          eviction.submitWithoutEviction(_newEntries, _newCount);
+        }
+      } finally {
+        l.unlockWrite(_stamp);
+      }
+      _inserted |= _newCount > 0;
+      for (int j = _start; j < _end; j++) {
+        int i = _order[j];
+        if (_entries[i] == null) {
+          _entries[i] = lookupOrNewEntry(_keys[i], _hashes[i]);
+        }
+      }
+    }
+    return _inserted;
+  }
+
   Operations<K,V> spec() { return Operations.SINGLETON; }
 
   @Override
@@ -1962,6 +2593,19 @@ public class HeapCache<K, V>
      */
     public int hashLoadPercent = 64;
 
+    /**
+     * Fill percentage of a hash table segment, below which the segment table is halved.
+     * Needs to be less then half of {@link #hashLoadPercent}, to avoid that the table is
+     * expanded again right after shrinking. 0 disables shrinking. Default: 16.
+     */
+    public int hashShrinkPercent = 16;
+
+    /**
+     * Hash table implementation. {@link OpenHash2} is an alternative with open addressing.
+     * Default: {@link Hash2}.
+     */
+    public Class<? extends Hash2> hashImplementation = Hash2.class;
+
     /**
      * The hash code will randomized by default. This is a countermeasure
      * against from outside that know the hash function.
@@ -2015,6 +2659,19 @@ public class HeapCache<K, V>
      */
     public int hashQualityWarningThreshold = 20;
 
+    /**
+     * Number of keys processed together by {@code putAll} and {@code removeAll}. Limits
+     * the temporary arrays and how far the cache size exceeds the capacity before eviction.
+     */
+    public int bulkOperationBatchSize = 1000;
+
+    /**
+     * Minimum number of keys per partition when {@code peekAll} or {@code getAll} without
+     * a loader is processed in parallel. Inputs smaller than two partitions are processed
+     * by the calling thread.
+     */
+    public int bulkReadPartitionSize = 1000;
+
     /**
      * Alert level error, when hash quality is below this threshold. Default 5.
      */
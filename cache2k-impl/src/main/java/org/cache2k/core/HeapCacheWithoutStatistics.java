@@ -0,0 +1,104 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.configuration.Cache2kConfiguration;
+
+/**
+ * Heap cache selected when statistics are disabled. The read path of {@code get},
+ * {@code peek} and {@code containsKey} does not call into the metrics, so there is no
+ * interface dispatch left besides the hash lookup. If no eviction or refresh decision
+ * depends on the hit counter, recording hits is skipped as well.
+ *
+ * <p>Operations with a loader or other paths are the same as in {@link HeapCache},
+ * with counting going to the disabled metrics.
+ *
+ * @author Jens Wilke
+ * @see InternalCache2kBuilder
+ */
+public class HeapCacheWithoutStatistics<K, V> extends HeapCache<K, V> {
+
+  private boolean recordHits = true;
+
+  /**
+   * Hits are only needed for the eviction to decide on hot entries, which never happens if
+   * capacity is unbounded, and for the refresh rate limiter and the refresh ahead policy.
+   */
+  @Override
+  public void setCacheConfig(final Cache2kConfiguration c) {
+    super.setCacheConfig(c);
+    recordHits =
+      c.getEntryCapacity() != Long.MAX_VALUE ||
+      c.getWeigher() != null ||
+      c.getRefreshAheadRateLimit() > 0 ||
+      c.getRefreshAheadPolicy() != null;
+  }
+
+  @Override
+  public V get(final K key) {
+    if (loader != null) {
+      return super.get(key);
+    }
+    return peek(key);
+  }
+
+  @Override
+  public V peek(final K key) {
+    Entry<K, V> e = hash.lookup(key, modifiedHash(key.hashCode()));
+    if (e == null) {
+      return null;
+    }
+    if (recordHits) {
+      eviction.recordHit(e);
+    }
+    if (e.hasFreshData(clock)) {
+      return returnValue(e);
+    }
+    return null;
+  }
+
+  /**
+   * Records the hit like {@link HeapCache#containsKey(Object)} does via the lookup.
+   */
+  @Override
+  public boolean containsKey(final K key) {
+    Entry<K, V> e = hash.lookup(key, modifiedHash(key.hashCode()));
+    if (e == null) {
+      return false;
+    }
+    if (recordHits) {
+      eviction.recordHit(e);
+    }
+    return e.hasFreshData(clock);
+  }
+
+  /**
+   * Skip hit recording also for the other operations doing a lookup, e.g. {@code peekAll}.
+   */
+  @Override
+  protected void recordHit(final Entry e) {
+    if (recordHits) {
+      eviction.recordHit(e);
+    }
+  }
+
+}
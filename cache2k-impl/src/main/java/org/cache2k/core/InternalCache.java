@@ -28,6 +28,8 @@ import org.cache2k.core.util.InternalClock;
 import org.cache2k.core.util.Log;
 import org.cache2k.core.storageApi.StorageAdapter;
 
+import java.util.List;
+
 /**
  * Interface to extended cache functions for the internal components.
  *
@@ -55,10 +57,24 @@ public interface InternalCache<K, V> extends Cache<K, V>, CanCheckIntegrity {
 
   void timerEventExpireEntry(Entry<K, V> e);
 
+  /**
+   * Batch variant of {@link #timerEventExpireEntry(Entry)}, for all entries whose
+   * expiry timer is due within the same timer tick.
+   */
+  void timerEventExpireEntries(List<Entry<K, V>> _entries);
+
   void timerEventProbationTerminated(Entry<K, V> e);
 
   void expireOrScheduleFinalExpireEvent(final Entry<K, V> e);
 
+  /**
+   * Iterate the valid cache entries like {@link #iterator()}. The iterator can be split
+   * into parts, which may be traversed in parallel. Removal via the iterator is done with
+   * the normal cache operation. Only the entries in the heap can be split, if a
+   * storage is attached, {@link SplittableIterator#trySplit()} returns {@code null}.
+   */
+  SplittableIterator<CacheEntry<K, V>> splitIterator();
+
   /**
    * Generate cache statistics. Some of the statistic values involve scanning portions
    * of the cache content. To prevent system stress e.g. monitoring there is a
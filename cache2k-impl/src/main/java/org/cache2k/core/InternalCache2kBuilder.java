@@ -25,6 +25,7 @@ import org.cache2k.CacheEntry;
 import org.cache2k.configuration.CustomizationSupplier;
 import org.cache2k.core.util.ClockDefaultImpl;
 import org.cache2k.core.util.InternalClock;
+import org.cache2k.core.util.TunableFactory;
 import org.cache2k.event.CacheEntryCreatedListener;
 import org.cache2k.event.CacheEntryExpiredListener;
 import org.cache2k.event.CacheEntryOperationListener;
@@ -33,9 +34,12 @@ import org.cache2k.event.CacheEntryUpdatedListener;
 import org.cache2k.Cache;
 import org.cache2k.configuration.Cache2kConfiguration;
 import org.cache2k.CacheManager;
+import org.cache2k.Weigher;
 import org.cache2k.core.event.AsyncDispatcher;
 import org.cache2k.core.event.AsyncEvent;
+import org.cache2k.core.concurrency.VirtualThreads;
 import org.cache2k.integration.AdvancedCacheLoader;
+import org.cache2k.integration.AsyncCacheLoader;
 import org.cache2k.integration.CacheLoader;
 import org.cache2k.integration.CacheWriter;
 import org.cache2k.integration.FunctionalCacheLoader;
@@ -65,6 +69,9 @@ public class InternalCache2kBuilder<K, V> {
       HeapCache.TUNABLE.threadFactoryProvider.newThreadFactory("cache2k-async"),
       new ThreadPoolExecutor.AbortPolicy());
 
+  private static Executor virtualThreadAsyncExecutor;
+  private static ThreadPoolExecutor maintenanceExecutor;
+
   private CacheManagerImpl manager;
   private Cache2kConfiguration<K, V> config;
 
@@ -98,6 +105,41 @@ public class InternalCache2kBuilder<K, V> {
     throw new IllegalArgumentException("name missing and automatic generation failed");
   }
 
+  /**
+   * Executor for asynchronous listeners, shared by all caches configured to use virtual threads.
+   */
+  private static synchronized Executor getVirtualThreadAsyncExecutor() {
+    if (virtualThreadAsyncExecutor == null) {
+      virtualThreadAsyncExecutor = VirtualThreads.newVirtualThreadExecutor("cache2k-async");
+    }
+    return virtualThreadAsyncExecutor;
+  }
+
+  /**
+   * Executor for internal maintenance tasks, like draining the read buffer or the async
+   * eviction, shared by all caches. It is separate from the executor for asynchronous
+   * listeners, so a backlog of listener calls does not delay the eviction. The threads
+   * terminate when idle. The queue is bounded, tasks are rejected if it is full.
+   *
+   * @see AbstractEviction.Tunable#maintenanceQueueThreadFactor
+   */
+  static synchronized Executor getMaintenanceExecutor() {
+    if (maintenanceExecutor == null) {
+      int _threadCount = Runtime.getRuntime().availableProcessors();
+      int _queueCapacity =
+        _threadCount * TunableFactory.get(AbstractEviction.Tunable.class).maintenanceQueueThreadFactor;
+      ThreadPoolExecutor ex = new ThreadPoolExecutor(
+        _threadCount, _threadCount,
+        21, TimeUnit.SECONDS,
+        new LinkedBlockingDeque<Runnable>(_queueCapacity),
+        HeapCache.TUNABLE.threadFactoryProvider.newThreadFactory("cache2k-maintenance"),
+        new ThreadPoolExecutor.AbortPolicy());
+      ex.allowCoreThreadTimeOut(true);
+      maintenanceExecutor = ex;
+    }
+    return maintenanceExecutor;
+  }
+
   /**
    * The generic wiring code is not working on android.
    * Explicitly call the wiring methods.
@@ -114,6 +156,9 @@ public class InternalCache2kBuilder<K, V> {
             return _loader.load(key);
           }
         });
+        if (config.getAdvancedLoader() == null && isLoadAllImplemented(_loader)) {
+          c.setBulkLoader(_loader);
+        }
       } else {
         final FunctionalCacheLoader<K,V> _loader = (FunctionalCacheLoader) obj;
         c.setAdvancedLoader(new AdvancedCacheLoader<K, V>() {
@@ -127,10 +172,38 @@ public class InternalCache2kBuilder<K, V> {
     if (config.getAdvancedLoader() != null) {
       c.setAdvancedLoader(c.createCustomization(config.getAdvancedLoader()));
     }
+    if (config.getAsyncLoader() != null) {
+      AsyncCacheLoader<K,V> _asyncLoader = c.createCustomization(config.getAsyncLoader());
+      c.setAsyncLoader(_asyncLoader);
+      c.setAdvancedLoader(new AsyncCacheLoaderAdapter<K, V>(c, _asyncLoader));
+    }
     if (config.getExceptionPropagator() != null) {
       c.setExceptionPropagator(c.createCustomization(config.getExceptionPropagator()));
     }
     c.setCacheConfig(config);
+    if (config.getLoaderBatchWindow() > 0) {
+      if (c.bulkLoader == null) {
+        throw new IllegalArgumentException("loaderBatchWindow requires a CacheLoader implementing loadAll");
+      }
+      if (config.getLoaderBatchSize() < 1) {
+        throw new IllegalArgumentException("loaderBatchSize must be positive");
+      }
+      c.setAdvancedLoader(new BatchingCacheLoader<K, V>(
+        c, c.bulkLoader, config.getLoaderBatchWindow(), config.getLoaderBatchSize()));
+    }
+  }
+
+  /**
+   * The default implementation of {@link CacheLoader#loadAll} throws an exception.
+   * Only use bulk loading, if the loader provides its own implementation.
+   */
+  static boolean isLoadAllImplemented(CacheLoader<?, ?> _loader) {
+    try {
+      return _loader.getClass().getMethod("loadAll", Iterable.class, Executor.class)
+        .getDeclaringClass() != CacheLoader.class;
+    } catch (NoSuchMethodException ex) {
+      return false;
+    }
   }
 
   private HeapCache<K, V> constructImplementationAndFillParameters(Class<?> cls) {
@@ -165,6 +238,9 @@ public class InternalCache2kBuilder<K, V> {
     }
     checkConfiguration();
     Class<?> _implClass = HeapCache.TUNABLE.defaultImplementation;
+    if (_implClass == HeapCache.class && config.isDisableStatistics()) {
+      _implClass = HeapCacheWithoutStatistics.class;
+    }
     InternalCache<K, V> _cache = constructImplementationAndFillParameters(_implClass);
     InternalClock _timeReference = (InternalClock) _cache.createCustomization(config.getClock());
     if (_timeReference == null) {
@@ -224,6 +300,8 @@ public class InternalCache2kBuilder<K, V> {
         Executor _executor = DEFAULT_ASYNC_EXECUTOR;
         if (config.getAsyncListenerExecutor() != null) {
           _executor = _cache.createCustomization(config.getAsyncListenerExecutor());
+        } else if (config.isVirtualThreads() && VirtualThreads.isSupported()) {
+          _executor = getVirtualThreadAsyncExecutor();
         }
         AsyncDispatcher<K> _asyncDispatcher = new AsyncDispatcher<K>(wc, _executor);
         List<CacheEntryCreatedListener<K, V>> cll = new ArrayList<CacheEntryCreatedListener<K, V>>();
@@ -292,12 +370,16 @@ public class InternalCache2kBuilder<K, V> {
    * If capacity is at least 1000 we use 2 segments if 2 or more CPUs are available.
    * Segmenting the eviction only improves for lots of concurrent inserts or evictions,
    * there is no effect on read performance.
+   *
+   * <p>If a weigher is present the maximum weight is the capacity and is divided over
+   * the segments, the entry capacity is ignored.
    */
   private Eviction constructEviction(HeapCache hc, HeapCacheListener l, Cache2kConfiguration config) {
     final boolean _strictEviction = config.isStrictEviction();
     final int _availableProcessors = Runtime.getRuntime().availableProcessors();
     final boolean _boostConcurrency = config.isBoostConcurrency();
-    final long _entryCapacity = config.getEntryCapacity();
+    final Weigher _weigher = (Weigher) hc.createCustomization(config.getWeigher());
+    final long _entryCapacity = _weigher != null ? config.getMaximumWeight() : config.getEntryCapacity();
     final int _segmentCountOverride = HeapCache.TUNABLE.segmentCountOverride;
     int _segmentCount = determineSegmentCount(_strictEviction, _availableProcessors, _boostConcurrency, _entryCapacity, _segmentCountOverride);
     Eviction[] _segments = new Eviction[_segmentCount];
@@ -307,8 +389,18 @@ public class InternalCache2kBuilder<K, V> {
     } else if (_entryCapacity % _segmentCount > 0) {
       _maxSize++;
     }
+    AbstractEviction.Tunable _tunable = TunableFactory.get(AbstractEviction.Tunable.class);
     for (int i = 0; i < _segments.length; i++) {
-      Eviction ev = new ClockProPlusEviction(hc, l, _maxSize);
+      AbstractEviction ev;
+      if (_weigher != null) {
+        ev = new ClockProPlusEviction(hc, l, _weigher, _maxSize);
+      } else {
+        ev = new ClockProPlusEviction(hc, l, _maxSize);
+      }
+      ev.setMaintenanceExecutor(getMaintenanceExecutor());
+      if (_tunable.asyncEviction) {
+        ev.enableAsyncEviction(getMaintenanceExecutor(), _tunable.asyncEvictionMarginPercent);
+      }
       _segments[i] = ev;
     }
     if (_segmentCount == 1) {
@@ -345,6 +437,12 @@ public class InternalCache2kBuilder<K, V> {
         config.getExpiryPolicy() == null) {
       throw new IllegalArgumentException("not eternal is set, but expire value is missing");
     }
+    if (config.getWeigher() != null && config.getMaximumWeight() < 0) {
+      throw new IllegalArgumentException("weigher is set, but maximum weight is missing");
+    }
+    if (config.getWeigher() == null && config.getMaximumWeight() >= 0) {
+      throw new IllegalArgumentException("maximum weight is set, but weigher is missing");
+    }
   }
 
   static class AsyncCreatedListener<K,V> implements CacheEntryCreatedListener<K,V> {
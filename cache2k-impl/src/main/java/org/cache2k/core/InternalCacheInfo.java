@@ -51,10 +51,21 @@ public interface InternalCacheInfo {
   long getSize();
 
   /**
-   * Configured limit of the total cache entry capacity.
+   * Configured limit of the total cache entry capacity. {@link Long#MAX_VALUE} if the capacity
+   * is unlimited or limited by the weight, see {@link #getMaximumWeight()}.
    */
   long getHeapCapacity();
 
+  /**
+   * Configured limit of the total weight, or -1 if no weigher is present.
+   */
+  long getMaximumWeight();
+
+  /**
+   * Sum of the weights of the entries, 0 if no weigher is present.
+   */
+  long getTotalWeight();
+
   /** To be removed. */
   long getStorageHitCnt();
 
@@ -254,6 +265,17 @@ public interface InternalCacheInfo {
    */
   int getHashLongestSlotSize();
 
+  /**
+   * Number of entries in the least filled segment of the hash table.
+   */
+  long getHashSegmentMinSize();
+
+  /**
+   * Number of entries in the most filled segment of the hash table. A high value compared to
+   * {@link #getHashSegmentMinSize()} indicates a skewed key distribution.
+   */
+  long getHashSegmentMaxSize();
+
   /**
    * Average duration in milliseconds for each load operation.
    */
@@ -321,4 +343,41 @@ public interface InternalCacheInfo {
    */
   int getLoaderThreadsMaxActive();
 
+  /**
+   * Average time in microseconds a load waited for a loader thread.
+   * 0 if not the adaptive loader thread pool is used.
+   */
+  long getLoaderQueueWaitMicrosAvg();
+
+  /**
+   * Maximum time in microseconds a load waited for a loader thread.
+   * 0 if not the adaptive loader thread pool is used.
+   */
+  long getLoaderQueueWaitMicrosMax();
+
+  /**
+   * Latencies of loads, {@code null} if latency histograms are not enabled.
+   */
+  LatencyHistogram.Snapshot getLoadLatency();
+
+  /**
+   * Latencies of refreshes, {@code null} if latency histograms are not enabled.
+   */
+  LatencyHistogram.Snapshot getRefreshLatency();
+
+  /**
+   * Latencies of the writer calls, {@code null} if latency histograms are not enabled.
+   */
+  LatencyHistogram.Snapshot getWriterLatency();
+
+  /**
+   * Latencies of the eviction runs, {@code null} if latency histograms are not enabled.
+   */
+  LatencyHistogram.Snapshot getEvictionLatency();
+
+  /**
+   * Percentiles of all latency histograms, or {@code null} if not enabled.
+   */
+  String getLatencyPercentiles();
+
 }
@@ -0,0 +1,161 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of latencies in nanoseconds with log-linear buckets. Each power
+ * of two range is divided in 16 linear sub buckets, so a recorded value is represented with
+ * a relative error below 6.25%. Values below 32 nanoseconds are exact. Values above
+ * 2^40 nanoseconds, about 18 minutes, are counted in the last bucket.
+ *
+ * <p>Recording a value increments one counter and does not allocate. Percentiles
+ * are calculated from a {@link Snapshot}.
+ *
+ * @author Jens Wilke
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_BITS = 40;
+  static final int BUCKET_COUNT = (MAX_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+  public void record(final long _nanos) {
+    counts.incrementAndGet(bucketIndex(_nanos));
+  }
+
+  /**
+   * Record the time since the start time, taken via {@link System#nanoTime()}.
+   */
+  public void recordSince(final long _startNanos) {
+    record(System.nanoTime() - _startNanos);
+  }
+
+  public Snapshot snapshot() {
+    long[] _counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      _counts[i] = counts.get(i);
+    }
+    return new Snapshot(_counts);
+  }
+
+  static int bucketIndex(final long v) {
+    if (v < SUB_BUCKET_COUNT) {
+      return v < 0 ? 0 : (int) v;
+    }
+    int _exponent = 63 - Long.numberOfLeadingZeros(v);
+    if (_exponent >= MAX_BITS) {
+      return BUCKET_COUNT - 1;
+    }
+    int _subBucket = (int) (v >>> (_exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+    return (_exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + _subBucket;
+  }
+
+  /**
+   * Highest value that is counted in the bucket.
+   */
+  static long bucketMaximum(final int idx) {
+    if (idx < SUB_BUCKET_COUNT) {
+      return idx;
+    }
+    int _shift = idx / SUB_BUCKET_COUNT - 1;
+    long _lower = (long) (SUB_BUCKET_COUNT + idx % SUB_BUCKET_COUNT) << _shift;
+    return _lower + (1L << _shift) - 1;
+  }
+
+  /**
+   * Copy of the histogram counts at one point in time.
+   */
+  public static class Snapshot {
+
+    private final long[] counts;
+    private final long count;
+
+    Snapshot(final long[] _counts) {
+      counts = _counts;
+      long _sum = 0;
+      for (long c : _counts) {
+        _sum += c;
+      }
+      count = _sum;
+    }
+
+    /**
+     * Number of recorded values.
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * The value in nanoseconds below or equal to which the given percentage of the recorded
+     * values fall. The value is the upper bound of the bucket. 0 if nothing was recorded.
+     *
+     * @param _percentile percentile between 0 and 100, e.g. 99.9
+     */
+    public long getValueAtPercentile(final double _percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      long _rank = Math.max(1, (long) Math.ceil(_percentile / 100 * count));
+      long _sum = 0;
+      for (int i = 0; i < counts.length; i++) {
+        _sum += counts[i];
+        if (_sum >= _rank) {
+          return bucketMaximum(i);
+        }
+      }
+      return getMax();
+    }
+
+    /**
+     * Upper bound of the bucket holding the highest recorded value. 0 if nothing was recorded.
+     */
+    public long getMax() {
+      for (int i = counts.length - 1; i >= 0; i--) {
+        if (counts[i] > 0) {
+          return bucketMaximum(i);
+        }
+      }
+      return 0;
+    }
+
+    /**
+     * Count, median, 99th and 99.9th percentile and maximum in microseconds.
+     */
+    @Override
+    public String toString() {
+      return
+        "count=" + count +
+        ", p50=" + getValueAtPercentile(50) / 1000 +
+        "us, p99=" + getValueAtPercentile(99) / 1000 +
+        "us, p999=" + getValueAtPercentile(99.9) / 1000 +
+        "us, max=" + getMax() / 1000 + "us";
+    }
+
+  }
+
+}
@@ -0,0 +1,314 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.core.concurrency.OptimisticLock;
+
+import java.util.List;
+
+/**
+ * Hash table with open addressing and linear probing. The modified hash codes
+ * are kept in a parallel {@code int} array, so a lookup only touches the entry object
+ * if the hash code matches. Missing keys are detected by scanning the hash code
+ * array only, which avoids the pointer chasing of the collision chain in {@link Hash2}.
+ *
+ * <p>Each lock segment has its own table, so a probe sequence never crosses into a
+ * slot guarded by another segment lock and the optimistic locking protocol of
+ * {@link Hash2} stays intact. An empty slot has a {@code null} entry. Removal does
+ * backward shifting, so no tombstones are needed.
+ *
+ * @author Jens Wilke
+ */
+@SuppressWarnings({"WeakerAccess", "unchecked"})
+public class OpenHash2<K,V> extends Hash2<K,V> {
+
+  /**
+   * Modified hash codes of the entries at the same index in the segment table.
+   * Not initialized here, since this is filled by {@link #allocateSegment(int, int)} within
+   * the constructor of the super class.
+   */
+  private int[][] hashTables;
+
+  @Override
+  protected void allocateSegment(int si, int _length) {
+    super.allocateSegment(si, _length);
+    if (hashTables == null) {
+      hashTables = new int[LOCK_SEGMENTS][];
+    }
+    hashTables[si] = new int[_length];
+  }
+
+  /**
+   * Expand before a segment is full, also with a configured load of 100 percent.
+   */
+  @Override
+  protected long maxFill(int _length) {
+    return Math.min(super.maxFill(_length), _length - 1);
+  }
+
+  @Override
+  public Entry<K,V> lookup(K key, int _hash) {
+    int si = _hash & LOCK_MASK;
+    OptimisticLock l = locks[si];
+    long _stamp = l.tryOptimisticRead();
+    int[] hs = hashTables[si];
+    Entry<K,V>[] tab = tables[si];
+    if (tab == null) {
+      throw new CacheClosedException();
+    }
+    if (hs != null && hs.length == tab.length) {
+      Entry<K,V> e = find(tab, hs, key, _hash);
+      if (e != null) {
+        return e;
+      }
+      if (l.validate(_stamp)) {
+        return null;
+      }
+    }
+    _stamp = l.readLock();
+    try {
+      tab = tables[si];
+      if (tab == null) {
+        throw new CacheClosedException();
+      }
+      return find(tab, hashTables[si], key, _hash);
+    } finally {
+      l.unlockRead(_stamp);
+    }
+  }
+
+  /**
+   * Probe the segment table for the key. The number of probes is limited to the
+   * table length, so an inconsistent table seen by an optimistic read cannot
+   * lead to an endless loop.
+   */
+  private static <K,V> Entry<K,V> find(Entry<K,V>[] tab, int[] hs, Object key, int _hash) {
+    int _mask = tab.length - 1;
+    int idx = (_hash >>> LOCK_BITS) & _mask;
+    int _probes = tab.length;
+    Entry<K,V> e; Object ek; int h;
+    do {
+      h = hs[idx];
+      if (h == _hash || h == 0) {
+        e = tab[idx];
+        if (e == null) {
+          return null;
+        }
+        if (e.hashCode == _hash && ((ek = e.key) == key || ek.equals(key))) {
+          return e;
+        }
+      }
+      idx = (idx + 1) & _mask;
+    } while (--_probes > 0);
+    return null;
+  }
+
+  /**
+   * Inserting is refused if only one free slot would be left, so a probe sequence
+   * always ends at an empty slot, which is needed by {@link #removeWithinLock(Entry, int)}.
+   *
+   * @return the inserted entry, the existing entry or {@code null} if no free slot is
+   *         left in the segment, because concurrent inserts were faster then the expansion
+   */
+  @Override
+  public Entry<K,V> insertWithinLock(Entry<K,V> e, int _hash) {
+    K key = e.key;
+    int si = _hash & LOCK_MASK;
+    Entry<K,V>[] tab = tables[si];
+    if (tab == null) {
+      throw new CacheClosedException();
+    }
+    int[] hs = hashTables[si];
+    int _mask = tab.length - 1;
+    int idx = (_hash >>> LOCK_BITS) & _mask;
+    int _probes = tab.length;
+    Entry<K,V> f; Object ek;
+    do {
+      f = tab[idx];
+      if (f == null) {
+        if (segmentSize[si].get() >= tab.length - 1) {
+          return null;
+        }
+        hs[idx] = _hash;
+        tab[idx] = e;
+        segmentSize[si].incrementAndGet();
+        return e;
+      }
+      if (hs[idx] == _hash && ((ek = f.key) == key || ek.equals(key))) {
+        return f;
+      }
+      idx = (idx + 1) & _mask;
+    } while (--_probes > 0);
+    return null;
+  }
+
+  /**
+   * Remove the entry and shift following entries of the probe sequence backwards
+   * to close the gap.
+   */
+  @Override
+  public boolean removeWithinLock(Entry<K,V> e, int _hash) {
+    int si = _hash & LOCK_MASK;
+    Entry<K,V>[] tab = tables[si];
+    if (tab == null) {
+      throw new CacheClosedException();
+    }
+    int[] hs = hashTables[si];
+    int _mask = tab.length - 1;
+    int _hole = (_hash >>> LOCK_BITS) & _mask;
+    int _probes = tab.length;
+    Entry<K,V> f;
+    for (;;) {
+      f = tab[_hole];
+      if (f == e) {
+        break;
+      }
+      if (f == null || --_probes == 0) {
+        return false;
+      }
+      _hole = (_hole + 1) & _mask;
+    }
+    int i = _hole;
+    for (int _shifts = tab.length - 1; _shifts > 0; _shifts--) {
+      i = (i + 1) & _mask;
+      f = tab[i];
+      if (f == null) {
+        break;
+      }
+      int _home = (hs[i] >>> LOCK_BITS) & _mask;
+      boolean _inPlace =
+        _hole <= i ? (_hole < _home && _home <= i) : (_hole < _home || _home <= i);
+      if (!_inPlace) {
+        hs[_hole] = hs[i];
+        tab[_hole] = f;
+        _hole = i;
+      }
+    }
+    tab[_hole] = null;
+    hs[_hole] = 0;
+    segmentSize[si].decrementAndGet();
+    checkShrink(si);
+    return true;
+  }
+
+  /**
+   * Change the size of the segment table and insert the entries again.
+   * Assumes segment lock.
+   */
+  @Override
+  protected void resizeSegment(int si, int _length) {
+    Entry<K,V>[] src = tables[si];
+    int[] _srcHashes = hashTables[si];
+    allocateSegment(si, _length);
+    Entry<K,V>[] tab = tables[si];
+    int[] hs = hashTables[si];
+    int _mask = tab.length - 1;
+    for (int i = 0; i < src.length; i++) {
+      Entry<K,V> e = src[i];
+      if (e == null) {
+        continue;
+      }
+      int _hash = _srcHashes[i];
+      int idx = (_hash >>> LOCK_BITS) & _mask;
+      while (tab[idx] != null) {
+        idx = (idx + 1) & _mask;
+      }
+      hs[idx] = _hash;
+      tab[idx] = e;
+    }
+  }
+
+  /**
+   * Entries with the home slot {@code idx} are within the probe sequence following it,
+   * which ends at the first empty slot.
+   */
+  @Override
+  protected void collectSlot(Entry<K,V>[] tab, int idx, long _position, List<Entry<K,V>> _result) {
+    int _mask = tab.length - 1;
+    int i = idx;
+    int _probes = tab.length;
+    Entry<K,V> e;
+    do {
+      e = tab[i];
+      if (e == null) {
+        return;
+      }
+      if (((e.hashCode >>> LOCK_BITS) & _mask) == idx && position(e.hashCode) >= _position) {
+        _result.add(e);
+      }
+      i = (i + 1) & _mask;
+    } while (--_probes > 0);
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    for (int si = 0; si < LOCK_SEGMENTS; si++) {
+      hashTables[si] = null;
+    }
+  }
+
+  /**
+   * A collision is an entry that is not placed in its home slot. The collision slot
+   * count is the number of probe sequences longer then one.
+   */
+  @Override
+  protected void calcSegmentCollisionInfo(int si, CollisionInfo inf) {
+    Entry<K,V>[] tab = tables[si];
+    int[] hs = hashTables[si];
+    int _mask = tab.length - 1;
+    int _run = 0;
+    for (int i = 0; i < tab.length; i++) {
+      if (tab[i] == null) {
+        if (_run > 1) {
+          inf.collisionSlotCnt++;
+        }
+        _run = 0;
+        continue;
+      }
+      _run++;
+      int _distance = (i - ((hs[i] >>> LOCK_BITS) & _mask)) & _mask;
+      if (_distance > 0) {
+        inf.collisionCnt++;
+        if (inf.longestCollisionSize < _distance + 1) {
+          inf.longestCollisionSize = _distance + 1;
+        }
+      }
+    }
+    if (_run > 1) {
+      inf.collisionSlotCnt++;
+    }
+  }
+
+  @Override
+  public long calcEntryCount() {
+    long _count = 0;
+    for (Entry<K,V>[] tab : tables) {
+      for (Entry e : tab) {
+        if (e != null) {
+          _count++;
+        }
+      }
+    }
+    return _count;
+  }
+
+}
@@ -0,0 +1,130 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.CacheOperationCompletionListener;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Future for an asynchronous cache operation, which is completed by the cache
+ * and notifies the optional completion listener after completion. Cancellation
+ * is not supported.
+ *
+ * @author Jens Wilke
+ */
+public class OperationFuture<V> implements Future<V> {
+
+  private final CacheOperationCompletionListener listener;
+  private boolean done;
+  private V value;
+  private Throwable exception;
+
+  public OperationFuture(final CacheOperationCompletionListener _listener) {
+    listener = _listener;
+  }
+
+  /**
+   * Complete with the value and notify the listener. Only the first completion
+   * has an effect.
+   */
+  public void complete(V v) {
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+      value = v;
+      done = true;
+      notifyAll();
+    }
+    if (listener != null) {
+      listener.onCompleted();
+    }
+  }
+
+  /**
+   * Complete with an exception and notify the listener. Only the first completion
+   * has an effect.
+   */
+  public void completeExceptionally(Throwable t) {
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+      exception = t;
+      done = true;
+      notifyAll();
+    }
+    if (listener != null) {
+      listener.onException(t);
+    }
+  }
+
+  @Override
+  public boolean cancel(final boolean mayInterruptIfRunning) {
+    return false;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return false;
+  }
+
+  @Override
+  public synchronized boolean isDone() {
+    return done;
+  }
+
+  @Override
+  public synchronized V get() throws InterruptedException, ExecutionException {
+    while (!done) {
+      wait();
+    }
+    return result();
+  }
+
+  @Override
+  public synchronized V get(final long timeout, final TimeUnit unit)
+    throws InterruptedException, ExecutionException, TimeoutException {
+    long _waitNanos = unit.toNanos(timeout);
+    long _deadline = System.nanoTime() + _waitNanos;
+    while (!done) {
+      if (_waitNanos <= 0) {
+        throw new TimeoutException();
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, _waitNanos);
+      _waitNanos = _deadline - System.nanoTime();
+    }
+    return result();
+  }
+
+  private V result() throws ExecutionException {
+    if (exception != null) {
+      throw new ExecutionException(exception);
+    }
+    return value;
+  }
+
+}
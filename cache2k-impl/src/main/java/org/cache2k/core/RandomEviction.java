@@ -46,13 +46,17 @@ public class RandomEviction extends AbstractEviction {
 
   @Override
   protected Entry findEvictionCandidate(Entry _previous) {
-    Entry[] h0 = heapCache.hash.getEntries();
+    Hash2 _hash = heapCache.hash;
+    int si = evictionIndex % _hash.getSegmentCount();
+    Entry[] h0 = _hash.getSegmentTable(si);
     int idx = evictionIndex % (h0.length);
     Entry e;
     while ((e = h0[idx]) == null) {
       idx++;
       if (idx >= h0.length) {
         idx = 0;
+        si = (si + 1) % _hash.getSegmentCount();
+        h0 = _hash.getSegmentTable(si);
       }
     }
     evictionIndex += e.hashCode;
@@ -68,7 +72,7 @@ public class RandomEviction extends AbstractEviction {
   }
 
   @Override
-  public long removeAll() {
+  protected long removeAllFromReplacementList() {
     long _count = 0;
     Entry _head = head;
     Entry e = head.prev;
@@ -0,0 +1,135 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Striped and lossy ring buffer for entry accesses. Reading threads record an access
+ * without taking the eviction lock. The recorded accesses are applied to the hit counter
+ * of the entry in a batch when the eviction lock is held. Counting the hits with a single
+ * writer makes the frequency information for the eviction algorithm accurate, while
+ * the racy increment of the hit counter loses counts when multiple cores access the
+ * same entry.
+ *
+ * <p>The stripe is selected by the thread id. An offer fails if the stripe is full or
+ * another thread wins the race for the slot. The caller needs to fall back to the
+ * direct counter increment and should drain the buffer.
+ *
+ * @author Jens Wilke
+ */
+public class ReadBuffer {
+
+  private static final int STRIPE_SIZE = 16;
+  private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+
+  private final Stripe[] stripes;
+  private final int stripeMask;
+
+  public ReadBuffer() {
+    int _ncpu = Runtime.getRuntime().availableProcessors();
+    int _stripeCount = 2 << (31 - Integer.numberOfLeadingZeros(_ncpu));
+    stripes = new Stripe[_stripeCount];
+    for (int i = 0; i < _stripeCount; i++) {
+      stripes[i] = new Stripe();
+    }
+    stripeMask = _stripeCount - 1;
+  }
+
+  /**
+   * Record the access of the entry.
+   *
+   * @return {@code false}, if the access was not recorded and the buffer should be drained
+   */
+  public boolean offer(Entry e) {
+    long _id = Thread.currentThread().getId();
+    Stripe s = stripes[(int) (_id ^ (_id >>> 7)) & stripeMask];
+    long _head = s.readCounter;
+    long _tail = s.writeCounter.get();
+    if (_tail - _head >= STRIPE_SIZE) {
+      return false;
+    }
+    if (s.writeCounter.compareAndSet(_tail, _tail + 1)) {
+      s.buffer.lazySet((int) _tail & STRIPE_MASK, e);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Apply the recorded accesses to the entry hit counters. Only one thread may drain
+   * at a time, this is ensured by holding the eviction lock.
+   *
+   * @return number of accesses drained
+   */
+  public int drain() {
+    return drain(null);
+  }
+
+  /**
+   * Apply the recorded accesses and pass each access to the recorder, if present.
+   *
+   * @return number of accesses drained
+   */
+  public int drain(AccessRecorder _recorder) {
+    int _count = 0;
+    for (Stripe s : stripes) {
+      long _head = s.readCounter;
+      long _tail = s.writeCounter.get();
+      AtomicReferenceArray<Entry> _buffer = s.buffer;
+      for (; _head < _tail; _head++) {
+        int idx = (int) _head & STRIPE_MASK;
+        Entry e = _buffer.get(idx);
+        if (e == null) {
+          break;
+        }
+        _buffer.lazySet(idx, null);
+        e.hitCnt++;
+        if (_recorder != null) {
+          _recorder.recordAccess(e);
+        }
+        _count++;
+      }
+      s.readCounter = _head;
+    }
+    return _count;
+  }
+
+  /**
+   * Receives the drained accesses, e.g. to update a frequency sketch, which is not
+   * thread safe. Called with the eviction lock held.
+   */
+  public interface AccessRecorder {
+
+    void recordAccess(Entry e);
+
+  }
+
+  static class Stripe {
+
+    final AtomicReferenceArray<Entry> buffer = new AtomicReferenceArray<Entry>(STRIPE_SIZE);
+    final AtomicLong writeCounter = new AtomicLong();
+    volatile long readCounter;
+
+  }
+
+}
@@ -0,0 +1,67 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+/**
+ * Token bucket limiting the number of refreshes per second. The bucket holds the
+ * budget of one second. Cold entries only get a permit if more than half of the budget
+ * is left, so refreshes of entries with hits are preferred when the limit is reached.
+ *
+ * @author Jens Wilke
+ */
+public class RefreshRateLimiter {
+
+  private final double permitsPerMilli;
+  private final double capacity;
+  private double available;
+  private long lastRefillMillis;
+
+  public RefreshRateLimiter(int _permitsPerSecond) {
+    if (_permitsPerSecond < 1) {
+      throw new IllegalArgumentException("permits per second must be positive");
+    }
+    capacity = _permitsPerSecond;
+    permitsPerMilli = _permitsPerSecond / 1000.0;
+    available = capacity;
+  }
+
+  /**
+   * Take one permit, if available.
+   *
+   * @param _now current time in millis
+   * @param _cold the entry had no hits recently and gets a permit with lower priority
+   * @return true if the refresh may start
+   */
+  public synchronized boolean tryAcquire(long _now, boolean _cold) {
+    if (_now > lastRefillMillis) {
+      available = Math.min(capacity, available + (_now - lastRefillMillis) * permitsPerMilli);
+      lastRefillMillis = _now;
+    }
+    double _reserve = _cold ? capacity / 2 : 0;
+    if (available - _reserve < 1) {
+      return false;
+    }
+    available--;
+    return true;
+  }
+
+}
@@ -53,6 +53,40 @@ public class SegmentedEviction implements Eviction, EvictionMetrics {
     return sgs[idx].submitWithoutEviction(e);
   }
 
+  @Override
+  public void submitWithoutEviction(final Entry[] _entries, final int _count) {
+    Eviction[] sgs = segments;
+    int _mask = sgs.length - 1;
+    Entry[] _segmentEntries = new Entry[_count];
+    for (int idx = 0; idx < sgs.length; idx++) {
+      int n = 0;
+      for (int i = 0; i < _count; i++) {
+        if ((_entries[i].hashCode & _mask) == idx) {
+          _segmentEntries[n++] = _entries[i];
+        }
+      }
+      if (n > 0) {
+        sgs[idx].submitWithoutEviction(_segmentEntries, n);
+      }
+    }
+  }
+
+  @Override
+  public void recordHit(final Entry e) {
+    Eviction[] sgs = segments;
+    int _mask = sgs.length - 1;
+    int idx = e.hashCode & _mask;
+    sgs[idx].recordHit(e);
+  }
+
+  @Override
+  public void updateWeight(final Entry e) {
+    Eviction[] sgs = segments;
+    int _mask = sgs.length - 1;
+    int idx = e.hashCode & _mask;
+    sgs[idx].updateWeight(e);
+  }
+
   @Override
   public void evictEventually(int hc) {
     Eviction[] sgs = segments;
@@ -68,6 +102,13 @@ public class SegmentedEviction implements Eviction, EvictionMetrics {
     }
   }
 
+  @Override
+  public void evictEventuallyAfterBulkInsert() {
+    for (Eviction ev : segments) {
+      ev.evictEventuallyAfterBulkInsert();
+    }
+  }
+
   @Override
   public long removeAll() {
     long _count = 0;
@@ -225,6 +266,28 @@ public class SegmentedEviction implements Eviction, EvictionMetrics {
     return sum;
   }
 
+  @Override
+  public long getTotalWeight() {
+    long sum = 0;
+    for (Eviction ev : segments) {
+      sum += ev.getMetrics().getTotalWeight();
+    }
+    return sum;
+  }
+
+  @Override
+  public long getMaxWeight() {
+    long sum = 0;
+    for (Eviction ev : segments) {
+      long l = ev.getMetrics().getMaxWeight();
+      if (l < 0) {
+        return -1;
+      }
+      sum += l;
+    }
+    return sum;
+  }
+
   @Override
   public int getEvictionRunningCount() {
     int sum = 0;
@@ -0,0 +1,47 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Iterator;
+
+/**
+ * Iterator that can be split into parts for a parallel traversal. A {@code Spliterator}
+ * on Java 8 can be built on top of it, e.g. to provide a parallel stream of the cache entries.
+ *
+ * @author Jens Wilke
+ * @see InternalCache#splitIterator()
+ */
+public interface SplittableIterator<T> extends Iterator<T> {
+
+  /**
+   * Split off a part of the remaining elements to a new iterator. The elements of the
+   * returned iterator are not returned by this iterator any more.
+   *
+   * @return iterator over the split off elements or {@code null}, if not splittable
+   */
+  SplittableIterator<T> trySplit();
+
+  /**
+   * Estimated number of remaining elements or {@link Long#MAX_VALUE} if unknown.
+   */
+  long estimateSize();
+
+}
@@ -20,6 +20,9 @@ package org.cache2k.core;
  * #L%
  */
 
+import org.cache2k.core.util.TunableConstants;
+import org.cache2k.core.util.TunableFactory;
+
 /**
  * Standard factory for metrics.
  *
@@ -27,12 +30,28 @@ package org.cache2k.core;
  */
 public class StandardCommonMetricsFactory implements CommonMetricsFactory {
 
+  private static final Tunable TUNABLE = TunableFactory.get(Tunable.class);
+
   @Override
   public CommonMetrics.Updater create(final Parameters p) {
     if (p.isDisabled()) {
       return new CommonMetrics.BlackHole();
     }
+    if (TUNABLE.stripedCounters) {
+      return new StripedCommonMetrics();
+    }
     return new StandardCommonMetrics();
   }
 
+  public static class Tunable extends TunableConstants {
+
+    /**
+     * Use {@link StripedCommonMetrics}, which avoids contention on the counters when many
+     * threads update the cache concurrently, at the cost of more memory per cache.
+     * Default: false.
+     */
+    public boolean stripedCounters = false;
+
+  }
+
 }
@@ -0,0 +1,321 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Metrics with striped counters. Each thread updates the cells of the stripe selected by
+ * its thread id, so concurrent writers do not contend on the same cache line. The cells of
+ * the stripes are separated by padding to avoid false sharing. A counter value is the sum of
+ * its cells, which is only calculated when the value is requested, e.g. for the statistics.
+ *
+ * <p>The counters need more memory than the {@link StandardCommonMetrics}, and reading a value
+ * is more expensive. This pays off with many cores writing concurrently.
+ *
+ * @author Jens Wilke
+ * @see StandardCommonMetricsFactory.Tunable#stripedCounters
+ */
+public class StripedCommonMetrics implements CommonMetrics.Updater {
+
+  private static final int PUT_NEW_ENTRY = 0;
+  private static final int PUT_HIT = 1;
+  private static final int PUT_NO_READ_HIT = 2;
+  private static final int HEAP_HIT_BUT_NO_READ = 3;
+  private static final int TIMER_EVENT = 4;
+  private static final int LOAD_EXCEPTION = 5;
+  private static final int SUPPRESSED_EXCEPTION = 6;
+  private static final int EXPIRED_KEPT = 7;
+  private static final int PEEK_MISS = 8;
+  private static final int PEEK_HIT_NOT_FRESH = 9;
+  private static final int REFRESHED_HIT = 10;
+  private static final int REFRESH_FAILED = 11;
+  private static final int GONE_SPIN = 12;
+  private static final int LOAD = 13;
+  private static final int RELOAD = 14;
+  private static final int REFRESH = 15;
+  private static final int LOAD_MILLIS = 16;
+  private static final int COUNTER_COUNT = 17;
+
+  /**
+   * Cells between the counters of two stripes. 16 longs are 128 bytes, which covers
+   * the adjacent cache line prefetch.
+   */
+  private static final int PADDING = 16;
+  private static final int STRIDE = COUNTER_COUNT + PADDING;
+
+  private final AtomicLongArray cells;
+  private final int stripeMask;
+
+  public StripedCommonMetrics() {
+    this(2 << (31 - Integer.numberOfLeadingZeros(Runtime.getRuntime().availableProcessors())));
+  }
+
+  /**
+   * @param _stripeCount number of stripes, needs to be a power of two
+   */
+  public StripedCommonMetrics(final int _stripeCount) {
+    if (Integer.bitCount(_stripeCount) != 1) {
+      throw new IllegalArgumentException("stripe count needs to be a power of two");
+    }
+    stripeMask = _stripeCount - 1;
+    cells = new AtomicLongArray(PADDING + _stripeCount * STRIDE);
+  }
+
+  private void add(final int _counter, final long _delta) {
+    long _id = Thread.currentThread().getId();
+    int _stripe = (int) (_id ^ (_id >>> 7)) & stripeMask;
+    cells.getAndAdd(PADDING + _stripe * STRIDE + _counter, _delta);
+  }
+
+  private long sum(final int _counter) {
+    long _sum = 0;
+    for (int i = PADDING + _counter; i < cells.length(); i += STRIDE) {
+      _sum += cells.get(i);
+    }
+    return _sum;
+  }
+
+  @Override
+  public void putNewEntry() {
+    add(PUT_NEW_ENTRY, 1);
+  }
+  @Override
+  public void putNewEntry(final long cnt) {
+    add(PUT_NEW_ENTRY, cnt);
+  }
+  @Override
+  public long getPutNewEntryCount() {
+    return sum(PUT_NEW_ENTRY);
+  }
+
+  @Override
+  public void putHit() {
+    add(PUT_HIT, 1);
+  }
+  @Override
+  public void putHit(final long cnt) {
+    add(PUT_HIT, cnt);
+  }
+  @Override
+  public long getPutHitCount() {
+    return sum(PUT_HIT);
+  }
+
+  @Override
+  public void putNoReadHit() {
+    add(PUT_NO_READ_HIT, 1);
+  }
+  @Override
+  public void putNoReadHit(final long cnt) {
+    add(PUT_NO_READ_HIT, cnt);
+  }
+  @Override
+  public long getPutNoReadHitCount() {
+    return sum(PUT_NO_READ_HIT);
+  }
+
+  @Override
+  public void heapHitButNoRead() {
+    add(HEAP_HIT_BUT_NO_READ, 1);
+  }
+  @Override
+  public void heapHitButNoRead(final long cnt) {
+    add(HEAP_HIT_BUT_NO_READ, cnt);
+  }
+  @Override
+  public long getHeapHitButNoReadCount() {
+    return sum(HEAP_HIT_BUT_NO_READ);
+  }
+
+  @Override
+  public void timerEvent() {
+    add(TIMER_EVENT, 1);
+  }
+  @Override
+  public void timerEvent(final long cnt) {
+    add(TIMER_EVENT, cnt);
+  }
+  @Override
+  public long getTimerEventCount() {
+    return sum(TIMER_EVENT);
+  }
+
+  @Override
+  public void loadException() {
+    add(LOAD_EXCEPTION, 1);
+  }
+  @Override
+  public void loadException(final long cnt) {
+    add(LOAD_EXCEPTION, cnt);
+  }
+  @Override
+  public long getLoadExceptionCount() {
+    return sum(LOAD_EXCEPTION);
+  }
+
+  @Override
+  public void suppressedException() {
+    add(SUPPRESSED_EXCEPTION, 1);
+  }
+  @Override
+  public void suppressedException(final long cnt) {
+    add(SUPPRESSED_EXCEPTION, cnt);
+  }
+  @Override
+  public long getSuppressedExceptionCount() {
+    return sum(SUPPRESSED_EXCEPTION);
+  }
+
+  @Override
+  public void expiredKept() {
+    add(EXPIRED_KEPT, 1);
+  }
+  @Override
+  public void expiredKept(final long cnt) {
+    add(EXPIRED_KEPT, cnt);
+  }
+  @Override
+  public long getExpiredKeptCount() {
+    return sum(EXPIRED_KEPT);
+  }
+
+  @Override
+  public void peekMiss() {
+    add(PEEK_MISS, 1);
+  }
+  @Override
+  public void peekMiss(final long cnt) {
+    add(PEEK_MISS, cnt);
+  }
+  @Override
+  public long getPeekMissCount() {
+    return sum(PEEK_MISS);
+  }
+
+  @Override
+  public void peekHitNotFresh() {
+    add(PEEK_HIT_NOT_FRESH, 1);
+  }
+  @Override
+  public void peekHitNotFresh(final long cnt) {
+    add(PEEK_HIT_NOT_FRESH, cnt);
+  }
+  @Override
+  public long getPeekHitNotFreshCount() {
+    return sum(PEEK_HIT_NOT_FRESH);
+  }
+
+  @Override
+  public void refreshedHit() {
+    add(REFRESHED_HIT, 1);
+  }
+  @Override
+  public void refreshedHit(final long cnt) {
+    add(REFRESHED_HIT, cnt);
+  }
+  @Override
+  public long getRefreshedHitCount() {
+    return sum(REFRESHED_HIT);
+  }
+
+  @Override
+  public void refreshFailed() {
+    add(REFRESH_FAILED, 1);
+  }
+  @Override
+  public void refreshFailed(final long cnt) {
+    add(REFRESH_FAILED, cnt);
+  }
+  @Override
+  public long getRefreshFailedCount() {
+    return sum(REFRESH_FAILED);
+  }
+
+  @Override
+  public void goneSpin() {
+    add(GONE_SPIN, 1);
+  }
+  @Override
+  public void goneSpin(final long cnt) {
+    add(GONE_SPIN, cnt);
+  }
+  @Override
+  public long getGoneSpinCount() {
+    return sum(GONE_SPIN);
+  }
+
+  @Override
+  public void load(final long _millis) {
+    add(LOAD, 1);
+    add(LOAD_MILLIS, _millis);
+  }
+  @Override
+  public void load(final long cnt, final long _millis) {
+    add(LOAD, cnt);
+    add(LOAD_MILLIS, _millis);
+  }
+  @Override
+  public long getLoadCount() {
+    return sum(LOAD);
+  }
+
+  @Override
+  public void reload(final long _millis) {
+    add(RELOAD, 1);
+    add(LOAD_MILLIS, _millis);
+  }
+  @Override
+  public void reload(final long cnt, final long _millis) {
+    add(RELOAD, cnt);
+    add(LOAD_MILLIS, _millis);
+  }
+  @Override
+  public long getReloadCount() {
+    return sum(RELOAD);
+  }
+
+  @Override
+  public void refresh(final long _millis) {
+    add(REFRESH, 1);
+    add(LOAD_MILLIS, _millis);
+  }
+  @Override
+  public void refresh(final long cnt, final long _millis) {
+    add(REFRESH, cnt);
+    add(LOAD_MILLIS, _millis);
+  }
+  @Override
+  public long getRefreshCount() {
+    return sum(REFRESH);
+  }
+
+  @Override
+  public long getLoadMillis() {
+    return sum(LOAD_MILLIS);
+  }
+
+  @Override
+  public boolean isDisabled() {
+    return false;
+  }
+
+}
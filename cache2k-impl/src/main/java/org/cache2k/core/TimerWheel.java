@@ -0,0 +1,461 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.core.util.InternalClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hierarchical hashed timer wheel for the expiry and refresh timer of the cache entries.
+ * Scheduling and cancelling a timer is O(1). The timer state is kept in a node object, which
+ * is allocated when the first timer of an entry is scheduled and reused for the following
+ * timers, so no task object is allocated per timer event. Entries of a cache without
+ * expiry or refresh only carry the reference.
+ *
+ * <p>The wheel has {@value #LEVELS} levels with {@value #SLOTS} slots each. A slot on level 0
+ * covers one tick, a slot on level n covers {@code SLOTS^n} ticks. When the time passes a
+ * slot boundary of a higher level, the entries of this slot are cascaded into the lower levels.
+ * Timers further in the future then the wheel covers are placed in the top level and cascaded
+ * again until due. A timer never fires early, but up to one tick late.
+ *
+ * <p>The wheel does not tick periodically. After each change, the wheel calculates the next
+ * tick that has work to do and schedules a wakeup at the shared executor of the cache
+ * manager. With a simulated clock the wakeup is scheduled at the clock instead.
+ *
+ * @author Jens Wilke
+ */
+public class TimerWheel {
+
+  /** Timer action: expire the entry */
+  static final byte EXPIRE = 1;
+  /** Timer action: refresh the entry */
+  static final byte REFRESH = 2;
+  /** Timer action: remove the entry, after being in refresh probation */
+  static final byte PROBATION_TERMINATED = 3;
+
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+  private static final int LEVELS = 5;
+
+  private final Object lock = new Object();
+  private final InternalClock clock;
+  private final Target target;
+  private final long tickMillis;
+  private final ScheduledExecutorService executor;
+  private final InternalClock.TimeReachedJob reachedJob;
+
+  /** Heads of the cyclic lists, one per slot and level */
+  private final Node[][] wheel = new Node[LEVELS][SLOTS];
+  /** Number of timers per level, to skip empty levels */
+  private final int[] levelCount = new int[LEVELS];
+  /** The next tick that is not processed yet */
+  private long currentTick;
+  /** Point in time of the earliest scheduled wakeup */
+  private long scheduledWakeup = Long.MAX_VALUE;
+  private boolean cancelled;
+  private long size;
+
+  /**
+   * @param _clock clock of the cache
+   * @param _target receives the timer events
+   * @param _executor shared executor to wakeup, not needed if the clock can schedule jobs
+   * @param _tickMillis resolution of the timer
+   */
+  public TimerWheel(InternalClock _clock, Target _target, ScheduledExecutorService _executor, long _tickMillis) {
+    clock = _clock;
+    target = _target;
+    tickMillis = _tickMillis;
+    currentTick = _clock.millis() / _tickMillis;
+    if (_clock.isJobSchedulable()) {
+      executor = null;
+      reachedJob = _clock.createJob(new InternalClock.TimeReachedEvent() {
+        @Override
+        public void timeIsReached(final long _millis) {
+          timeReached(_millis);
+        }
+      });
+    } else {
+      executor = _executor;
+      reachedJob = null;
+    }
+  }
+
+  /**
+   * Schedule a timer event for the entry. A previous timer of the entry needs to be cancelled.
+   * Called while the entry is locked.
+   *
+   * @param _time point in time in millis, may be in the past
+   * @param _action the action passed to the target when the time is reached
+   */
+  public void schedule(Entry e, long _time, byte _action) {
+    long _wakeup;
+    synchronized (lock) {
+      if (cancelled) {
+        return;
+      }
+      Node n = e.timerNode;
+      if (n == null) {
+        n = e.timerNode = new Node(e);
+      } else if (n.action != 0) {
+        unlink(n);
+        size--;
+      }
+      n.time = _time;
+      n.action = _action;
+      insert(n);
+      size++;
+      _wakeup = wakeupTime(Math.max(timeToTick(_time), currentTick));
+      if (_wakeup >= scheduledWakeup) {
+        return;
+      }
+      scheduledWakeup = _wakeup;
+    }
+    scheduleWakeup(_wakeup);
+  }
+
+  /**
+   * Cancel the timer of the entry. Called while the entry is locked.
+   *
+   * @return {@code true}, if a timer was scheduled and the event will not be delivered
+   */
+  public boolean cancel(Entry e) {
+    synchronized (lock) {
+      Node n = e.timerNode;
+      if (n == null || n.action == 0) {
+        return false;
+      }
+      unlink(n);
+      n.action = 0;
+      size--;
+      return true;
+    }
+  }
+
+  /**
+   * Drop all timers. No more timers will be scheduled and the pending wakeup is
+   * ignored.
+   */
+  public void cancelAll() {
+    synchronized (lock) {
+      cancelled = true;
+      for (int l = 0; l < LEVELS; l++) {
+        for (int s = 0; s < SLOTS; s++) {
+          Node n = wheel[l][s];
+          while (n != null) {
+            Node _next = removeFirst(l, s);
+            n.action = 0;
+            n = _next;
+          }
+        }
+      }
+      size = 0;
+    }
+    if (reachedJob != null) {
+      clock.disableJob(reachedJob);
+    }
+  }
+
+  /**
+   * Number of scheduled timers.
+   */
+  public long getSize() {
+    synchronized (lock) {
+      return size;
+    }
+  }
+
+  /**
+   * Process all ticks up to the given time and deliver the due timer events.
+   * The events are delivered outside the lock, since the target locks the entry.
+   * Entries that are due within the same run are delivered as one batch per action.
+   */
+  @SuppressWarnings("unchecked")
+  void timeReached(long _now) {
+    List<Entry>[] _fired = new List[PROBATION_TERMINATED + 1];
+    long _wakeup;
+    synchronized (lock) {
+      if (cancelled) {
+        return;
+      }
+      advance(_now, _fired);
+      _wakeup = wakeupTime(nextEventTick());
+      if (_wakeup < scheduledWakeup || scheduledWakeup <= _now) {
+        scheduledWakeup = _wakeup;
+      } else {
+        _wakeup = Long.MAX_VALUE;
+      }
+    }
+    for (byte _action = EXPIRE; _action <= PROBATION_TERMINATED; _action++) {
+      if (_fired[_action] != null) {
+        target.timerEvents(_action, _fired[_action]);
+      }
+    }
+    if (_wakeup != Long.MAX_VALUE) {
+      scheduleWakeup(_wakeup);
+    }
+  }
+
+  private void scheduleWakeup(long _wakeup) {
+    if (_wakeup == Long.MAX_VALUE) {
+      return;
+    }
+    if (reachedJob != null) {
+      clock.schedule(reachedJob, _wakeup);
+      return;
+    }
+    new WakeupTask(_wakeup).schedule();
+  }
+
+  private long timeToTick(long _time) {
+    return _time / tickMillis;
+  }
+
+  /**
+   * The time when all timers of the tick are due.
+   */
+  private long wakeupTime(long _tick) {
+    if (_tick == Long.MAX_VALUE) {
+      return Long.MAX_VALUE;
+    }
+    return _tick * tickMillis + tickMillis - 1;
+  }
+
+  /**
+   * Process the ticks up to the tick that is fully passed at the given time.
+   */
+  private void advance(long _now, List<Entry>[] _fired) {
+    long _targetTick = (_now + 1) / tickMillis - 1;
+    while (currentTick <= _targetTick) {
+      if (levelCount[0] > 0) {
+        int s = (int) (currentTick & SLOT_MASK);
+        Node n;
+        while ((n = wheel[0][s]) != null) {
+          removeFirst(0, s);
+          if (n.time > _now) {
+            insert(n);
+            continue;
+          }
+          List<Entry> _batch = _fired[n.action];
+          if (_batch == null) {
+            _batch = _fired[n.action] = new ArrayList<Entry>();
+          }
+          _batch.add(n.entry);
+          n.action = 0;
+          size--;
+        }
+        currentTick++;
+        if ((currentTick & SLOT_MASK) == 0) {
+          cascade(currentTick);
+        }
+        continue;
+      }
+      long _next = nextBoundary(currentTick);
+      if (_next > _targetTick + 1) {
+        currentTick = _targetTick + 1;
+        break;
+      }
+      currentTick = _next;
+      cascade(currentTick);
+    }
+  }
+
+  /**
+   * Next tick at a slot boundary of the lowest level that contains timers. All lower levels are
+   * empty, so there is nothing to do before.
+   */
+  private long nextBoundary(long _tick) {
+    for (int l = 1; l < LEVELS; l++) {
+      if (levelCount[l] > 0) {
+        long _mask = (1L << (SLOT_BITS * l)) - 1;
+        return (_tick | _mask) + 1;
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * The tick reached a boundary. Move the timers of the slots on the higher levels
+   * into the lower levels.
+   */
+  private void cascade(long _tick) {
+    for (int l = 1; l < LEVELS; l++) {
+      int s = (int) ((_tick >>> (SLOT_BITS * l)) & SLOT_MASK);
+      Node n;
+      while ((n = wheel[l][s]) != null) {
+        removeFirst(l, s);
+        insert(n);
+      }
+      if (((_tick >>> (SLOT_BITS * l)) & SLOT_MASK) != 0) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * The next tick that has timers in level 0 or needs a cascade.
+   */
+  private long nextEventTick() {
+    if (levelCount[0] > 0) {
+      for (int i = 0; i < SLOTS; i++) {
+        long _tick = currentTick + i;
+        if (wheel[0][(int) (_tick & SLOT_MASK)] != null) {
+          return _tick;
+        }
+        if (((_tick + 1) & SLOT_MASK) == 0 && nextBoundary(_tick) == _tick + 1) {
+          return _tick + 1;
+        }
+      }
+    }
+    return nextBoundary(currentTick);
+  }
+
+  /**
+   * Insert into the level and slot, depending on the distance of the timer tick to the current tick.
+   */
+  private void insert(Node n) {
+    long _tick = Math.max(timeToTick(n.time), currentTick);
+    long _delta = _tick - currentTick;
+    int l = 0;
+    while (l < LEVELS - 1 && _delta >= (1L << (SLOT_BITS * (l + 1)))) {
+      l++;
+    }
+    if (_delta >= (1L << (SLOT_BITS * LEVELS))) {
+      _tick = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+    }
+    int s = (int) ((_tick >>> (SLOT_BITS * l)) & SLOT_MASK);
+    Node _head = wheel[l][s];
+    if (_head == null) {
+      n.next = n.prev = n;
+      wheel[l][s] = n;
+    } else {
+      n.prev = _head.prev;
+      n.next = _head;
+      _head.prev.next = n;
+      _head.prev = n;
+    }
+    n.level = (byte) l;
+    n.slot = (byte) s;
+    levelCount[l]++;
+  }
+
+  private Node removeFirst(int l, int s) {
+    Node n = wheel[l][s];
+    unlink(n);
+    return wheel[l][s];
+  }
+
+  private void unlink(Node n) {
+    int l = n.level;
+    int s = n.slot;
+    if (n.next == n) {
+      wheel[l][s] = null;
+    } else {
+      n.prev.next = n.next;
+      n.next.prev = n.prev;
+      if (wheel[l][s] == n) {
+        wheel[l][s] = n.next;
+      }
+    }
+    n.next = n.prev = null;
+    levelCount[l]--;
+  }
+
+  /**
+   * Timer state of an entry, guarded by the timer wheel lock.
+   */
+  static final class Node {
+
+    final Entry entry;
+    /** Next node in the slot list */
+    Node next;
+    /** Previous node in the slot list */
+    Node prev;
+    /** Point in time the timer event is due */
+    long time;
+    /** Scheduled action or 0 if no timer is active, see {@link TimerWheel#EXPIRE} */
+    byte action;
+    /** Level of the slot list */
+    byte level;
+    /** Slot of the slot list */
+    byte slot;
+
+    Node(final Entry _entry) {
+      entry = _entry;
+    }
+
+  }
+
+  /**
+   * Wakeup at the executor. The executor may run the task slightly before the wakeup
+   * time, according to the cache clock. In this case it is rescheduled.
+   */
+  private class WakeupTask implements Runnable {
+
+    private final long wakeupTime;
+
+    WakeupTask(final long _wakeupTime) {
+      wakeupTime = _wakeupTime;
+    }
+
+    void schedule() {
+      long _delay = Math.max(0, wakeupTime - clock.millis());
+      try {
+        executor.schedule(this, _delay, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException ignore) {
+        // cache manager is closing
+      }
+    }
+
+    @Override
+    public void run() {
+      long _now = clock.millis();
+      if (_now < wakeupTime) {
+        schedule();
+        return;
+      }
+      timeReached(_now);
+    }
+
+  }
+
+  /**
+   * Receives the timer events.
+   */
+  public interface Target {
+
+    /**
+     * Timers of the entries are due. Called without holding a lock.
+     *
+     * @param _action the action the timers were scheduled with
+     * @param _entries entries in the order of their timer ticks
+     */
+    void timerEvents(byte _action, List<Entry> _entries);
+
+  }
+
+}
@@ -25,8 +25,6 @@ import org.cache2k.CacheEntry;
 import org.cache2k.configuration.CustomizationSupplier;
 import org.cache2k.configuration.CustomizationReferenceSupplier;
 import org.cache2k.core.util.InternalClock;
-import org.cache2k.core.util.SimpleTimer;
-import org.cache2k.core.util.SimpleTask;
 import org.cache2k.core.util.Util;
 import org.cache2k.expiry.Expiry;
 import org.cache2k.expiry.ExpiryPolicy;
@@ -37,7 +35,8 @@ import org.cache2k.core.util.TunableFactory;
 import org.cache2k.integration.ExceptionInformation;
 import org.cache2k.integration.ResiliencePolicy;
 
-import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Encapsulates logic for expiry times calculation and timer handling.
@@ -52,7 +51,7 @@ public abstract class TimingHandler<K,V>  {
   final static TimingHandler ETERNAL_IMMEDIATE = new EternalImmediate();
 
   private final static TimingHandler IMMEDIATE = new Immediate();
-  private final static int PURGE_INTERVAL = TunableFactory.get(Tunable.class).purgeInterval;
+  private final static long TIMER_TICK_MILLIS = TunableFactory.get(Tunable.class).timerTickMillis;
   private final static long SAFETY_GAP_MILLIS = HeapCache.TUNABLE.sharpExpirySafetyGapMillis;
 
   /**
@@ -235,18 +234,16 @@ public abstract class TimingHandler<K,V>  {
     }
   }
 
-  static class Static<K,V> extends TimingHandler<K,V> {
+  static class Static<K,V> extends TimingHandler<K,V> implements TimerWheel.Target {
 
     final InternalClock clock;
     boolean sharpExpiry;
     boolean refreshAhead;
-    SimpleTimer[] timer;
+    long refreshAheadJitter;
+    TimerWheel[] timer;
     int timerMask;
     long maxLinger;
     InternalCache cache;
-    /** Dirty counter, intentionally only 32 bit */
-    int timerCancelCount = 0;
-    int purgeIndex = 0;
     ResiliencePolicy<K,V> resiliencePolicy;
     CustomizationSupplier<ResiliencePolicy<K,V>> resiliencePolicyFactory;
 
@@ -295,13 +292,14 @@ public abstract class TimingHandler<K,V>  {
       }
       resiliencePolicy.init(ctx);
       refreshAhead = c.isRefreshAhead();
+      refreshAheadJitter = c.getRefreshAheadJitter();
       sharpExpiry = c.isSharpExpiry();
       int _timerCount = 1;
       if (c.isBoostConcurrency()) {
         int _ncpu = Runtime.getRuntime().availableProcessors();
         _timerCount = 2 << (31 - Integer.numberOfLeadingZeros(_ncpu));
       }
-      timer = new SimpleTimer[_timerCount];
+      timer = new TimerWheel[_timerCount];
       timerMask = _timerCount - 1;
     }
 
@@ -319,22 +317,60 @@ public abstract class TimingHandler<K,V>  {
     @Override
     public synchronized  void reset() {
       shutdown();
+      ScheduledExecutorService _executor = clock.isJobSchedulable() ? null : getTimerExecutor();
       for (int i = 0; i <= timerMask; i++) {
         if (timer[i] != null) { continue; }
-        timer[i] =  new SimpleTimer(clock, cache.getName(), true);
+        timer[i] = new TimerWheel(clock, this, _executor, TIMER_TICK_MILLIS);
       }
     }
 
+    /**
+     * The timer wheels of all caches within a cache manager share one executor.
+     */
+    ScheduledExecutorService getTimerExecutor() {
+      return ((CacheManagerImpl) cache.getCacheManager()).getTimerExecutor();
+    }
+
     @Override
     public synchronized void shutdown() {
-      SimpleTimer _timer;
+      TimerWheel _timer;
       for (int i = 0; i <= timerMask; i++) {
         if ((_timer = timer[i]) == null) { continue; }
-        _timer.cancel();
+        _timer.cancelAll();
         timer[i] = null;
       }
     }
 
+    /**
+     * Called from the timer wheel, without holding a lock. Expiry is done in batches,
+     * refresh and probation termination per entry.
+     */
+    @Override
+    public void timerEvents(final byte _action, final List<Entry> _entries) {
+      if (_action == TimerWheel.EXPIRE) {
+        try {
+          cache.timerEventExpireEntries(_entries);
+        } catch (CacheClosedException ignore) {
+        } catch (Throwable ex) {
+          cache.logAndCountInternalException("Timer execution exception", ex);
+        }
+        return;
+      }
+      for (Entry e : _entries) {
+        try {
+          if (_action == TimerWheel.REFRESH) {
+            cache.timerEventRefresh(e);
+          } else {
+            cache.timerEventProbationTerminated(e);
+          }
+        } catch (CacheClosedException ignore) {
+          return;
+        } catch (Throwable ex) {
+          cache.logAndCountInternalException("Timer execution exception", ex);
+        }
+      }
+    }
+
     @Override
     public long calculateNextRefreshTime(final Entry<K,V> e, final V v, final long _loadTime) {
       return calcNextRefreshTime(e.getKey(), v, _loadTime, e, null, maxLinger, sharpExpiry);
@@ -358,8 +394,7 @@ public abstract class TimingHandler<K,V>  {
      */
     long expiredEventuallyStartBackgroundRefresh(final Entry e, boolean _sharpExpiry) {
       if (refreshAhead) {
-        e.setTask(new RefreshTask<K,V>().to(cache, e));
-        scheduleTask(0, e);
+        scheduleTask(0, e, TimerWheel.REFRESH);
         return _sharpExpiry ? Entry.EXPIRED_REFRESH_PENDING : Entry.DATA_VALID;
       }
       return Entry.EXPIRED;
@@ -402,8 +437,7 @@ public abstract class TimingHandler<K,V>  {
       if (_expiryTime < 0) {
         long _timerTime = -_expiryTime - SAFETY_GAP_MILLIS;
         if (_timerTime >= now) {
-          e.setTask(new ExpireTask().to(cache, e));
-          scheduleTask(_timerTime, e);
+          scheduleTask(_timerTime, e, TimerWheel.EXPIRE);
           _expiryTime = -_expiryTime;
         } else {
           scheduleFinalExpireWithOptionalRefresh(e, -_expiryTime);
@@ -428,8 +462,7 @@ public abstract class TimingHandler<K,V>  {
       long _absTime = Math.abs(_nextRefreshTime);
       e.setRefreshProbationNextRefreshTime(_absTime);
       e.setNextRefreshTime(Entry.EXPIRED_REFRESHED);
-      e.setTask(new RefreshExpireTask<K,V>().to(cache, e));
-      scheduleTask(_absTime, e);
+      scheduleTask(_absTime, e, TimerWheel.PROBATION_TERMINATED);
       return false;
     }
 
@@ -444,80 +477,43 @@ public abstract class TimingHandler<K,V>  {
      */
     void scheduleFinalExpireWithOptionalRefresh(final Entry<K, V> e, long t) {
       if (refreshAhead) {
-        e.setTask(new RefreshTask().to(cache, e));
-      } else {
-        e.setTask(new ExpireTask().to(cache, e));
+        scheduleTask(refreshTimeWithJitter(e, t), e, TimerWheel.REFRESH);
+        return;
       }
-      scheduleTask(t, e);
+      scheduleTask(t, e, TimerWheel.EXPIRE);
     }
 
-    void scheduleTask(final long _nextRefreshTime, final Entry e) {
-      SimpleTimer _timer = timer[e.hashCode & timerMask];
-      if (_timer != null) {
-        try {
-          _timer.schedule(e.getTask(), new Date(_nextRefreshTime));
-        } catch (IllegalStateException ignore) {
-        }
+    /**
+     * Move the refresh time before the expiry time by a pseudo random amount derived from
+     * the entry hash code and the time, so entries expiring together are refreshed at
+     * different times. The refresh time is never in the past.
+     */
+    long refreshTimeWithJitter(final Entry<K, V> e, long t) {
+      if (refreshAheadJitter <= 0) {
+        return t;
       }
-    }
-
-    public void cancelExpiryTimer(Entry<K, V> e) {
-      CommonTask tsk = (CommonTask) e.getTask();
-      if (tsk != null && tsk.cancel()) {
-        tsk.cache = null;
-        tsk.entry = null;
-        timerCancelCount++;
-        if (timerCancelCount >= PURGE_INTERVAL) {
-          synchronized (timer) {
-            timer[purgeIndex].purge();
-            purgeIndex = (purgeIndex + 1) & timerMask;
-            timerCancelCount = 0;
-          }
-        }
+      long _spread = Math.min(refreshAheadJitter, t - clock.millis());
+      if (_spread <= 0) {
+        return t;
       }
+      long _random = (e.hashCode ^ t) * 0x9E3779B97F4A7C15L;
+      return t - ((_random >>> 1) % (_spread + 1));
     }
 
-  }
-
-  static abstract class CommonTask<K,V> extends SimpleTask {
-    Entry<K,V> entry;
-    InternalCache<K,V> cache;
-
-    CommonTask<K,V> to(final InternalCache<K,V> c, final Entry<K, V> e) {
-      cache = c;
-      entry = e;
-      return this;
-    }
-
-    public abstract void fire() throws Exception;
-
-    public final void run() {
-      try {
-        fire();
-      } catch (CacheClosedException ignore) {
-      } catch (Throwable ex) {
-        cache.logAndCountInternalException("Timer execution exception", ex);
+    void scheduleTask(final long _nextRefreshTime, final Entry e, final byte _action) {
+      TimerWheel _timer = timer[e.hashCode & timerMask];
+      if (_timer != null) {
+        _timer.schedule(e, _nextRefreshTime, _action);
       }
     }
 
-  }
-
-  static class RefreshTask<K,V> extends CommonTask<K,V> {
-    public void fire() {
-      cache.timerEventRefresh(entry);
-    }
-  }
-
-  static class ExpireTask<K,V> extends CommonTask<K,V> {
-    public void fire() {
-      cache.timerEventExpireEntry(entry);
+    public void cancelExpiryTimer(Entry<K, V> e) {
+      TimerWheel _timer = timer[e.hashCode & timerMask];
+      if (_timer != null) {
+        _timer.cancel(e);
+      }
     }
-  }
 
-  static class RefreshExpireTask<K,V> extends CommonTask<K,V> {
-    public void fire() {
-      cache.timerEventProbationTerminated(entry);
-    }
   }
 
   static class Dynamic<K,V> extends Static<K,V> {
@@ -622,9 +618,18 @@ public abstract class TimingHandler<K,V>  {
   public static class Tunable extends TunableConstants {
 
     /**
-     * The number of cancelled timer tasks after that a purge is performed.
+     * Resolution of the timer wheel in milliseconds. Timer events are delivered up
+     * to one tick late, but never early. Entries expiring within the same tick are
+     * expired in one batch. A higher value means less timer wakeups and bigger batches.
+     */
+    public long timerTickMillis = 1;
+
+    /**
+     * Number of threads of the timer executor shared by all caches of a cache manager.
+     * The threads only advance the timer wheels and run the expiry, the loads for refresh
+     * run on the loader executor.
      */
-    public int purgeInterval = 10000;
+    public int timerThreadCount = Runtime.getRuntime().availableProcessors();
 
   }
 
@@ -43,6 +43,7 @@ import org.cache2k.core.storageApi.StorageEntry;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -331,7 +332,7 @@ public class WiredCache<K, V> extends BaseCache<K, V>
     }
   }
 
-  V returnValue(V v) {
+  protected V returnValue(V v) {
     return heapCache.returnValue(v);
   }
 
@@ -424,6 +425,14 @@ public class WiredCache<K, V> extends BaseCache<K, V>
     return _adapted;
   }
 
+  @Override
+  public SplittableIterator<CacheEntry<K, V>> splitIterator() {
+    if (storage == null) {
+      return new HeapCache.IteratorFilterEntry2Entry<K, V>(heapCache, this, heapCache.iterateAllHeapEntries(), true);
+    }
+    return new HeapCache.IteratorFilterEntry2Entry(heapCache, this, storage.iterateAll(), false);
+  }
+
   @Override
   public V peek(K key) {
     Entry<K, V> e = lookupQuick(key);
@@ -617,6 +626,16 @@ public class WiredCache<K, V> extends BaseCache<K, V>
     }
   }
 
+  /**
+   * Expiry needs to go through the storage and the listeners, no batch processing.
+   */
+  @Override
+  public void timerEventExpireEntries(final List<Entry<K, V>> _entries) {
+    for (Entry<K, V> e : _entries) {
+      timerEventExpireEntry(e);
+    }
+  }
+
   /**
    * @see HeapCache#expireOrScheduleFinalExpireEvent(Entry)
    */
@@ -642,6 +661,10 @@ public class WiredCache<K, V> extends BaseCache<K, V>
     synchronized (e) {
       if (e.isGone()) {
         return;
+      }
+      if (heapCache.isRefreshSkipped(e)) {
+        expireOrScheduleFinalExpireEvent(e);
+        return;
       }
         Runnable r = new Runnable() {
           @Override
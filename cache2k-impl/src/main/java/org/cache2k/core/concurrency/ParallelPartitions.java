@@ -0,0 +1,114 @@
+package org.cache2k.core.concurrency;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Process index ranges of an input in parallel. The calling thread takes part and claims
+ * every partition that is not yet started by a thread of the executor, so the work completes
+ * even if the executor is busy or rejects the tasks. This is used instead of a fork/join pool,
+ * which is not available on Java 6.
+ *
+ * @author Jens Wilke
+ */
+public class ParallelPartitions {
+
+  /**
+   * Work on one partition of the input.
+   */
+  public interface Task {
+
+    /**
+     * @param _from first index, inclusive
+     * @param _to last index, exclusive
+     */
+    void run(int _from, int _to);
+
+  }
+
+  /**
+   * Split the indices {@code 0} to {@code _size} in {@code _partitionCount} ranges and run the task
+   * on each of them. Returns after all partitions are processed. An exception of the task is
+   * rethrown after all partitions are finished.
+   */
+  public static void run(final Executor _executor, final int _size, final int _partitionCount,
+                         final Task _task) {
+    final AtomicInteger _next = new AtomicInteger();
+    final CountDownLatch _done = new CountDownLatch(_partitionCount);
+    final AtomicReference<Throwable> _exception = new AtomicReference<Throwable>();
+    Runnable _worker = new Runnable() {
+      @Override
+      public void run() {
+        int i;
+        while ((i = _next.getAndIncrement()) < _partitionCount) {
+          try {
+            _task.run(partitionStart(_size, _partitionCount, i), partitionStart(_size, _partitionCount, i + 1));
+          } catch (Throwable t) {
+            _exception.compareAndSet(null, t);
+          } finally {
+            _done.countDown();
+          }
+        }
+      }
+    };
+    for (int i = 1; i < _partitionCount; i++) {
+      try {
+        _executor.execute(_worker);
+      } catch (RejectedExecutionException ex) {
+        break;
+      }
+    }
+    _worker.run();
+    awaitUninterruptibly(_done);
+    Throwable t = _exception.get();
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+  }
+
+  static int partitionStart(final int _size, final int _partitionCount, final int _partition) {
+    return (int) ((long) _size * _partition / _partitionCount);
+  }
+
+  private static void awaitUninterruptibly(final CountDownLatch _latch) {
+    boolean _interrupted = false;
+    for (;;) {
+      try {
+        _latch.await();
+        break;
+      } catch (InterruptedException ex) {
+        _interrupted = true;
+      }
+    }
+    if (_interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
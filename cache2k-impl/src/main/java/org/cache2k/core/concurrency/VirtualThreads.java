@@ -0,0 +1,109 @@
+package org.cache2k.core.concurrency;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Support for virtual threads, which is detected at runtime. The library is compiled
+ * for older Java versions, so the API of Java 21 is used via reflection.
+ *
+ * <p>Virtual threads are not used if the system property {@code org.cache2k.core.concurrency.VirtualThreads}
+ * is set to {@code false}.
+ *
+ * @author Jens Wilke
+ */
+public class VirtualThreads {
+
+  private static Method ofVirtual;
+  private static Method builderName;
+  private static Method builderFactory;
+  private static Method newThreadPerTaskExecutor;
+
+  static {
+    if (!"false".equals(System.getProperty(VirtualThreads.class.getName()))) {
+      try {
+        Class<?> _builderClass = Class.forName("java.lang.Thread$Builder");
+        ofVirtual = Thread.class.getMethod("ofVirtual");
+        builderName = _builderClass.getMethod("name", String.class, long.class);
+        builderFactory = _builderClass.getMethod("factory");
+        newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      } catch (Exception ignore) {
+        ofVirtual = null;
+      }
+    }
+  }
+
+  /**
+   * True, if the JVM supports virtual threads.
+   */
+  public static boolean isSupported() {
+    return ofVirtual != null;
+  }
+
+  /**
+   * Executor that starts a new virtual thread for each task, or {@code null} if virtual threads
+   * are not supported. The executor has no limit on the number of concurrent tasks. The threads
+   * are named with the prefix and a sequence number.
+   */
+  public static VirtualThreadExecutor newVirtualThreadExecutor(String _namePrefix) {
+    if (!isSupported()) {
+      return null;
+    }
+    try {
+      Object _builder = builderName.invoke(ofVirtual.invoke(null), _namePrefix + "-", 0L);
+      ThreadFactory _factory = (ThreadFactory) builderFactory.invoke(_builder);
+      return new VirtualThreadExecutor((ExecutorService) newThreadPerTaskExecutor.invoke(null, _factory));
+    } catch (Exception ex) {
+      throw new Error("virtual thread support detected, but failed", ex);
+    }
+  }
+
+  /**
+   * Executor running each task in a new virtual thread.
+   */
+  public static class VirtualThreadExecutor implements Executor, Closeable {
+
+    private final ExecutorService executorService;
+
+    VirtualThreadExecutor(final ExecutorService _executorService) {
+      executorService = _executorService;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+      executorService.execute(command);
+    }
+
+    @Override
+    public void close() {
+      executorService.shutdown();
+    }
+
+  }
+
+}
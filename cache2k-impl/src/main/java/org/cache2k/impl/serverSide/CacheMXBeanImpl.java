@@ -23,6 +23,7 @@ package org.cache2k.impl.serverSide;
 import org.cache2k.core.HealthInfoElement;
 import org.cache2k.core.InternalCache;
 import org.cache2k.core.InternalCacheInfo;
+import org.cache2k.core.LatencyHistogram;
 import org.cache2k.jmx.CacheMXBean;
 
 import java.util.Date;
@@ -61,6 +62,16 @@ public class CacheMXBeanImpl implements CacheMXBean {
     return getInfo().getHeapCapacity();
   }
 
+  @Override
+  public long getMaximumWeight() {
+    return getInfo().getMaximumWeight();
+  }
+
+  @Override
+  public long getTotalWeight() {
+    return getInfo().getTotalWeight();
+  }
+
   @Override
   public long getMissCount() {
     return getInfo().getMissCount();
@@ -161,6 +172,31 @@ public class CacheMXBeanImpl implements CacheMXBean {
     return getInfo().getLoadMillis();
   }
 
+  private long getLoadLatencyMicros(final double _percentile) {
+    LatencyHistogram.Snapshot s = getInfo().getLoadLatency();
+    return s != null ? s.getValueAtPercentile(_percentile) / 1000 : -1;
+  }
+
+  @Override
+  public long getLoadLatencyMicros50() {
+    return getLoadLatencyMicros(50);
+  }
+
+  @Override
+  public long getLoadLatencyMicros99() {
+    return getLoadLatencyMicros(99);
+  }
+
+  @Override
+  public long getLoadLatencyMicros999() {
+    return getLoadLatencyMicros(99.9);
+  }
+
+  @Override
+  public String getLatencyPercentiles() {
+    return getInfo().getLatencyPercentiles();
+  }
+
   @Override
   public String getIntegrityDescriptor() {
     return getInfo().getIntegrityDescriptor();
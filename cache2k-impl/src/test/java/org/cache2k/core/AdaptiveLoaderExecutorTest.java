@@ -0,0 +1,87 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class AdaptiveLoaderExecutorTest {
+
+  @Test
+  public void calculateThreadCount() {
+    AdaptiveLoaderExecutor ex = new AdaptiveLoaderExecutor(2, 50, "test");
+    try {
+      assertEquals("minimum", 2, ex.calculateThreadCount(0, 0, 0));
+      long _millis = TimeUnit.MILLISECONDS.toNanos(1);
+      assertEquals("1000 loads per second, 20ms each",
+        20, ex.calculateThreadCount(1.0 / _millis, 20 * _millis, 0));
+      assertEquals("plus queue size",
+        25, ex.calculateThreadCount(1.0 / _millis, 20 * _millis, 5));
+      assertEquals("maximum", 50, ex.calculateThreadCount(1.0 / _millis, 80 * _millis, 0));
+    } finally {
+      ex.close();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rangeInvalid() {
+    new AdaptiveLoaderExecutor(3, 2, "test");
+  }
+
+  @Test
+  public void queueAndStatistics() throws Exception {
+    AdaptiveLoaderExecutor ex = new AdaptiveLoaderExecutor(1, 2, "test");
+    try {
+      final CountDownLatch _release = new CountDownLatch(1);
+      final CountDownLatch _done = new CountDownLatch(3);
+      Runnable r = new Runnable() {
+        @Override
+        public void run() {
+          try {
+            _release.await();
+          } catch (InterruptedException ignore) { }
+          _done.countDown();
+        }
+      };
+      ex.execute(r);
+      ex.execute(r);
+      ex.execute(r);
+      _release.countDown();
+      _done.await();
+      assertTrue(ex.getQueueWaitCount() >= 2);
+      assertTrue(ex.getQueueWaitNanosMax() > 0);
+    } finally {
+      ex.close();
+    }
+  }
+
+}
@@ -26,7 +26,9 @@ import org.junit.experimental.categories.Category;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -57,6 +59,39 @@ public class EntryTest {
     }
   }
 
+  /**
+   * The callbacks are detached from the entry when processing is done and run
+   * by the caller after the entry lock is released.
+   */
+  @Test
+  public void testProcessingDoneCallback() {
+    Entry e = new Entry();
+    final AtomicInteger _count = new AtomicInteger();
+    Runnable r = new Runnable() {
+      @Override
+      public void run() {
+        _count.incrementAndGet();
+      }
+    };
+    List<Runnable> _callbacks;
+    synchronized (e) {
+      e.setRefreshProbationNextRefreshTime(4711);
+      e.startProcessing();
+      e.addProcessingDoneCallback(r);
+      e.addProcessingDoneCallback(r);
+      _callbacks = e.processingDone();
+      assertEquals(0, _count.get());
+      assertNull(e.getPiggyBack(Entry.ProcessingDoneCallbacksPiggyBack.class));
+      assertEquals(4711, e.getRefreshProbationNextRefreshTime());
+    }
+    Entry.runProcessingDoneCallbacks(_callbacks);
+    assertEquals(2, _count.get());
+    synchronized (e) {
+      e.startProcessing();
+      assertNull(e.processingDone());
+    }
+  }
+
   @Test
   public void testLastModifiedResetDirty() {
     Entry e = new Entry();
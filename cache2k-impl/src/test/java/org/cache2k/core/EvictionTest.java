@@ -22,10 +22,18 @@ package org.cache2k.core;
 
 import org.cache2k.Cache;
 import org.cache2k.Cache2kBuilder;
+import org.cache2k.Weigher;
 import org.cache2k.testing.category.FastTests;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
 import static org.junit.Assert.*;
 
 /**
@@ -117,4 +125,207 @@ public class EvictionTest {
     c.close();
   }
 
+  /**
+   * Eviction runs in the executor. The inserting thread only evicts when the size
+   * exceeds the margin.
+   */
+  @Test
+  public void asyncEviction() {
+    final int _SIZE = 100;
+    Cache<Integer, Integer> c =
+      Cache2kBuilder.of(Integer.class, Integer.class)
+        .eternal(true)
+        .entryCapacity(_SIZE)
+        .build();
+    HeapCache hc = c.requestInterface(HeapCache.class);
+    final List<Runnable> _tasks = new ArrayList<Runnable>();
+    Executor _executor = new Executor() {
+      @Override
+      public void execute(final Runnable command) {
+        _tasks.add(command);
+      }
+    };
+    ((AbstractEviction) hc.eviction).enableAsyncEviction(_executor, 10);
+    for (int i = 0; i < _SIZE + 5; i++) {
+      c.put(i, i);
+    }
+    assertEquals(_SIZE + 5, hc.getLocalSize());
+    assertEquals(1, _tasks.size());
+    _tasks.remove(0).run();
+    assertEquals(_SIZE, hc.getLocalSize());
+    for (int i = 0; i < _SIZE * 2; i++) {
+      c.put(1000 + i, i);
+    }
+    assertEquals(_SIZE + 10, hc.getLocalSize());
+    _tasks.remove(0).run();
+    assertEquals(_SIZE, hc.getLocalSize());
+    assertTrue(_tasks.isEmpty());
+    c.close();
+  }
+
+  /**
+   * If the executor rejects the eviction task, the inserting thread evicts and
+   * the next eviction is scheduled again.
+   */
+  @Test
+  public void asyncEvictionRejected() {
+    final int _SIZE = 100;
+    Cache<Integer, Integer> c =
+      Cache2kBuilder.of(Integer.class, Integer.class)
+        .eternal(true)
+        .entryCapacity(_SIZE)
+        .build();
+    HeapCache hc = c.requestInterface(HeapCache.class);
+    final List<Runnable> _tasks = new ArrayList<Runnable>();
+    final boolean[] _reject = new boolean[]{true};
+    Executor _executor = new Executor() {
+      @Override
+      public void execute(final Runnable command) {
+        if (_reject[0]) {
+          throw new RejectedExecutionException();
+        }
+        _tasks.add(command);
+      }
+    };
+    ((AbstractEviction) hc.eviction).enableAsyncEviction(_executor, 10);
+    for (int i = 0; i < _SIZE + 5; i++) {
+      c.put(i, i);
+    }
+    assertEquals(_SIZE, hc.getLocalSize());
+    _reject[0] = false;
+    c.put(1000, 1);
+    assertEquals(_SIZE + 1, hc.getLocalSize());
+    assertEquals(1, _tasks.size());
+    _tasks.remove(0).run();
+    assertEquals(_SIZE, hc.getLocalSize());
+    c.close();
+  }
+
+  /**
+   * Total weight stays within the maximum weight, an update of a value changes the weight.
+   */
+  @Test
+  public void weigher() {
+    final int _MAX_WEIGHT = 1000;
+    Cache<Integer, Integer> c =
+      Cache2kBuilder.of(Integer.class, Integer.class)
+        .eternal(true)
+        .entryCapacity(10)
+        .weigher(new Weigher<Integer, Integer>() {
+          @Override
+          public int weigh(final Integer key, final Integer value) {
+            return value;
+          }
+        })
+        .maximumWeight(_MAX_WEIGHT)
+        .build();
+    HeapCache hc = c.requestInterface(HeapCache.class);
+    EvictionMetrics m = hc.eviction.getMetrics();
+    assertEquals(_MAX_WEIGHT, m.getMaxWeight());
+    for (int i = 0; i < 100; i++) {
+      c.put(i, 10);
+    }
+    assertEquals(100, hc.getLocalSize());
+    assertEquals(_MAX_WEIGHT, m.getTotalWeight());
+    c.put(0, 110);
+    assertTrue(m.getTotalWeight() <= _MAX_WEIGHT);
+    assertTrue(hc.getLocalSize() < 100);
+    long _weight = 0;
+    for (int k : c.keys()) {
+      _weight += c.peek(k);
+    }
+    assertEquals(_weight, m.getTotalWeight());
+    c.removeAll();
+    assertEquals(0, m.getTotalWeight());
+    c.put(1, 500);
+    InternalCacheInfo inf = hc.getLatestInfo();
+    assertEquals(_MAX_WEIGHT, inf.getMaximumWeight());
+    assertEquals(500, inf.getTotalWeight());
+    assertTrue(inf.toString().contains("maximumWeight=" + _MAX_WEIGHT));
+    assertFalse(inf.toString().contains("capacity="));
+    c.clear();
+    assertEquals(0, m.getTotalWeight());
+    c.close();
+  }
+
+  /**
+   * Bulk insert exceeds the capacity by more than one chunk, eviction needs to
+   * catch up after each batch.
+   */
+  @Test
+  public void putAllAndRemoveAll() {
+    final int _SIZE = 100;
+    Cache<Integer, Integer> c =
+      Cache2kBuilder.of(Integer.class, Integer.class)
+        .eternal(true)
+        .entryCapacity(_SIZE)
+        .build();
+    HeapCache hc = c.requestInterface(HeapCache.class);
+    Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+    for (int i = 0; i < _SIZE * 50; i++) {
+      map.put(i, i);
+    }
+    c.putAll(map);
+    assertEquals(_SIZE, hc.getLocalSize());
+    List<Integer> _keys = new ArrayList<Integer>();
+    for (int k : c.keys()) {
+      assertEquals((Integer) k, c.peek(k));
+      _keys.add(k);
+    }
+    c.putAll(map);
+    assertEquals(_SIZE, hc.getLocalSize());
+    _keys.add(_SIZE * 100);
+    c.removeAll(_keys);
+    c.removeAll(c.keys());
+    assertEquals(0, hc.getLocalSize());
+    assertEquals(0, hc.eviction.getMetrics().getSize());
+    c.close();
+  }
+
+  /**
+   * A batch of putAll is inserted within one segment lock. The segment tables need to
+   * be expanded while inserting, otherwise the hash chains get long.
+   */
+  @Test
+  public void putAllExpandsHash() {
+    final int _SIZE = 1000;
+    Cache<Integer, Integer> c =
+      Cache2kBuilder.of(Integer.class, Integer.class)
+        .eternal(true)
+        .entryCapacity(_SIZE * 10)
+        .build();
+    HeapCache hc = c.requestInterface(HeapCache.class);
+    Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+    for (int i = 0; i < _SIZE; i++) {
+      map.put(i, i);
+    }
+    c.putAll(map);
+    assertEquals(_SIZE, hc.getLocalSize());
+    Hash2 h = hc.hash;
+    long _total = 0;
+    for (int si = 0; si < h.getSegmentCount(); si++) {
+      Entry[] tab = h.getSegmentTable(si);
+      int _count = 0;
+      for (Entry e : tab) {
+        for (; e != null; e = e.another) {
+          _count++;
+        }
+      }
+      assertTrue("segment " + si + " expanded", _count <= h.maxFill(tab.length));
+      _total += _count;
+    }
+    assertEquals(_SIZE, _total);
+    CollisionInfo inf = new CollisionInfo();
+    h.calcHashCollisionInfo(inf);
+    assertTrue("longest chain " + inf.longestCollisionSize, inf.longestCollisionSize < 10);
+    c.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void maximumWeightWithoutWeigher() {
+    Cache2kBuilder.of(Integer.class, Integer.class)
+      .maximumWeight(1000)
+      .build();
+  }
+
 }
@@ -0,0 +1,182 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the frequency sketch and compare the hit rate of the eviction with and without
+ * the admission filter on a generated trace.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class FrequencySketchTest {
+
+  @Test
+  public void incrementAndFrequency() {
+    FrequencySketch s = new FrequencySketch(100);
+    assertEquals(0, s.frequency(4711));
+    s.increment(4711);
+    assertEquals(1, s.frequency(4711));
+    s.increment(4711);
+    s.increment(4711);
+    assertEquals(3, s.frequency(4711));
+    assertEquals(0, s.frequency(4712));
+  }
+
+  @Test
+  public void counterSaturates() {
+    FrequencySketch s = new FrequencySketch(100);
+    for (int i = 0; i < 100; i++) {
+      s.increment(123);
+    }
+    assertEquals(16, s.frequency(123));
+  }
+
+  @Test
+  public void agingHalvesCounters() {
+    FrequencySketch s = new FrequencySketch(16);
+    for (int i = 0; i < 9; i++) {
+      s.increment(1);
+    }
+    assertEquals(9, s.frequency(1));
+    s.reset();
+    assertEquals(4, s.frequency(1));
+    assertEquals(1, s.getResetCount());
+  }
+
+  @Test
+  public void agingAfterSamplePeriod() {
+    FrequencySketch s = new FrequencySketch(16);
+    for (int i = 0; i < 16 * 10; i++) {
+      s.increment(i);
+    }
+    assertEquals(1, s.getResetCount());
+  }
+
+  /**
+   * Hot set with skewed access, interrupted by scans. Each key of a scan is requested
+   * twice, so the first access leaves a ghost.
+   */
+  static int[] generateTrace(int _length, int _hotKeys, int _scanInterval, int _scanLength) {
+    Random _random = new Random(1802);
+    int[] _trace = new int[_length];
+    int _scanKey = Integer.MAX_VALUE / 2;
+    int i = 0;
+    while (i < _length) {
+      if (i % _scanInterval == 0) {
+        for (int j = 0; j < _scanLength && i < _length; j++) {
+          _trace[i++] = _scanKey + (j % (_scanLength / 2));
+        }
+        _scanKey += _scanLength / 2;
+        continue;
+      }
+      double d = _random.nextDouble();
+      _trace[i++] = (int) (d * d * d * _hotKeys);
+    }
+    return _trace;
+  }
+
+  /**
+   * Cache with single eviction segment. With admission filter, the read buffer is drained
+   * by the reading thread, to have deterministic results.
+   */
+  static Cache<Integer, Integer> createCache(int _capacity, boolean _admissionFilter) {
+    Cache<Integer, Integer> c =
+      Cache2kBuilder.of(Integer.class, Integer.class)
+        .eternal(true)
+        .entryCapacity(_capacity)
+        .strictEviction(true)
+        .build();
+    HeapCache hc = c.requestInterface(HeapCache.class);
+    if (_admissionFilter) {
+      ClockProPlusEviction ev = (ClockProPlusEviction) hc.eviction;
+      ev.enableAdmissionFilter();
+      ev.setMaintenanceExecutor(new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+          command.run();
+        }
+      });
+    }
+    return c;
+  }
+
+  static double runTrace(int[] _trace, int _capacity, boolean _admissionFilter) {
+    Cache<Integer, Integer> c = createCache(_capacity, _admissionFilter);
+    int _hits = 0;
+    for (int k : _trace) {
+      if (c.peek(k) != null) {
+        _hits++;
+      } else {
+        c.put(k, k);
+      }
+    }
+    c.close();
+    return _hits * 100.0 / _trace.length;
+  }
+
+  @Test
+  public void admissionFilterImprovesScanHeavyTrace() {
+    int[] _trace = generateTrace(200000, 1000, 500, 200);
+    double _clockPro = runTrace(_trace, 200, false);
+    double _tinyLfu = runTrace(_trace, 200, true);
+    assertTrue("hit rate with admission filter " + _tinyLfu + " higher than " + _clockPro,
+      _tinyLfu > _clockPro);
+  }
+
+  /**
+   * Hits reach the sketch via the read buffer. A frequently read key survives a scan of
+   * keys that are inserted once, since the scanned keys are not admitted.
+   */
+  @Test
+  public void frequentlyReadKeySurvivesScan() {
+    Cache<Integer, Integer> c = createCache(100, true);
+    HeapCache hc = c.requestInterface(HeapCache.class);
+    ClockProPlusEviction ev = (ClockProPlusEviction) hc.eviction;
+    for (int i = 0; i < 100; i++) {
+      c.put(i, i);
+    }
+    for (int j = 0; j < 10; j++) {
+      c.get(0);
+    }
+    ev.drain();
+    assertTrue(ev.getSketch().frequency(hc.modifiedHash(((Integer) 0).hashCode())) > 1);
+    for (int i = 1000; i < 2000; i++) {
+      c.put(i, i);
+      c.get(0);
+    }
+    assertTrue(c.containsKey(0));
+    assertTrue(ev.getAdmissionRejectCount() > 0);
+    c.close();
+  }
+
+}
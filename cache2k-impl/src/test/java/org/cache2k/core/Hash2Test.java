@@ -0,0 +1,218 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the hash table directly, without a cache.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class Hash2Test {
+
+  /**
+   * Expansion only locks the expanding segment. Block the expansion of
+   * segment 0 and check that the other segments are fully operational meanwhile.
+   */
+  @Test
+  public void otherSegmentsOperationalDuringExpansion() throws Exception {
+    final BlockingHash h = new BlockingHash();
+    final int _initialLength = h.getSegmentTable(0).length;
+    final int _count = _initialLength * h.getSegmentCount();
+    for (int i = 0; i < _count; i++) {
+      h.insertWithinLock(new Entry<Integer, Integer>(i, i), i);
+    }
+    Thread t = new Thread() {
+      @Override
+      public void run() {
+        h.checkExpand(0);
+      }
+    };
+    t.start();
+    h.expanding.await();
+    for (int i = 0; i < _count; i++) {
+      if ((i & Hash2.LOCK_MASK) != 0) {
+        assertNotNull(h.lookup(i, i));
+      }
+    }
+    int _key = _count + 1;
+    Entry<Integer, Integer> e = new Entry<Integer, Integer>(_key, _key);
+    assertSame(e, h.insertWithinLock(e, _key));
+    assertSame(e, h.lookup(_key, _key));
+    assertTrue(h.remove(e));
+    h.proceed.countDown();
+    t.join();
+    assertEquals(_initialLength * 2, h.getSegmentTable(0).length);
+    assertEquals(_initialLength, h.getSegmentTable(1).length);
+    for (int i = 0; i < _count; i++) {
+      assertNotNull(h.lookup(i, i));
+    }
+    assertEquals(_count, h.getSize());
+    assertEquals(_count, h.calcEntryCount());
+  }
+
+  @Test
+  public void segmentSkew() {
+    Hash2<Integer, Integer> h = new Hash2<Integer, Integer>();
+    for (int i = 0; i < 100; i++) {
+      int _hash = i * h.getSegmentCount();
+      h.insertWithinLock(new Entry<Integer, Integer>(i, _hash), _hash);
+      h.checkExpand(_hash);
+    }
+    CollisionInfo inf = new CollisionInfo();
+    h.calcHashCollisionInfo(inf);
+    assertEquals(0, inf.minSegmentSize);
+    assertEquals(100, inf.maxSegmentSize);
+  }
+
+  @Test
+  public void shrinkAfterRemove() {
+    Hash2<Integer, Integer> h = new Hash2<Integer, Integer>();
+    int _initialLength = h.getSegmentTable(0).length;
+    int _count = 10000;
+    List<Entry<Integer, Integer>> l = new ArrayList<Entry<Integer, Integer>>();
+    for (int i = 0; i < _count; i++) {
+      Entry<Integer, Integer> e = new Entry<Integer, Integer>(i, i);
+      h.insertWithinLock(e, i);
+      h.checkExpand(i);
+      l.add(e);
+    }
+    assertTrue(h.getSegmentTable(0).length > _initialLength);
+    for (int i = 0; i < _count - 1; i++) {
+      assertTrue(h.remove(l.get(i)));
+    }
+    for (int si = 0; si < h.getSegmentCount(); si++) {
+      assertEquals(_initialLength, h.getSegmentTable(si).length);
+    }
+    assertSame(l.get(_count - 1), h.lookup(_count - 1, _count - 1));
+    assertEquals(1, h.calcEntryCount());
+  }
+
+  @Test
+  public void collectEntriesWithExpansion() {
+    collectEntriesWithResize(new Hash2<Integer, Integer>(), true);
+  }
+
+  @Test
+  public void collectEntriesWithShrink() {
+    collectEntriesWithResize(new Hash2<Integer, Integer>(), false);
+  }
+
+  /**
+   * Iterate through the hash via {@link Hash2#collectEntries(int, long, List)} and expand or
+   * shrink all segment tables in the middle of the first segment. No entry may be returned
+   * twice and the entries present during the whole iteration must be returned.
+   */
+  static void collectEntriesWithResize(Hash2<Integer, Integer> h, boolean _expand) {
+    int _count = 1000;
+    int _extraCount = 10000;
+    for (int i = 0; i < _count; i++) {
+      insert(h, i);
+    }
+    List<Entry<Integer, Integer>> _extra = new ArrayList<Entry<Integer, Integer>>();
+    if (!_expand) {
+      for (int i = _count; i < _count + _extraCount; i++) {
+        _extra.add(insert(h, i));
+      }
+    }
+    int _initialLength = h.getSegmentTable(0).length;
+    int[] _seen = new int[_count + _extraCount];
+    boolean _resized = false;
+    List<Entry<Integer, Integer>> _slot = new ArrayList<Entry<Integer, Integer>>();
+    for (int si = 0; si < h.getSegmentCount(); si++) {
+      long _position = 0;
+      while (_position < Hash2.END_POSITION) {
+        _slot.clear();
+        _position = h.collectEntries(si, _position, _slot);
+        for (Entry<Integer, Integer> e : _slot) {
+          _seen[e.getKey()]++;
+        }
+        if (!_resized && _position >= Hash2.END_POSITION / 2) {
+          _resized = true;
+          if (_expand) {
+            for (int i = _count; i < _count + _extraCount; i++) {
+              insert(h, i);
+            }
+          } else {
+            for (Entry<Integer, Integer> e : _extra) {
+              assertTrue(h.remove(e));
+            }
+          }
+        }
+      }
+    }
+    if (_expand) {
+      assertTrue(h.getSegmentTable(0).length > _initialLength);
+    } else {
+      assertTrue(h.getSegmentTable(0).length < _initialLength);
+    }
+    for (int i = 0; i < _seen.length; i++) {
+      if (i < _count) {
+        assertEquals("key " + i, 1, _seen[i]);
+      } else {
+        assertTrue("key " + i, _seen[i] <= 1);
+      }
+    }
+  }
+
+  private static Entry<Integer, Integer> insert(Hash2<Integer, Integer> h, int key) {
+    for (;;) {
+      Entry<Integer, Integer> e = h.insertWithinLock(new Entry<Integer, Integer>(key, key), key);
+      h.checkExpand(key);
+      if (e != null) {
+        return e;
+      }
+    }
+  }
+
+  /**
+   * Blocks within the expansion of a segment.
+   */
+  static class BlockingHash extends Hash2<Integer, Integer> {
+
+    final CountDownLatch expanding = new CountDownLatch(1);
+    final CountDownLatch proceed = new CountDownLatch(1);
+
+    @Override
+    protected void resizeSegment(final int si, final int _length) {
+      expanding.countDown();
+      try {
+        proceed.await();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      super.resizeSegment(si, _length);
+    }
+
+  }
+
+}
@@ -20,6 +20,8 @@ package org.cache2k.core;
  * #L%
  */
 
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -83,4 +85,45 @@ public class InternalCache2kBuilderTest {
     assertEquals(32, _segs);
   }
 
+  @Test
+  public void disableStatistics_selectsImplementationWithoutStatistics() {
+    Cache<Integer, Integer> c = Cache2kBuilder.of(Integer.class, Integer.class)
+      .disableStatistics(true)
+      .build();
+    assertEquals(HeapCacheWithoutStatistics.class, c.requestInterface(InternalCache.class).getClass());
+    assertNull(c.get(1));
+    assertFalse(c.containsKey(1));
+    c.put(1, 2);
+    assertEquals((Integer) 2, c.get(1));
+    assertEquals((Integer) 2, c.peek(1));
+    assertTrue(c.containsKey(1));
+    c.close();
+  }
+
+  /**
+   * A bounded cache needs the hits for the eviction, also for {@code containsKey}.
+   */
+  @Test
+  public void disableStatistics_containsKeyRecordsHit() {
+    Cache<Integer, Integer> c = Cache2kBuilder.of(Integer.class, Integer.class)
+      .disableStatistics(true)
+      .entryCapacity(100)
+      .build();
+    HeapCache<Integer, Integer> hc = c.requestInterface(HeapCache.class);
+    c.put(1, 2);
+    Entry<Integer, Integer> e = hc.lookupEntryNoHitRecord(1);
+    long _hits = e.hitCnt;
+    assertTrue(c.containsKey(1));
+    assertEquals(_hits + 1, e.hitCnt);
+    c.close();
+  }
+
+  @Test
+  public void statistics_selectsHeapCache() {
+    Cache<Integer, Integer> c = Cache2kBuilder.of(Integer.class, Integer.class)
+      .build();
+    assertEquals(HeapCache.class, c.requestInterface(InternalCache.class).getClass());
+    c.close();
+  }
+
 }
@@ -0,0 +1,74 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class LatencyHistogramTest {
+
+  @Test
+  public void bucketBoundaries() {
+    int _previousIndex = 0;
+    for (long v = 0; v < (1L << 41); v = v < 100 ? v + 1 : v + v / 7) {
+      int idx = LatencyHistogram.bucketIndex(v);
+      assertTrue("monotonic at " + v, idx >= _previousIndex);
+      assertTrue(idx < LatencyHistogram.BUCKET_COUNT);
+      _previousIndex = idx;
+      if (v < (1L << 40)) {
+        long _max = LatencyHistogram.bucketMaximum(idx);
+        assertTrue("value within bucket " + v, _max >= v);
+        assertTrue("relative error " + v, _max - v <= v / 16);
+      }
+    }
+    assertEquals(0, LatencyHistogram.bucketIndex(-5));
+    assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void percentiles() {
+    LatencyHistogram h = new LatencyHistogram();
+    assertEquals(0, h.snapshot().getValueAtPercentile(99));
+    for (int i = 0; i < 990; i++) {
+      h.record(1000);
+    }
+    for (int i = 0; i < 10; i++) {
+      h.record(1000000);
+    }
+    LatencyHistogram.Snapshot s = h.snapshot();
+    assertEquals(1000, s.getCount());
+    long _median = s.getValueAtPercentile(50);
+    assertTrue(_median >= 1000 && _median < 1000 * 17 / 16);
+    assertTrue(s.getValueAtPercentile(99) < 1000 * 17 / 16);
+    long _p999 = s.getValueAtPercentile(99.9);
+    assertTrue(_p999 >= 1000000 && _p999 < 1000000 * 17 / 16);
+    assertEquals(_p999, s.getMax());
+    assertTrue(s.toString().contains("count=1000"));
+  }
+
+}
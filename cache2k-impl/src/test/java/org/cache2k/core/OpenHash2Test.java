@@ -0,0 +1,171 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the open addressing hash table directly, without a cache.
+ *
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class OpenHash2Test {
+
+  OpenHash2<Integer, Integer> hash = new OpenHash2<Integer, Integer>();
+
+  private Entry<Integer, Integer> insert(int key, int _hash) {
+    for (;;) {
+      Entry<Integer, Integer> e = hash.insertWithinLock(new Entry<Integer, Integer>(key, _hash), _hash);
+      hash.checkExpand(_hash);
+      if (e != null) {
+        return e;
+      }
+    }
+  }
+
+  @Test
+  public void collectEntriesWithExpansion() {
+    Hash2Test.collectEntriesWithResize(hash, true);
+  }
+
+  @Test
+  public void collectEntriesWithShrink() {
+    Hash2Test.collectEntriesWithResize(hash, false);
+  }
+
+  @Test
+  public void insertLookupRemove() {
+    Entry<Integer, Integer> e = insert(1, 4711);
+    assertSame(e, hash.lookup(1, 4711));
+    assertSame(e, insert(1, 4711));
+    assertNull(hash.lookup(2, 4711));
+    assertEquals(1, hash.getSize());
+    assertTrue(hash.remove(e));
+    assertFalse(hash.remove(e));
+    assertNull(hash.lookup(1, 4711));
+    assertEquals(0, hash.getSize());
+  }
+
+  /**
+   * Same hash code for all keys, entries occupy consecutive slots. Removing one in the
+   * middle needs to shift the following entries back.
+   */
+  @Test
+  public void sameHashCode() {
+    List<Entry<Integer, Integer>> l = new ArrayList<Entry<Integer, Integer>>();
+    for (int i = 0; i < 5; i++) {
+      l.add(insert(i, 123));
+    }
+    assertTrue(hash.remove(l.get(2)));
+    for (int i = 0; i < 5; i++) {
+      if (i == 2) {
+        assertNull(hash.lookup(i, 123));
+      } else {
+        assertSame(l.get(i), hash.lookup(i, 123));
+      }
+    }
+    assertEquals(4, hash.calcEntryCount());
+    CollisionInfo inf = new CollisionInfo();
+    hash.calcHashCollisionInfo(inf);
+    assertEquals(3, inf.collisionCnt);
+    assertEquals(4, inf.longestCollisionSize);
+  }
+
+  @Test
+  public void expandAndRemoveRandom() {
+    int _count = 10000;
+    Random r = new Random(1802);
+    int[] _hashes = new int[_count];
+    List<Entry<Integer, Integer>> l = new ArrayList<Entry<Integer, Integer>>();
+    for (int i = 0; i < _count; i++) {
+      _hashes[i] = r.nextInt(_count) * 31;
+      l.add(insert(i, _hashes[i]));
+    }
+    int _slots = 0;
+    for (int si = 0; si < hash.getSegmentCount(); si++) {
+      _slots += hash.getSegmentTable(si).length;
+    }
+    assertTrue(_slots > _count);
+    assertEquals(_count, hash.getSize());
+    assertEquals(_count, hash.calcEntryCount());
+    for (int i = 0; i < _count; i += 2) {
+      assertTrue(hash.remove(l.get(i)));
+    }
+    for (int i = 0; i < _count; i++) {
+      if (i % 2 == 0) {
+        assertNull(hash.lookup(i, _hashes[i]));
+      } else {
+        assertSame(l.get(i), hash.lookup(i, _hashes[i]));
+      }
+    }
+    assertEquals(_count / 2, hash.getSize());
+    assertEquals(_count / 2, hash.calcEntryCount());
+  }
+
+  /**
+   * Inserts without expansion, like concurrent inserts that are faster than the expansion.
+   * One slot stays empty, so removing with backward shifting terminates.
+   */
+  @Test(timeout = 10000)
+  public void fillSegmentWithoutExpansionAndRemove() {
+    int _length = hash.getSegmentTable(0).length;
+    int _step = hash.getSegmentCount();
+    List<Entry<Integer, Integer>> l = new ArrayList<Entry<Integer, Integer>>();
+    for (int i = 0; ; i++) {
+      int _hash = i * _step;
+      Entry<Integer, Integer> e = hash.insertWithinLock(new Entry<Integer, Integer>(i, _hash), _hash);
+      if (e == null) {
+        break;
+      }
+      l.add(e);
+    }
+    assertEquals(_length - 1, l.size());
+    assertTrue(hash.remove(l.get(_length / 2)));
+    for (int i = 0; i < l.size(); i++) {
+      if (i == _length / 2) {
+        assertNull(hash.lookup(i, i * _step));
+      } else {
+        assertSame(l.get(i), hash.lookup(i, i * _step));
+      }
+    }
+    assertEquals(_length - 2, hash.getSize());
+    assertEquals(_length - 2, hash.calcEntryCount());
+  }
+
+  @Test
+  public void clear() {
+    insert(1, 4711);
+    hash.clearWhenLocked();
+    assertNull(hash.lookup(1, 4711));
+    assertEquals(0, hash.getSize());
+  }
+
+}
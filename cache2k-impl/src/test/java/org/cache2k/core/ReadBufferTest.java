@@ -0,0 +1,95 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class ReadBufferTest {
+
+  @Test
+  public void offerAndDrain() {
+    ReadBuffer b = new ReadBuffer();
+    Entry e = new Entry();
+    assertTrue(b.offer(e));
+    assertTrue(b.offer(e));
+    assertEquals(0, e.hitCnt);
+    assertEquals(2, b.drain());
+    assertEquals(2, e.hitCnt);
+    assertEquals(0, b.drain());
+  }
+
+  @Test
+  public void fullStripeRejects() {
+    ReadBuffer b = new ReadBuffer();
+    Entry e = new Entry();
+    int _count = 0;
+    while (b.offer(e)) {
+      _count++;
+    }
+    assertTrue(_count > 0);
+    assertEquals(_count, b.drain());
+    assertEquals(_count, e.hitCnt);
+    assertTrue(b.offer(e));
+  }
+
+  @Test
+  public void concurrentOffers() throws Exception {
+    final ReadBuffer b = new ReadBuffer();
+    final Entry e = new Entry();
+    final int _offers = 10000;
+    final long[] _rejected = new long[4];
+    Thread[] _threads = new Thread[_rejected.length];
+    for (int i = 0; i < _threads.length; i++) {
+      final int _index = i;
+      _threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < _offers; j++) {
+            if (!b.offer(e)) {
+              _rejected[_index]++;
+              synchronized (b) {
+                b.drain();
+              }
+            }
+          }
+        }
+      };
+      _threads[i].start();
+    }
+    long _rejectedSum = 0;
+    for (int i = 0; i < _threads.length; i++) {
+      _threads[i].join();
+      _rejectedSum += _rejected[i];
+    }
+    b.drain();
+    assertEquals(_threads.length * _offers - _rejectedSum, e.hitCnt);
+  }
+
+}
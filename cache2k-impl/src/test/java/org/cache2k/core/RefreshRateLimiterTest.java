@@ -0,0 +1,80 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class RefreshRateLimiterTest {
+
+  @Test
+  public void limitPerSecond() {
+    RefreshRateLimiter l = new RefreshRateLimiter(10);
+    long now = 1000;
+    for (int i = 0; i < 10; i++) {
+      assertTrue(l.tryAcquire(now, false));
+    }
+    assertFalse(l.tryAcquire(now, false));
+    assertFalse("no refill within same millisecond", l.tryAcquire(now, false));
+    assertTrue("one permit after 100ms", l.tryAcquire(now + 100, false));
+    assertFalse(l.tryAcquire(now + 100, false));
+  }
+
+  @Test
+  public void coldEntriesUseHalfBudget() {
+    RefreshRateLimiter l = new RefreshRateLimiter(10);
+    long now = 1000;
+    int _cold = 0;
+    while (l.tryAcquire(now, true)) {
+      _cold++;
+    }
+    assertEquals(5, _cold);
+    for (int i = 0; i < 5; i++) {
+      assertTrue("hot entries get the rest", l.tryAcquire(now, false));
+    }
+    assertFalse(l.tryAcquire(now, false));
+  }
+
+  @Test
+  public void refillLimitedToOneSecond() {
+    RefreshRateLimiter l = new RefreshRateLimiter(10);
+    long now = 1000;
+    int _count = 0;
+    while (l.tryAcquire(now + 100000, false)) {
+      _count++;
+    }
+    assertEquals(10, _count);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalid() {
+    new RefreshRateLimiter(0);
+  }
+
+}
@@ -0,0 +1,85 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class StripedCommonMetricsTest {
+
+  @Test
+  public void countersAreSeparate() {
+    StripedCommonMetrics m = new StripedCommonMetrics();
+    m.putNewEntry();
+    m.putHit(5);
+    m.load(123);
+    m.reload(2, 77);
+    m.goneSpin();
+    assertEquals(1, m.getPutNewEntryCount());
+    assertEquals(5, m.getPutHitCount());
+    assertEquals(1, m.getLoadCount());
+    assertEquals(2, m.getReloadCount());
+    assertEquals(200, m.getLoadMillis());
+    assertEquals(1, m.getGoneSpinCount());
+    assertEquals(0, m.getRefreshCount());
+    assertEquals(0, m.getPeekMissCount());
+    assertFalse(m.isDisabled());
+  }
+
+  @Test
+  public void concurrentUpdatesAreSummed() throws Exception {
+    final StripedCommonMetrics m = new StripedCommonMetrics(4);
+    final int _threadCount = 8;
+    final int _increments = 10000;
+    Thread[] _threads = new Thread[_threadCount];
+    for (int i = 0; i < _threadCount; i++) {
+      _threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < _increments; j++) {
+            m.putNewEntry();
+            m.load(1);
+          }
+        }
+      };
+      _threads[i].start();
+    }
+    for (Thread t : _threads) {
+      t.join();
+    }
+    assertEquals(_threadCount * _increments, m.getPutNewEntryCount());
+    assertEquals(_threadCount * _increments, m.getLoadCount());
+    assertEquals(_threadCount * _increments, m.getLoadMillis());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void stripeCountPowerOfTwo() {
+    new StripedCommonMetrics(3);
+  }
+
+}
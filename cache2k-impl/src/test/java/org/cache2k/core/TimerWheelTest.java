@@ -0,0 +1,236 @@
+package org.cache2k.core;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.core.util.InternalClock;
+import org.cache2k.testing.category.FastTests;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class TimerWheelTest {
+
+  static final long START = 1000000;
+
+  ManualClock clock;
+  List<Entry> fired;
+  int batchCount;
+  TimerWheel wheel;
+
+  @Before
+  public void setUp() {
+    clock = new ManualClock();
+    fired = new ArrayList<Entry>();
+    wheel = new TimerWheel(clock, new TimerWheel.Target() {
+      @Override
+      public void timerEvents(final byte _action, final List<Entry> _entries) {
+        assertEquals(TimerWheel.EXPIRE, _action);
+        fired.addAll(_entries);
+        batchCount++;
+      }
+    }, null, 1);
+  }
+
+  void advanceTo(long _time) {
+    clock.now = _time;
+    wheel.timeReached(_time);
+  }
+
+  @Test
+  public void fireWhenReached() {
+    Entry e = new Entry();
+    wheel.schedule(e, START + 10, TimerWheel.EXPIRE);
+    assertEquals(START + 10, clock.scheduled);
+    assertEquals(1, wheel.getSize());
+    advanceTo(START + 9);
+    assertTrue(fired.isEmpty());
+    advanceTo(START + 10);
+    assertEquals(1, fired.size());
+    assertSame(e, fired.get(0));
+    assertEquals(0, wheel.getSize());
+    assertEquals(0, e.getTimerAction());
+  }
+
+  @Test
+  public void timeInPastFiresImmediately() {
+    Entry e = new Entry();
+    wheel.schedule(e, 0, TimerWheel.EXPIRE);
+    assertEquals(START, clock.scheduled);
+    advanceTo(START);
+    assertEquals(1, fired.size());
+  }
+
+  @Test
+  public void cancel() {
+    Entry e = new Entry();
+    assertFalse(wheel.cancel(e));
+    wheel.schedule(e, START + 10, TimerWheel.EXPIRE);
+    assertTrue(wheel.cancel(e));
+    assertFalse(wheel.cancel(e));
+    assertEquals(0, wheel.getSize());
+    advanceTo(START + 100);
+    assertTrue(fired.isEmpty());
+  }
+
+  @Test
+  public void rescheduleReplacesTimer() {
+    Entry e = new Entry();
+    wheel.schedule(e, START + 10, TimerWheel.EXPIRE);
+    wheel.schedule(e, START + 20, TimerWheel.EXPIRE);
+    assertEquals(1, wheel.getSize());
+    advanceTo(START + 15);
+    assertTrue(fired.isEmpty());
+    advanceTo(START + 20);
+    assertEquals(1, fired.size());
+  }
+
+  /**
+   * Timers on all levels and beyond the wheel range are cascaded and fire in order,
+   * never early.
+   */
+  @Test
+  public void cascadeInOrder() {
+    long[] _offsets = new long[]{1, 63, 64, 65, 4095, 4096, 4097, 300000, 20000000, 1L << 32, 1L << 40};
+    for (long o : _offsets) {
+      Entry e = new Entry();
+      wheel.schedule(e, START + o, TimerWheel.EXPIRE);
+    }
+    assertEquals(_offsets.length, wheel.getSize());
+    int _count = 0;
+    while (clock.scheduled != Long.MAX_VALUE && _count < 100000) {
+      long t = clock.scheduled;
+      clock.scheduled = Long.MAX_VALUE;
+      int _firedBefore = fired.size();
+      advanceTo(t);
+      for (int i = _firedBefore; i < fired.size(); i++) {
+        assertTrue("never early", fired.get(i).getTimerTime() <= t);
+        assertEquals("not late", fired.get(i).getTimerTime(), t);
+      }
+      _count++;
+    }
+    assertEquals(_offsets.length, fired.size());
+    for (int i = 0; i < _offsets.length; i++) {
+      assertEquals(START + _offsets[i], fired.get(i).getTimerTime());
+    }
+    assertEquals(0, wheel.getSize());
+  }
+
+  @Test
+  public void manyEntriesSameSlot() {
+    for (int i = 0; i < 100; i++) {
+      wheel.schedule(new Entry(), START + 5000, TimerWheel.EXPIRE);
+    }
+    advanceTo(START + 4999);
+    assertTrue(fired.isEmpty());
+    advanceTo(START + 5000);
+    assertEquals(100, fired.size());
+    assertEquals(1, batchCount);
+  }
+
+  @Test
+  public void dueEntriesDeliveredAsBatch() {
+    for (int i = 0; i < 100; i++) {
+      wheel.schedule(new Entry(), START + 10 + i, TimerWheel.EXPIRE);
+    }
+    advanceTo(START + 200);
+    assertEquals(100, fired.size());
+    assertEquals(1, batchCount);
+  }
+
+  @Test
+  public void separateBatchPerAction() {
+    final List<Byte> _actions = new ArrayList<Byte>();
+    wheel = new TimerWheel(clock, new TimerWheel.Target() {
+      @Override
+      public void timerEvents(final byte _action, final List<Entry> _entries) {
+        _actions.add(_action);
+      }
+    }, null, 1);
+    wheel.schedule(new Entry(), START + 10, TimerWheel.REFRESH);
+    wheel.schedule(new Entry(), START + 10, TimerWheel.EXPIRE);
+    wheel.schedule(new Entry(), START + 10, TimerWheel.EXPIRE);
+    advanceTo(START + 10);
+    assertEquals(2, _actions.size());
+    assertEquals(TimerWheel.EXPIRE, (byte) _actions.get(0));
+    assertEquals(TimerWheel.REFRESH, (byte) _actions.get(1));
+  }
+
+  @Test
+  public void cancelAll() {
+    Entry e = new Entry();
+    wheel.schedule(e, START + 10, TimerWheel.EXPIRE);
+    wheel.cancelAll();
+    assertEquals(0, wheel.getSize());
+    assertEquals(0, e.getTimerAction());
+    wheel.schedule(e, START + 10, TimerWheel.EXPIRE);
+    advanceTo(START + 10);
+    assertTrue(fired.isEmpty());
+  }
+
+  /**
+   * Clock that is only moved by the test and records the wakeup requested by the wheel.
+   */
+  static class ManualClock implements InternalClock {
+
+    long now = START;
+    long scheduled = Long.MAX_VALUE;
+
+    @Override
+    public boolean isJobSchedulable() {
+      return true;
+    }
+
+    @Override
+    public TimeReachedJob createJob(final TimeReachedEvent ev) {
+      return new TimeReachedJob() { };
+    }
+
+    @Override
+    public void schedule(final TimeReachedJob j, final long _millis) {
+      scheduled = _millis;
+    }
+
+    @Override
+    public void disableJob(final TimeReachedJob j) {
+      scheduled = Long.MAX_VALUE;
+    }
+
+    @Override
+    public long millis() {
+      return now;
+    }
+
+    @Override
+    public void sleep(final long _millis) { }
+
+  }
+
+}
@@ -25,11 +25,9 @@ import org.cache2k.Cache2kBuilder;
 import org.cache2k.CacheEntry;
 import org.cache2k.core.util.ClockDefaultImpl;
 import org.cache2k.core.util.InternalClock;
-import org.cache2k.core.util.TunableFactory;
 import org.cache2k.expiry.ExpiryPolicy;
 import org.cache2k.integration.CacheLoader;
 import org.cache2k.testing.category.FastTests;
-import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
@@ -69,6 +67,45 @@ public class TimingHandlerTest {
     assertEquals(TimingHandler.ETERNAL_IMMEDIATE.getClass(), h.getClass());
   }
 
+  @Test
+  public void refreshAheadJitter() {
+    TimingHandler.Static h = (TimingHandler.Static) TimingHandler.of(
+      CLOCK,
+      Cache2kBuilder.forUnknownTypes()
+        .expireAfterWrite(5, TimeUnit.MINUTES)
+        .refreshAhead(true)
+        .refreshAheadJitter(1, TimeUnit.MINUTES)
+        .toConfiguration()
+    );
+    long t = CLOCK.millis() + TimeUnit.MINUTES.toMillis(5);
+    long _min = Long.MAX_VALUE;
+    long _max = 0;
+    for (int i = 0; i < 100; i++) {
+      Entry e = new Entry(i, i);
+      long _refreshTime = h.refreshTimeWithJitter(e, t);
+      assertTrue(_refreshTime <= t);
+      assertTrue(_refreshTime >= t - TimeUnit.MINUTES.toMillis(1));
+      _min = Math.min(_min, _refreshTime);
+      _max = Math.max(_max, _refreshTime);
+    }
+    assertTrue("refresh times are spread", _max - _min > TimeUnit.SECONDS.toMillis(30));
+    long _soon = CLOCK.millis() + 1000;
+    assertTrue("never in the past", h.refreshTimeWithJitter(new Entry(1, 1), _soon) >= _soon - 1000);
+  }
+
+  @Test
+  public void refreshAheadNoJitter() {
+    TimingHandler.Static h = (TimingHandler.Static) TimingHandler.of(
+      CLOCK,
+      Cache2kBuilder.forUnknownTypes()
+        .expireAfterWrite(5, TimeUnit.MINUTES)
+        .refreshAhead(true)
+        .toConfiguration()
+    );
+    long t = CLOCK.millis() + 12345;
+    assertEquals(t, h.refreshTimeWithJitter(new Entry(1, 1), t));
+  }
+
   @Test
   public void expireAfterWrite_overflow() {
     TimingHandler h = TimingHandler.of(
@@ -259,10 +296,12 @@ public class TimingHandlerTest {
     assertTrue(Math.abs(t) < _SHARP_POINT_IN_TIME);
   }
 
-  @Test @Ignore("purgeCalled: move to slow tests")
-  public void purgeCalled() {
+  /**
+   * Cancelled timers are removed from the timer wheel immediately, no purge is needed.
+   */
+  @Test
+  public void evictedEntriesRemovedFromTimer() {
     int _SIZE = 1000;
-    int _PURGE_INTERVAL = TunableFactory.get(TimingHandler.Tunable.class).purgeInterval;
     Cache<Integer, Integer> c = Cache2kBuilder.of(Integer.class, Integer.class)
       .entryCapacity(_SIZE)
       .expireAfterWrite(5, TimeUnit.MINUTES)
@@ -273,13 +312,15 @@ public class TimingHandlerTest {
         }
       })
       .build();
-    for (int i = 0; i < _PURGE_INTERVAL + _SIZE + 125; i++) {
+    for (int i = 0; i < _SIZE * 3; i++) {
       c.get(i);
     }
-    assertEquals(10000, _PURGE_INTERVAL);
-    int _timerCacnelCount =
-      ((TimingHandler.Static) c.requestInterface(HeapCache.class).timing).timerCancelCount;
-    assertTrue("purge called", _timerCacnelCount < _PURGE_INTERVAL);
+    TimingHandler.Static h = (TimingHandler.Static) c.requestInterface(HeapCache.class).timing;
+    long _timerCount = 0;
+    for (TimerWheel w : h.timer) {
+      _timerCount += w.getSize();
+    }
+    assertEquals(c.requestInterface(HeapCache.class).getLocalSize(), _timerCount);
     c.close();
   }
 
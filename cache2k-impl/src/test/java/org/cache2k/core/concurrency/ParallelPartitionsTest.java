@@ -0,0 +1,91 @@
+package org.cache2k.core.concurrency;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class ParallelPartitionsTest {
+
+  private static void runAndCheckEachIndexOnce(final Executor ex, final int _size, final int _partitions) {
+    final AtomicIntegerArray _visits = new AtomicIntegerArray(_size);
+    ParallelPartitions.run(ex, _size, _partitions, new ParallelPartitions.Task() {
+      @Override
+      public void run(final int _from, final int _to) {
+        for (int i = _from; i < _to; i++) {
+          _visits.incrementAndGet(i);
+        }
+      }
+    });
+    for (int i = 0; i < _size; i++) {
+      assertEquals("index " + i, 1, _visits.get(i));
+    }
+  }
+
+  @Test
+  public void allIndicesProcessed() {
+    ExecutorService ex = Executors.newFixedThreadPool(3);
+    runAndCheckEachIndexOnce(ex, 10007, 4);
+    runAndCheckEachIndexOnce(ex, 5, 5);
+    ex.shutdown();
+  }
+
+  @Test
+  public void callerRunsIfRejected() {
+    runAndCheckEachIndexOnce(new Executor() {
+      @Override
+      public void execute(final Runnable command) {
+        throw new RejectedExecutionException();
+      }
+    }, 1000, 4);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void exceptionPropagated() {
+    ExecutorService ex = Executors.newFixedThreadPool(3);
+    try {
+      ParallelPartitions.run(ex, 100, 4, new ParallelPartitions.Task() {
+        @Override
+        public void run(final int _from, final int _to) {
+          if (_from > 0) {
+            throw new IllegalStateException();
+          }
+        }
+      });
+    } finally {
+      ex.shutdown();
+    }
+  }
+
+}
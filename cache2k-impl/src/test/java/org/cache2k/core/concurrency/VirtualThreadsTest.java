@@ -0,0 +1,60 @@
+package org.cache2k.core.concurrency;
+
+/*
+ * #%L
+ * cache2k implementation
+ * %%
+ * Copyright (C) 2000 - 2018 headissue GmbH, Munich
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.cache2k.testing.category.FastTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jens Wilke
+ */
+@Category(FastTests.class)
+public class VirtualThreadsTest {
+
+  @Test
+  public void executorOnlyIfSupported() throws Exception {
+    VirtualThreads.VirtualThreadExecutor ex = VirtualThreads.newVirtualThreadExecutor("test");
+    if (!VirtualThreads.isSupported()) {
+      assertNull(ex);
+      return;
+    }
+    final AtomicReference<String> _threadName = new AtomicReference<String>();
+    final CountDownLatch _done = new CountDownLatch(1);
+    ex.execute(new Runnable() {
+      @Override
+      public void run() {
+        _threadName.set(Thread.currentThread().getName());
+        _done.countDown();
+      }
+    });
+    _done.await();
+    assertTrue(_threadName.get().startsWith("test-"));
+    ex.close();
+  }
+
+}
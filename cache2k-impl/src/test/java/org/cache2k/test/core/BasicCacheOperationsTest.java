@@ -33,9 +33,11 @@ import org.junit.*;
 import org.junit.experimental.categories.Category;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
@@ -682,6 +684,25 @@ public class BasicCacheOperationsTest {
     assertNull(m.get(KEY));
   }
 
+  /**
+   * Enough keys to be processed in parallel partitions.
+   */
+  @Test
+  public void peekAll_Large() {
+    List<Integer> _keys = new ArrayList<Integer>();
+    for (int i = 0; i < 5000; i++) {
+      _keys.add(i);
+      if (i % 5 == 0) {
+        cache.put(i, i * 2);
+      }
+    }
+    Map<Integer, Integer> m = cache.peekAll(_keys);
+    assertEquals(1000, m.size());
+    for (int i = 0; i < 5000; i++) {
+      assertEquals(i % 5 == 0 ? (Integer) (i * 2) : null, m.get(i));
+    }
+  }
+
   @Test(expected = NullPointerException.class)
   public void peekAll_NullKey() {
     cache.peekAll(toIterable(new Integer[]{null}));
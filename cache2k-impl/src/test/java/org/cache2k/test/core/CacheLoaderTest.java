@@ -20,11 +20,14 @@ package org.cache2k.test.core;
  * #L%
  */
 
+import org.cache2k.expiry.RefreshAheadPolicy;
 import org.cache2k.integration.FunctionalCacheLoader;
 import org.cache2k.test.util.CacheRule;
 import org.cache2k.test.util.Condition;
 import org.cache2k.test.util.ConcurrencyHelper;
 import org.cache2k.integration.AdvancedCacheLoader;
+import org.cache2k.integration.AsyncCacheLoader;
+import org.cache2k.integration.CacheLoaderException;
 import org.cache2k.Cache;
 import org.cache2k.Cache2kBuilder;
 import org.cache2k.CacheEntry;
@@ -38,11 +41,18 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 import static org.cache2k.test.core.StaticUtil.*;
@@ -266,6 +276,390 @@ public class CacheLoaderTest {
     c.reloadAll(Collections.EMPTY_SET, null);
   }
 
+  @Test
+  public void getAll_bulkLoader() {
+    final CountingBulkLoader _loader = new CountingBulkLoader();
+    Cache<Integer,Integer> c = bulkLoaderCache(_loader);
+    c.put(1, 4711);
+    Map<Integer, Integer> m = c.getAll(toIterable(1, 2, 3, 4));
+    assertEquals(4, m.size());
+    assertEquals((Integer) 4711, m.get(1));
+    assertEquals((Integer) 4, m.get(2));
+    assertEquals(1, _loader.bulkCount.get());
+    assertEquals(3, _loader.bulkKeyCount.get());
+    assertEquals(0, _loader.singleCount.get());
+    c.getAll(toIterable(1, 2, 3, 4));
+    assertEquals(1, _loader.bulkCount.get());
+  }
+
+  /**
+   * Keys not in the result of the bulk load are loaded separately.
+   */
+  @Test
+  public void getAll_bulkLoader_missingKey() {
+    final CountingBulkLoader _loader = new CountingBulkLoader();
+    _loader.omitKey = 3;
+    Cache<Integer,Integer> c = bulkLoaderCache(_loader);
+    Map<Integer, Integer> m = c.getAll(toIterable(1, 2, 3));
+    assertEquals((Integer) 6, m.get(3));
+    assertEquals(1, _loader.bulkCount.get());
+    assertEquals(1, _loader.singleCount.get());
+  }
+
+  /**
+   * If the bulk load fails, the exception is recorded for each key, like a failing
+   * single load. The keys are not loaded separately.
+   */
+  @Test
+  public void getAll_bulkLoader_exception() {
+    final CountingBulkLoader _loader = new CountingBulkLoader();
+    _loader.bulkException = true;
+    Cache<Integer,Integer> c = bulkLoaderCache(_loader);
+    Map<Integer, Integer> m = c.getAll(toIterable(1, 2, 3));
+    assertEquals(3, m.size());
+    try {
+      m.get(1);
+      fail("exception expected");
+    } catch (CacheLoaderException ex) {
+      assertEquals("bulk load failed", ex.getCause().getMessage());
+    }
+    assertEquals(1, _loader.bulkCount.get());
+    assertEquals(0, _loader.singleCount.get());
+  }
+
+  @Test
+  public void loadAll_bulkLoader() throws Exception {
+    final CountingBulkLoader _loader = new CountingBulkLoader();
+    Cache<Integer,Integer> c = bulkLoaderCache(_loader);
+    c.get(5);
+    CompletionWaiter w = new CompletionWaiter();
+    c.loadAll(toIterable(5, 6, 7), w);
+    w.awaitCompletion();
+    assertEquals(1, _loader.singleCount.get());
+    assertEquals(1, _loader.bulkCount.get());
+    assertEquals(2, _loader.bulkKeyCount.get());
+    assertEquals((Integer) 14, c.peek(7));
+    w = new CompletionWaiter();
+    c.reloadAll(toIterable(5, 6, 7), w);
+    w.awaitCompletion();
+    assertEquals(2, _loader.bulkCount.get());
+    assertEquals(5, _loader.bulkKeyCount.get());
+  }
+
+  /**
+   * Concurrent single key loads within the batch window are done with one bulk load.
+   */
+  @Test
+  public void loaderBatching() throws Exception {
+    final int _THREADS = 10;
+    final CountingBulkLoader _loader = new CountingBulkLoader();
+    final Cache<Integer,Integer> c = target.cache(new CacheRule.Specialization<Integer, Integer>() {
+      @Override
+      public void extend(final Cache2kBuilder<Integer, Integer> b) {
+        b.loader(_loader)
+         .loaderBatchWindow(10, TimeUnit.SECONDS)
+         .loaderBatchSize(_THREADS);
+      }
+    });
+    final CountDownLatch _start = new CountDownLatch(1);
+    final AtomicInteger _correct = new AtomicInteger();
+    Runnable[] _tasks = new Runnable[_THREADS];
+    for (int i = 0; i < _THREADS; i++) {
+      final int k = i;
+      _tasks[i] = new Runnable() {
+        @Override
+        public void run() {
+          try {
+            _start.await();
+          } catch (InterruptedException ignore) { }
+          if (c.get(k) == k * 2) {
+            _correct.incrementAndGet();
+          }
+        }
+      };
+    }
+    Thread[] _threads = new Thread[_THREADS];
+    for (int i = 0; i < _THREADS; i++) {
+      _threads[i] = new Thread(_tasks[i]);
+      _threads[i].start();
+    }
+    _start.countDown();
+    for (Thread t : _threads) {
+      t.join();
+    }
+    assertEquals(_THREADS, _correct.get());
+    assertEquals(1, _loader.bulkCount.get());
+    assertEquals(0, _loader.singleCount.get());
+  }
+
+  /**
+   * The exception of the bulk load is propagated for the key, without a single load.
+   */
+  @Test
+  public void loaderBatching_exception() {
+    final CountingBulkLoader _loader = new CountingBulkLoader();
+    _loader.bulkException = true;
+    Cache<Integer,Integer> c = target.cache(new CacheRule.Specialization<Integer, Integer>() {
+      @Override
+      public void extend(final Cache2kBuilder<Integer, Integer> b) {
+        b.loader(_loader)
+         .loaderBatchWindow(10, TimeUnit.SECONDS)
+         .loaderBatchSize(1);
+      }
+    });
+    try {
+      c.get(1);
+      fail("exception expected");
+    } catch (CacheLoaderException ex) {
+      assertEquals("bulk load failed", ex.getCause().getMessage());
+    }
+    assertEquals(1, _loader.bulkCount.get());
+    assertEquals(0, _loader.singleCount.get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void loaderBatching_loadAllMissing() {
+    target.cache(new CacheRule.Specialization<Integer, Integer>() {
+      @Override
+      public void extend(final Cache2kBuilder<Integer, Integer> b) {
+        b.loader(new CacheLoader<Integer, Integer>() {
+          @Override
+          public Integer load(final Integer key) throws Exception {
+            return key;
+          }
+        })
+         .loaderBatchWindow(10, TimeUnit.MILLISECONDS);
+      }
+    });
+  }
+
+  /**
+   * Asynchronous loader which completes the load when requested by the test.
+   */
+  static class ManualAsyncLoader implements AsyncCacheLoader<Integer, Integer> {
+
+    final Map<Integer, Callback<Integer>> callbacks = new HashMap<Integer, Callback<Integer>>();
+
+    @Override
+    public synchronized void load(final Integer key, final long currentTime,
+                                  final CacheEntry<Integer, Integer> currentEntry,
+                                  final Callback<Integer> callback, final Executor executor) {
+      callbacks.put(key, callback);
+    }
+
+    synchronized Callback<Integer> callback(Integer key) {
+      return callbacks.get(key);
+    }
+
+  }
+
+  private Cache<Integer, Integer> cacheWithAsyncLoader(final AsyncCacheLoader<Integer, Integer> _loader) {
+    return target.cache(new CacheRule.Specialization<Integer, Integer>() {
+      @Override
+      public void extend(final Cache2kBuilder<Integer, Integer> b) {
+        b.loader(_loader);
+      }
+    });
+  }
+
+  @Test
+  public void asyncLoader_getAsync() throws Exception {
+    ManualAsyncLoader _loader = new ManualAsyncLoader();
+    Cache<Integer, Integer> c = cacheWithAsyncLoader(_loader);
+    CompletionWaiter w = new CompletionWaiter();
+    Future<Integer> f = c.getAsync(1, w);
+    assertFalse(f.isDone());
+    assertNotNull(_loader.callback(1));
+    _loader.callback(1).onLoadSuccess(2);
+    w.awaitCompletion();
+    assertTrue(f.isDone());
+    assertEquals((Integer) 2, f.get());
+    assertEquals((Integer) 2, c.peek(1));
+    assertEquals((Integer) 2, c.getAsync(1, null).get());
+  }
+
+  @Test
+  public void asyncLoader_getAsyncException() throws Exception {
+    ManualAsyncLoader _loader = new ManualAsyncLoader();
+    Cache<Integer, Integer> c = cacheWithAsyncLoader(_loader);
+    CompletionWaiter w = new CompletionWaiter();
+    Future<Integer> f = c.getAsync(1, w);
+    _loader.callback(1).onLoadFailure(new IllegalStateException("ouch"));
+    w.awaitCompletion();
+    assertTrue(w.getException() instanceof CacheLoaderException);
+    try {
+      f.get();
+      fail("exception expected");
+    } catch (ExecutionException ex) {
+      assertTrue(ex.getCause() instanceof CacheLoaderException);
+    }
+  }
+
+  /**
+   * A second asynchronous request for a key that is loading does not block
+   * and completes after the first load.
+   */
+  @Test
+  public void asyncLoader_getAsyncWhileLoading() throws Exception {
+    final AtomicInteger _loadCount = new AtomicInteger();
+    final ManualAsyncLoader _loader = new ManualAsyncLoader() {
+      @Override
+      public synchronized void load(final Integer key, final long currentTime,
+                                    final CacheEntry<Integer, Integer> currentEntry,
+                                    final Callback<Integer> callback, final Executor executor) {
+        _loadCount.incrementAndGet();
+        super.load(key, currentTime, currentEntry, callback, executor);
+      }
+    };
+    Cache<Integer, Integer> c = cacheWithAsyncLoader(_loader);
+    Future<Integer> f1 = c.getAsync(1, null);
+    Future<Integer> f2 = c.getAsync(1, null);
+    assertFalse(f1.isDone());
+    assertFalse(f2.isDone());
+    _loader.callback(1).onLoadSuccess(2);
+    assertEquals((Integer) 2, f1.get());
+    assertEquals((Integer) 2, f2.get());
+    assertEquals(1, _loadCount.get());
+  }
+
+  @Test
+  public void asyncLoader_get() {
+    Cache<Integer, Integer> c = cacheWithAsyncLoader(new AsyncCacheLoader<Integer, Integer>() {
+      @Override
+      public void load(final Integer key, final long currentTime,
+                       final CacheEntry<Integer, Integer> currentEntry,
+                       final Callback<Integer> callback, final Executor executor) {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            callback.onLoadSuccess(key * 2);
+          }
+        });
+      }
+    });
+    assertEquals((Integer) 4, c.get(2));
+    assertEquals(1, latestInfo(c).getLoadCount());
+  }
+
+  /**
+   * A synchronous get waiting for an asynchronous load fails, if the thread is
+   * interrupted. The callback arriving afterwards is ignored.
+   */
+  @Test
+  public void asyncLoader_getInterrupted() throws Exception {
+    final ManualAsyncLoader _loader = new ManualAsyncLoader();
+    final Cache<Integer, Integer> c = cacheWithAsyncLoader(_loader);
+    final AtomicReference<Throwable> _exception = new AtomicReference<Throwable>();
+    final AtomicBoolean _interrupted = new AtomicBoolean();
+    Thread t = new Thread() {
+      @Override
+      public void run() {
+        try {
+          c.get(1);
+        } catch (Throwable ex) {
+          _exception.set(ex);
+        }
+        _interrupted.set(isInterrupted());
+      }
+    };
+    t.start();
+    ConcurrencyHelper.await(new Condition() {
+      @Override
+      public boolean check() throws Exception {
+        return _loader.callback(1) != null;
+      }
+    });
+    t.interrupt();
+    t.join();
+    assertTrue(_exception.get() instanceof CacheLoaderException);
+    assertTrue(_interrupted.get());
+    _loader.callback(1).onLoadSuccess(2);
+    assertNull(c.peek(1));
+  }
+
+  /**
+   * Only the first callback completes the load, a second call is ignored.
+   */
+  @Test
+  public void asyncLoader_callbackTwice() throws Exception {
+    Cache<Integer, Integer> c = cacheWithAsyncLoader(new AsyncCacheLoader<Integer, Integer>() {
+      @Override
+      public void load(final Integer key, final long currentTime,
+                       final CacheEntry<Integer, Integer> currentEntry,
+                       final Callback<Integer> callback, final Executor executor) {
+        callback.onLoadSuccess(key * 2);
+        callback.onLoadSuccess(key * 3);
+        callback.onLoadFailure(new IllegalStateException("ignored"));
+      }
+    });
+    CompletionWaiter w = new CompletionWaiter();
+    Future<Integer> f = c.getAsync(1, w);
+    w.awaitCompletion();
+    assertNull(w.getException());
+    assertEquals((Integer) 2, f.get());
+    assertEquals((Integer) 2, c.peek(1));
+    assertEquals(1, latestInfo(c).getLoadCount());
+  }
+
+  /**
+   * An exception thrown by the loader after the callback is ignored.
+   */
+  @Test
+  public void asyncLoader_callbackThenException() throws Exception {
+    Cache<Integer, Integer> c = cacheWithAsyncLoader(new AsyncCacheLoader<Integer, Integer>() {
+      @Override
+      public void load(final Integer key, final long currentTime,
+                       final CacheEntry<Integer, Integer> currentEntry,
+                       final Callback<Integer> callback, final Executor executor) {
+        callback.onLoadSuccess(key * 2);
+        throw new IllegalStateException("ignored");
+      }
+    });
+    CompletionWaiter w = new CompletionWaiter();
+    Future<Integer> f = c.getAsync(1, w);
+    w.awaitCompletion();
+    assertNull(w.getException());
+    assertEquals((Integer) 2, f.get());
+    assertEquals((Integer) 2, c.peek(1));
+    assertEquals(1, latestInfo(c).getLoadCount());
+    assertEquals(0, latestInfo(c).getLoadExceptionCount());
+  }
+
+  @Test
+  public void asyncLoader_getAllAsync() throws Exception {
+    ManualAsyncLoader _loader = new ManualAsyncLoader();
+    Cache<Integer, Integer> c = cacheWithAsyncLoader(_loader);
+    c.put(1, 1);
+    Future<Map<Integer, Integer>> f = c.getAllAsync(toIterable(1, 2, 3), null);
+    _loader.callback(2).onLoadSuccess(4);
+    assertFalse(f.isDone());
+    _loader.callback(3).onLoadSuccess(6);
+    Map<Integer, Integer> m = f.get();
+    assertEquals(3, m.size());
+    assertEquals((Integer) 1, m.get(1));
+    assertEquals((Integer) 4, m.get(2));
+    assertEquals((Integer) 6, m.get(3));
+    assertNull(_loader.callback(1));
+  }
+
+  @Test
+  public void getAsync_syncLoader() throws Exception {
+    Cache<Integer, Integer> c = cacheWithLoader();
+    assertEquals((Integer) 10, c.getAsync(5, null).get());
+    Map<Integer, Integer> m = c.getAllAsync(toIterable(5, 6), null).get();
+    assertEquals(2, m.size());
+    assertEquals((Integer) 12, m.get(6));
+  }
+
+  @Test
+  public void getAsync_noLoader() throws Exception {
+    Cache<Integer, Integer> c = target.cache();
+    assertNull(c.getAsync(5, null).get());
+    c.put(5, 7);
+    assertEquals((Integer) 7, c.getAsync(5, null).get());
+    assertTrue(c.getAllAsync(toIterable(6), null).get().isEmpty());
+  }
+
   @Test
   public void prefetch_noLoader() {
     Cache<Integer,Integer> c = target.cache();
@@ -447,6 +841,160 @@ public class CacheLoaderTest {
     _releaseLoader.countDown();
   }
 
+  /**
+   * Loads run in virtual threads if supported by the JVM, otherwise in the
+   * standard loader threads.
+   */
+  @Test
+  public void testVirtualThreads() throws Exception {
+    final AtomicReference<String> _threadName = new AtomicReference<String>();
+    Cache<Integer,Integer> c = target.cache(new CacheRule.Specialization<Integer, Integer>() {
+      @Override
+      public void extend(final Cache2kBuilder<Integer, Integer> b) {
+        b .virtualThreads(true)
+          .loader(new CacheLoader<Integer, Integer>() {
+          @Override
+          public Integer load(final Integer key) throws Exception {
+            _threadName.set(Thread.currentThread().getName());
+            return key * 2;
+          }
+        });
+      }
+    });
+    CompletionWaiter w = new CompletionWaiter();
+    c.loadAll(toIterable(1), w);
+    w.awaitCompletion();
+    assertEquals((Integer) 2, c.peek(1));
+    assertTrue(_threadName.get().startsWith("cache2k-loader"));
+  }
+
+  @Test
+  public void testLatencyHistograms() {
+    Cache<Integer,Integer> c = target.cache(new CacheRule.Specialization<Integer, Integer>() {
+      @Override
+      public void extend(final Cache2kBuilder<Integer, Integer> b) {
+        b .latencyHistograms(true)
+          .loader(new CacheLoader<Integer, Integer>() {
+          @Override
+          public Integer load(final Integer key) throws Exception {
+            return key * 2;
+          }
+        });
+      }
+    });
+    c.get(1);
+    c.get(2);
+    c.get(2);
+    assertEquals(2, latestInfo(c).getLoadLatency().getCount());
+    assertEquals(0, latestInfo(c).getRefreshLatency().getCount());
+    assertNotNull(latestInfo(c).getLatencyPercentiles());
+  }
+
+  @Test
+  public void testNoLatencyHistograms() {
+    Cache<Integer,Integer> c = cacheWithLoader();
+    c.get(1);
+    assertNull(latestInfo(c).getLoadLatency());
+    assertNull(latestInfo(c).getLatencyPercentiles());
+  }
+
+  private Cache<Integer, Integer> refreshAheadCache(final AtomicInteger _loadCount,
+                                                   final RefreshAheadPolicy<Integer, Integer> _policy) {
+    return target.cache(new CacheRule.Specialization<Integer, Integer>() {
+      @Override
+      public void extend(final Cache2kBuilder<Integer, Integer> b) {
+        b .expireAfterWrite(50, TimeUnit.MILLISECONDS)
+          .refreshAhead(true)
+          .refreshAheadPolicy(_policy)
+          .loader(new CacheLoader<Integer, Integer>() {
+          @Override
+          public Integer load(final Integer key) throws Exception {
+            return _loadCount.incrementAndGet();
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void refreshAheadPolicy_expire() {
+    final AtomicInteger _loadCount = new AtomicInteger();
+    final AtomicInteger _policyCalls = new AtomicInteger();
+    final Cache<Integer, Integer> c = refreshAheadCache(_loadCount, new RefreshAheadPolicy<Integer, Integer>() {
+      @Override
+      public boolean shouldRefresh(final CacheEntry<Integer, Integer> entry, final long accessCount,
+                                   final long currentTime) {
+        assertEquals((Integer) 1, entry.getKey());
+        _policyCalls.incrementAndGet();
+        return false;
+      }
+    });
+    c.get(1);
+    ConcurrencyHelper.await(new Condition() {
+      @Override
+      public boolean check() throws Exception {
+        return !c.containsKey(1);
+      }
+    });
+    assertEquals(1, _policyCalls.get());
+    assertEquals(1, _loadCount.get());
+  }
+
+  @Test
+  public void refreshAheadPolicy_refresh() {
+    final AtomicInteger _loadCount = new AtomicInteger();
+    refreshAheadCache(_loadCount, new RefreshAheadPolicy<Integer, Integer>() {
+      @Override
+      public boolean shouldRefresh(final CacheEntry<Integer, Integer> entry, final long accessCount,
+                                   final long currentTime) {
+        return true;
+      }
+    }).get(1);
+    ConcurrencyHelper.await(new Condition() {
+      @Override
+      public boolean check() throws Exception {
+        return _loadCount.get() >= 2;
+      }
+    });
+  }
+
+  /**
+   * Start two overlapping loads with one core thread, expect that the second load is
+   * queued and not done in the caller thread.
+   */
+  @Test
+  public void testAdaptiveLoaderThreads() throws Exception {
+    final Thread _callingThread = Thread.currentThread();
+    final CountDownLatch _releaseLoader = new CountDownLatch(1);
+    final AtomicInteger _asyncCount = new AtomicInteger();
+    Cache<Integer,Integer> c = target.cache(new CacheRule.Specialization<Integer, Integer>() {
+      @Override
+      public void extend(final Cache2kBuilder<Integer, Integer> b) {
+        b .loaderThreadCount(1)
+          .loaderThreadCountMax(4)
+          .loader(new CacheLoader<Integer, Integer>() {
+          @Override
+          public Integer load(final Integer key) throws Exception {
+            if (_callingThread != Thread.currentThread()) {
+              _asyncCount.incrementAndGet();
+              _releaseLoader.await();
+            }
+            return key * 2;
+          }
+        });
+      }
+    });
+    CompletionWaiter w1 = new CompletionWaiter();
+    CompletionWaiter w2 = new CompletionWaiter();
+    c.loadAll(toIterable(1), w1);
+    c.loadAll(toIterable(2), w2);
+    _releaseLoader.countDown();
+    w1.awaitCompletion();
+    w2.awaitCompletion();
+    assertEquals("both loads in separate thread", 2, _asyncCount.get());
+    assertEquals((Integer) 4, c.peek(2));
+  }
+
   /**
    * Start two overlapping loads, expect that one is done in the caller thread,
    * since only one thread is available.
@@ -501,6 +1049,47 @@ public class CacheLoaderTest {
     });
   }
 
+  Cache<Integer, Integer> bulkLoaderCache(final CacheLoader<Integer, Integer> _loader) {
+    return target.cache(new CacheRule.Specialization<Integer, Integer>() {
+      @Override
+      public void extend(final Cache2kBuilder<Integer, Integer> b) {
+        b.loader(_loader);
+      }
+    });
+  }
+
+  static class CountingBulkLoader extends CacheLoader<Integer, Integer> {
+
+    final AtomicInteger singleCount = new AtomicInteger();
+    final AtomicInteger bulkCount = new AtomicInteger();
+    final AtomicInteger bulkKeyCount = new AtomicInteger();
+    volatile int omitKey = -1;
+    volatile boolean bulkException = false;
+
+    @Override
+    public Integer load(final Integer key) throws Exception {
+      singleCount.incrementAndGet();
+      return key * 2;
+    }
+
+    @Override
+    public Map<Integer, Integer> loadAll(final Iterable<? extends Integer> keys, final Executor executor) throws Exception {
+      bulkCount.incrementAndGet();
+      if (bulkException) {
+        throw new Exception("bulk load failed");
+      }
+      Map<Integer, Integer> m = new HashMap<Integer, Integer>();
+      for (Integer k : keys) {
+        bulkKeyCount.incrementAndGet();
+        if (k != omitKey) {
+          m.put(k, k * 2);
+        }
+      }
+      return m;
+    }
+
+  }
+
   public static class CompletionWaiter implements CacheOperationCompletionListener {
 
     CountDownLatch latch = new CountDownLatch(1);
@@ -30,8 +30,10 @@ import org.cache2k.test.util.CacheRule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.cache2k.test.core.StaticUtil.toIterable;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -79,4 +81,40 @@ public class CacheLoaderWiredCacheTest extends CacheLoaderTest {
     c.close();
   }
 
+  /**
+   * The wired cache loads key by key, since the storage and listeners need to be
+   * called for each entry.
+   */
+  @Test @Override
+  public void getAll_bulkLoader() {
+    CountingBulkLoader _loader = new CountingBulkLoader();
+    Cache<Integer,Integer> c = bulkLoaderCache(_loader);
+    Map<Integer, Integer> m = c.getAll(toIterable(1, 2, 3));
+    assertEquals((Integer) 4, m.get(2));
+    assertEquals(0, _loader.bulkCount.get());
+    assertEquals(3, _loader.singleCount.get());
+  }
+
+  @Test @Override
+  public void getAll_bulkLoader_missingKey() {
+    getAll_bulkLoader();
+  }
+
+  @Test @Override
+  public void getAll_bulkLoader_exception() {
+    getAll_bulkLoader();
+  }
+
+  @Test @Override
+  public void loadAll_bulkLoader() throws Exception {
+    CountingBulkLoader _loader = new CountingBulkLoader();
+    Cache<Integer,Integer> c = bulkLoaderCache(_loader);
+    CompletionWaiter w = new CompletionWaiter();
+    c.loadAll(toIterable(5, 6, 7), w);
+    w.awaitCompletion();
+    assertEquals((Integer) 14, c.peek(7));
+    assertEquals(0, _loader.bulkCount.get());
+    assertEquals(3, _loader.singleCount.get());
+  }
+
 }
@@ -23,16 +23,22 @@ package org.cache2k.test.core;
 import org.cache2k.Cache;
 import org.cache2k.Cache2kBuilder;
 import org.cache2k.CacheEntry;
+import org.cache2k.event.CacheEntryRemovedListener;
 import org.cache2k.core.CacheClosedException;
+import org.cache2k.core.InternalCache;
+import org.cache2k.core.SplittableIterator;
 import org.cache2k.testing.category.FastTests;
 import org.junit.After;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -140,4 +146,95 @@ public class IteratorTest {
     assertNotNull(e);
   }
 
+  /**
+   * Split the iteration in parts and expand the hash table in between. Every entry
+   * present from the start is returned exactly once by one of the parts.
+   */
+  @Test
+  public void split() {
+    Cache<Integer, Integer> c = cache = createEmptyCache();
+    int _count = 1000;
+    for (int i = 0; i < _count; i++) {
+      c.put(i, i);
+    }
+    List<SplittableIterator<CacheEntry<Integer, Integer>>> _parts =
+      new ArrayList<SplittableIterator<CacheEntry<Integer, Integer>>>();
+    _parts.add(c.requestInterface(InternalCache.class).splitIterator());
+    long _estimate = _parts.get(0).estimateSize();
+    assertTrue("estimate " + _estimate, _estimate > _count / 2 && _estimate < _count * 2);
+    for (int i = 0; i < 3; i++) {
+      int n = _parts.size();
+      for (int j = 0; j < n; j++) {
+        SplittableIterator<CacheEntry<Integer, Integer>> it = _parts.get(j).trySplit();
+        assertNotNull(it);
+        _parts.add(it);
+      }
+    }
+    assertEquals(8, _parts.size());
+    int[] _seen = new int[_count];
+    for (SplittableIterator<CacheEntry<Integer, Integer>> it : _parts) {
+      for (int i = 0; i < 10 && it.hasNext(); i++) {
+        _seen[it.next().getKey()]++;
+      }
+    }
+    for (int i = _count; i < _count * 5; i++) {
+      c.put(i, i);
+    }
+    for (SplittableIterator<CacheEntry<Integer, Integer>> it : _parts) {
+      while (it.hasNext()) {
+        int k = it.next().getKey();
+        if (k < _count) {
+          _seen[k]++;
+        }
+      }
+    }
+    for (int i = 0; i < _count; i++) {
+      assertEquals("key " + i, 1, _seen[i]);
+    }
+  }
+
+  /**
+   * Removal via the split iterator goes through the wired cache, so listeners are called.
+   */
+  @Test
+  public void splitAndRemove() {
+    final AtomicInteger _listenerCount = new AtomicInteger();
+    Cache<Integer, Integer> c = cache = Cache2kBuilder
+      .of(Integer.class, Integer.class)
+      .eternal(true)
+      .addListener(new CacheEntryRemovedListener<Integer, Integer>() {
+        @Override
+        public void onEntryRemoved(final Cache<Integer, Integer> cache, final CacheEntry<Integer, Integer> entry) {
+          _listenerCount.incrementAndGet();
+        }
+      })
+      .build();
+    int _count = 100;
+    for (int i = 0; i < _count; i++) {
+      c.put(i, i);
+    }
+    SplittableIterator<CacheEntry<Integer, Integer>> it = c.requestInterface(InternalCache.class).splitIterator();
+    SplittableIterator<CacheEntry<Integer, Integer>> it2 = it.trySplit();
+    assertNotNull(it2);
+    int _removed = 0;
+    while (it2.hasNext()) {
+      it2.next();
+      it2.remove();
+      _removed++;
+    }
+    assertTrue(_removed > 0);
+    int _remaining = 0;
+    while (it.hasNext()) {
+      it.next();
+      _remaining++;
+    }
+    assertEquals(_count, _removed + _remaining);
+    assertEquals(_removed, _listenerCount.get());
+    int _size = 0;
+    for (Integer k : c.keys()) {
+      _size++;
+    }
+    assertEquals(_remaining, _size);
+  }
+
 }